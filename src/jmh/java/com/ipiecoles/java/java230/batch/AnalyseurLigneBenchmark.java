@@ -0,0 +1,76 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de l'analyse d'une ligne, sans lecture de fichier : lignes valides de chaque type, et mélange de lignes
+ * valides et invalides selon le taux d'erreur. Avec -prof gc, gc.alloc.rate.norm donne les octets alloués par ligne.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyseurLigneBenchmark {
+
+    private static final int NB_LIGNES = 4096;
+
+    @Param({"0", "0.1", "0.5", "1"})
+    public double tauxErreur;
+
+    private final AnalyseurLigne analyseur = new AnalyseurLigne();
+
+    private final String[] lignes = new String[NB_LIGNES];
+
+    private int indice = 0;
+
+    @Setup
+    public void generer() {
+        GenerateurCsv generateur = new GenerateurCsv(42, tauxErreur);
+        for (int i = 0; i < NB_LIGNES; i++) {
+            lignes[i] = generateur.ligneSuivante();
+        }
+    }
+
+    @Benchmark
+    public Object ligneMelangee() {
+        return analyser(lignes[indice++ & (NB_LIGNES - 1)]);
+    }
+
+    @Benchmark
+    public Object manager() {
+        return analyser("M87654,durand,jacques,04/06/2013,1200.5");
+    }
+
+    @Benchmark
+    public Object technicien() {
+        return analyser("T98765,dupont,pierre,12/03/2003,1700.5,5,M87654");
+    }
+
+    @Benchmark
+    public Object commercial() {
+        return analyser("C32154,aubert,michel,05/09/2018,2200.5,150000,100");
+    }
+
+    private Object analyser(String ligne) {
+        try {
+            return analyseur.analyser(ligne);
+        } catch (BatchException e) {
+            return e;
+        }
+    }
+}
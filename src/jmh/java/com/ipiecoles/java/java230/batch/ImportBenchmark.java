@@ -0,0 +1,185 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.MyRunner;
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.repository.ManagerRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de l'import complet d'un fichier généré (lecture, analyse, rattachement des techniciens et rejets), sans la
+ * base de données, pour chaque mode de lecture de MyRunner. Le rapport d'erreur ne fait rien, sauf pour
+ * sequentielAvecRejets qui écrit le fichier de rejets. Les deux benchmarks séquentiels appellent MyRunner.readFile,
+ * sans manager en base.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ImportBenchmark {
+
+    @Param({"1000000"})
+    public long nbLignes;
+
+    @Param({"0.01", "0.5"})
+    public double tauxErreur;
+
+    private final AnalyseurLigne analyseur = new AnalyseurLigne();
+
+    private final MyRunner myRunner = new MyRunner();
+
+    private Path fichier;
+
+    private Path rejets;
+
+    private Path instantane;
+
+    private ForkJoinPool pool;
+
+    private ExecutorService validation;
+
+    @Setup(Level.Trial)
+    public void generer() throws IOException {
+        fichier = Files.createTempFile("import", ".csv");
+        rejets = Files.createTempFile("rejets", ".csv");
+        new GenerateurCsv(42, tauxErreur).ecrire(fichier, nbLignes);
+        instantane = Files.createTempFile("import", ".instantane");
+        InstantaneEmployes employes = new InstantaneEmployes();
+        try (BufferedReader reader = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            RegistreManagers registre = new RegistreManagers(Collections.emptyMap(), employes::ajouter, (numLigne, ligne, e) -> {});
+            String ligne;
+            long numLigne = 0;
+            while ((ligne = reader.readLine()) != null) {
+                try {
+                    registre.accepter(++numLigne, ligne, analyseur.analyser(ligne));
+                } catch (BatchException e) {
+                    //ligne rejetée
+                }
+            }
+            registre.terminer();
+        }
+        employes.ecrire(instantane);
+        pool = new ForkJoinPool();
+        validation = Executors.newFixedThreadPool(pool.getParallelism());
+        ReflectionTestUtils.setField(myRunner, "analyseurLigne", analyseur);
+        ReflectionTestUtils.setField(myRunner, "statistiques", StatistiquesImport.INACTIVES);
+        ReflectionTestUtils.setField(myRunner, "managerRepository", managerRepository());
+    }
+
+    /**
+     * Repository des managers sans manager en base : seule la méthode appelée par MyRunner.readFile est simulée, les
+     * autres échouent plutôt que de fausser la mesure
+     */
+    private static ManagerRepository managerRepository() {
+        return (ManagerRepository) Proxy.newProxyInstance(ImportBenchmark.class.getClassLoader(),
+                new Class[]{ManagerRepository.class}, (proxy, methode, args) -> {
+                    switch (methode.getName()) {
+                        case "findAllMatriculeAndId":
+                            return Collections.emptyList();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "ManagerRepository";
+                        default:
+                            throw new UnsupportedOperationException(methode.getName());
+                    }
+                });
+    }
+
+    @TearDown(Level.Trial)
+    public void supprimer() throws IOException {
+        pool.shutdown();
+        validation.shutdown();
+        Files.deleteIfExists(fichier);
+        Files.deleteIfExists(rejets);
+        Files.deleteIfExists(instantane);
+    }
+
+    @Benchmark
+    public long sequentiel(Blackhole blackhole) {
+        return sequentiel(blackhole, (numLigne, ligne, e) -> blackhole.consume(e));
+    }
+
+    @Benchmark
+    public long sequentielAvecRejets(Blackhole blackhole) throws IOException {
+        try (EcritureRejets ecritureRejets = new EcritureRejets(rejets, false)) {
+            return sequentiel(blackhole, ecritureRejets);
+        }
+    }
+
+    @Benchmark
+    public long mappe(Blackhole blackhole) throws IOException {
+        RegistreManagers registre = registre(blackhole, (numLigne, ligne, e) -> blackhole.consume(e));
+        new LecteurMappe(analyseur).lire(fichier, registre, (numLigne, ligne, e) -> blackhole.consume(e));
+        registre.terminer();
+        return registre.getNbAcceptes();
+    }
+
+    @Benchmark
+    public long parallele(Blackhole blackhole) throws IOException {
+        RegistreManagers registre = registre(blackhole, (numLigne, ligne, e) -> blackhole.consume(e));
+        new ImportParallele(pool, analyseur).importer(fichier, registre, (numLigne, ligne, e) -> blackhole.consume(e));
+        registre.terminer();
+        return registre.getNbAcceptes();
+    }
+
+    @Benchmark
+    public long pipeline(Blackhole blackhole) throws IOException {
+        RegistreManagers registre = registre(blackhole, (numLigne, ligne, e) -> blackhole.consume(e));
+        try (BufferedReader reader = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            new ImportPipeline(validation, analyseur, 2 * pool.getParallelism())
+                    .importer(reader, registre, (numLigne, ligne, e) -> blackhole.consume(e));
+        }
+        registre.terminer();
+        return registre.getNbAcceptes();
+    }
+
+    /**
+     * Rechargement des employés valides du même fichier depuis un instantané binaire
+     */
+    @Benchmark
+    public long instantane(Blackhole blackhole) throws IOException {
+        return InstantaneEmployes.lire(instantane, blackhole::consume);
+    }
+
+    /**
+     * Lecture de MyRunner.readFile, les rejets allant au rapport plutôt qu'au logger
+     */
+    private long sequentiel(Blackhole blackhole, RapportErreur rapport) {
+        ReflectionTestUtils.setField(myRunner, "rapportRejets", rapport);
+        return myRunner.readFile(fichier, blackhole::consume);
+    }
+
+    private RegistreManagers registre(Blackhole blackhole, RapportErreur rapport) {
+        return new RegistreManagers(Collections.emptyMap(), blackhole::consume, rapport);
+    }
+}
@@ -1,58 +1,123 @@
 package com.ipiecoles.java.java230;
 
+import com.ipiecoles.java.java230.batch.AnalyseurLigne;
+import com.ipiecoles.java.java230.batch.ChargementNatif;
+import com.ipiecoles.java.java230.batch.DestinationLigne;
+import com.ipiecoles.java.java230.batch.EcritureParLots;
+import com.ipiecoles.java.java230.batch.EcritureRejets;
+import com.ipiecoles.java.java230.batch.FichierImport;
+import com.ipiecoles.java.java230.batch.ImportDelta;
+import com.ipiecoles.java.java230.batch.ImportParallele;
+import com.ipiecoles.java.java230.batch.ImportPipeline;
+import com.ipiecoles.java.java230.batch.InstantaneEmployes;
+import com.ipiecoles.java.java230.batch.LecteurMappe;
+import com.ipiecoles.java.java230.batch.PointDeReprise;
+import com.ipiecoles.java.java230.batch.RapportErreur;
+import com.ipiecoles.java.java230.batch.RegistreManagers;
+import com.ipiecoles.java.java230.batch.StatistiquesImport;
 import com.ipiecoles.java.java230.exceptions.BatchException;
-import com.ipiecoles.java.java230.model.Commercial;
 import com.ipiecoles.java.java230.model.Employe;
-import com.ipiecoles.java.java230.model.Manager;
-import com.ipiecoles.java.java230.model.Technicien;
 import com.ipiecoles.java.java230.repository.EmployeRepository;
+import com.ipiecoles.java.java230.repository.EmpreinteEmployeRepository;
 import com.ipiecoles.java.java230.repository.ManagerRepository;
-import org.joda.time.LocalDate;
-import org.joda.time.format.DateTimeFormat;
+import com.ipiecoles.java.java230.service.CacheEmployes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 @Component
 public class MyRunner implements CommandLineRunner {
 
-    private static final String REGEX_MATRICULE = "^[MTC][0-9]{5}$";
-    private static final String REGEX_NOM = ".*";
-    private static final String REGEX_PRENOM = ".*";
-    private static final int NB_CHAMPS_MANAGER = 5;
-    private static final int NB_CHAMPS_TECHNICIEN = 7;
-    private static final String REGEX_MATRICULE_MANAGER = "^M[0-9]{5}$";
-    private static final int NB_CHAMPS_COMMERCIAL = 7;
-    private static final String REGEX_CA = "^[0-9]+(\\.[0-9]{1,2})?$";
-    private static final String REGEX_PERFORMANCE = "[0-9]+";
-    /*private static final String REGEX_SALAIRE = "^[0-9]+\\.[0-9]{0,2}$";
-    ^ => début de chaîne
-    [0-9] => on un chiffre entre 0 et 9 (compris)
-    + => on veut au moins 1 chiffre
-    \\. => on veut un point (pour la virgule du salaire)
-    {0,2} => on veut de 0 à 2 chiffres après la virgule
-    $ => fin de chaîne
-     */
-
-
     @Autowired
     private EmployeRepository employeRepository;
 
     @Autowired
     private ManagerRepository managerRepository;
 
-    private List<Employe> employes = new ArrayList<>();
+    @Autowired
+    private EmpreinteEmployeRepository empreinteEmployeRepository;
+
+    @Autowired
+    private AnalyseurLigne analyseurLigne;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatistiquesImport statistiques;
+
+    @Autowired
+    private CacheEmployes cacheEmployes;
+
+    @Value("${import.mode:sequentiel}")
+    private String modeImport;
+
+    @Value("${import.parallelisme:0}")
+    private int parallelisme;
+
+    @Value("${import.persister:true}")
+    private boolean persister;
+
+    @Value("${import.taille-lot:1000}")
+    private int tailleLot;
+
+    @Value("${import.fichier-rejets:}")
+    private String fichierRejets;
+
+    @Value("${import.reprise:false}")
+    private boolean reprise;
+
+    @Value("${import.delta:false}")
+    private boolean delta;
+
+    @Value("${import.chargement-natif:false}")
+    private boolean chargementNatif;
+
+    @Value("${import.dossier-chargement:${java.io.tmpdir}}")
+    private String dossierChargement;
+
+    @Value("${export.instantane:}")
+    private String exportInstantane;
+
+    /**
+     * Fichier de rejets de l'import en cours, null si les rejets sont affichés avec le logger
+     */
+    private RapportErreur rapportRejets;
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     /*
@@ -66,236 +131,497 @@ public class MyRunner implements CommandLineRunner {
 
     @Override
     public void run(String... strings){
-        String fileName = "employes.csv";
-        readFile(fileName);
-        //readFile(strings[0]);
+        statistiques.demarrer();
+        try {
+            importer(strings);
+            if (cacheEmployes.isActif()) {
+                //le chargement natif écrit sans passer par Hibernate, donc sans tenir le cache à jour
+                cacheEmployes.vider();
+            }
+            if (!exportInstantane.isEmpty()) {
+                exporterInstantane(Paths.get(exportInstantane));
+            }
+        } finally {
+            statistiques.terminer();
+            if (statistiques.isActif()) {
+                logger.info(statistiques.resume());
+            }
+            if (cacheEmployes.isActif()) {
+                logger.info(cacheEmployes.resume());
+            }
+        }
     }
 
     /**
-     * Méthode qui lit le fichier CSV en paramètre afin d'intégrer son contenu en BDD
-     * @param fileName Le nom du fichier (à mettre dans src/main/resources)
-     * @return une liste contenant les employés à insérer en BDD ou null si le fichier n'a pas pu être le
+     * Méthode qui importe le fichier passé en argument, ou à défaut le fichier employes.csv des ressources
+     * @param strings les arguments de la ligne de commande
      */
-    public List<Employe> readFile(String fileName) {
-        Stream<String> stream;
-        //Stream contient l'ensemble des lignes sous forme de liste et il va falloir parcourir cette liste
-
-        logger.info("Lecture du fichier : " + fileName);
-
-        try {
-            stream = Files.lines(Paths.get(new ClassPathResource(fileName).getURI()));
-            //Files.lines : renvoie une seule ligne à chaque fois
-        } catch (IOException e) {
-            logger.error("Problème dans l'ouverture du fichier " + fileName);
-            return new ArrayList<>();
-            //on fait ça parce-qu'on ne peut pas sortir une liste de notre chapeau. On renvoie donc une liste vide.
+    private void importer(String... strings){
+        if (strings.length > 0){
+            //Fichier passé en argument : lu directement sur le disque, ligne par ligne
+            Path chemin = Paths.get(strings[0]);
+            if (fichierRejets.isEmpty()) {
+                importer(chemin);
+                return;
+            }
+            //un import repris complète le fichier de rejets de l'import interrompu
+            boolean reprendre = reprise && persister && PointDeReprise.existe(chemin);
+            try (EcritureRejets rejets = new EcritureRejets(Paths.get(fichierRejets), reprendre)) {
+                rapportRejets = rejets;
+                importer(chemin);
+            } catch (IOException e) {
+                logger.error("Problème dans la création du fichier de rejets " + fichierRejets + " : " + e.getMessage());
+            } finally {
+                rapportRejets = null;
+            }
+        } else {
+            readFile("employes.csv");
         }
+    }
 
-        List<String> lignes = stream.collect(Collectors.toList());
-        logger.info(lignes.size() + " lignes lues");
-        for (int i = 0; i < lignes.size(); i++){
+    /**
+     * Méthode qui importe le fichier situé sur le disque, en enregistrant ou non les employés valides en base
+     * @param chemin Le chemin du fichier sur le disque
+     */
+    private void importer(Path chemin) {
+        if (estInstantane(chemin)) {
             try {
-                processLine(lignes.get(i));
-            } catch (BatchException e) {
-                logger.error("Ligne " + (i+1) + " : " + e.getMessage() + " => " + lignes.get(i));
-                /*i+1 => c'est pour commencer à la ligne 1.
-                Avec ce logger.error l'exception ne va pas se préoccuper pas de la ligne ou du problème. On dit juste
-                qu'il y a un problème. C'est ici qu'on se préoccupe de la ligne.
-                */
+                logger.info(readInstantane(chemin) + " employés chargés");
+            } catch (IOException e) {
+                logger.error("Problème dans la lecture de l'instantané " + chemin + " : " + e.getMessage());
+            }
+        } else if (!persister){
+            try {
+                logger.info(importer(chemin, e -> {}) + " employés valides");
+            } catch (IOException e) {
+                logger.error("Problème dans la lecture du fichier " + chemin + " : " + e.getMessage());
+            }
+        } else if (delta) {
+            try {
+                logger.info(readFileDelta(chemin) + " employés valides");
+            } catch (IOException e) {
+                logger.error("Problème dans la lecture du fichier " + chemin + " : " + e.getMessage());
+            }
+        } else if (chargementNatif) {
+            try (ChargementNatif chargement = ChargementNatif.pour(jdbcTemplate, new TransactionTemplate(transactionManager),
+                    Paths.get(dossierChargement), tailleLot)) {
+                chargement.setStatistiques(statistiques);
+                try {
+                    logger.info(importer(chemin, chargement) + " employés valides");
+                } catch (IOException e) {
+                    //fichier lu en partie : rien n'est chargé, les fichiers intermédiaires sont supprimés par close
+                    logger.error("Problème dans la lecture du fichier " + chemin + " : " + e.getMessage());
+                    return;
+                }
+                chargement.terminer();
+            } catch (IOException e) {
+                logger.error("Problème dans la création des fichiers de chargement dans " + dossierChargement + " : " + e.getMessage());
+            }
+        } else if (!reprise || estCompresse(chemin)) {
+            if (reprise) {
+                logger.warn("Pas de point de reprise pour le fichier compressé " + chemin);
+            }
+            try (EcritureParLots ecriture = nouvelleEcriture()) {
+                logger.info(importer(chemin, ecriture) + " employés valides");
+            } catch (IOException e) {
+                logger.error("Problème dans la lecture du fichier " + chemin + " : " + e.getMessage());
+            }
+        } else {
+            try {
+                try (EcritureParLots ecriture = nouvelleEcriture()) {
+                    logger.info(readFileAvecReprise(chemin, ecriture) + " employés valides");
+                }
+                //le dernier lot est validé : l'import est terminé
+                PointDeReprise.supprimer(chemin);
+            } catch (IOException e) {
+                logger.error("Problème dans la lecture du fichier " + chemin + " : " + e.getMessage());
             }
         }
-
-        return employes;
     }
 
     /**
-     * Méthode qui regarde le premier caractère de la ligne et appelle la bonne méthode de création d'employé
-     * @param ligne la ligne à analyser
-     * @throws BatchException si le type d'employé n'a pas été reconnu
+     * Méthode qui importe le fichier situé sur le disque selon le mode configuré (import.mode)
+     * @param chemin Le chemin du fichier sur le disque
+     * @param destination Le consommateur qui reçoit chaque employé valide
+     * @return le nombre d'employés valides transmis à la destination
+     * @throws IOException si le fichier n'a pas pu être lu entièrement
      */
-    private void processLine(String ligne) throws BatchException {
-        //Si la première lettre de la ligne n'est pas C, T ou M, renvoyer une erreur
-        //Sinon appeler méthode de création de l'employé correspondant
-        switch (ligne.substring(0,1)){
-            case "T":
-                processTechnicien(ligne);
+    private long importer(Path chemin, Consumer<Employe> destination) throws IOException {
+        Lecture lecture;
+        //les lectures parallèle et projetée accèdent aux octets du fichier : un fichier compressé est lu en flux
+        String mode = !modeImport.equals("pipeline") && estCompresse(chemin) ? "sequentiel" : modeImport;
+        switch (mode) {
+            case "parallele":
+                lecture = this::lireParallele;
                 break;
-            case "M":
-                processManager(ligne);
+            case "mappe":
+                lecture = this::lireMappe;
                 break;
-            case "C":
-                processCommercial(ligne);
+            case "pipeline":
+                lecture = this::lirePipeline;
                 break;
             default:
-                throw new BatchException("Type d'employé inconnu");
+                lecture = this::lireFichier;
         }
+        RegistreManagers registre = nouveauRegistre(destination);
+        lecture.lire(chemin, registre);
+        return registre.getNbAcceptes();
     }
 
     /**
-     * Méthode qui crée un Commercial à partir d'une ligne contenant les informations d'un commercial et l'ajoute dans la liste globale des employés
-     * @param ligneCommercial la ligne contenant les infos du commercial à intégrer
-     * @throws BatchException s'il y a un problème sur cette ligne
+     * Lecture d'un fichier sur le disque qui transmet les lignes analysées au registre des managers
      */
-    private void processCommercial(String ligneCommercial) throws BatchException {
-        Commercial c = new Commercial();
-        String[] commercialFields = ligneCommercial.split(",");
-        //on split la ligne pour séparer chaque colonne. La séparation se fait sur la virgule
-
-        //on vérifie si le matricule (1ère colonne, donc '0') respecte bien l'expression régulière d'un matricule
-        if (commercialFields.length != NB_CHAMPS_COMMERCIAL){ //Si la longueur du champs Commercial est différente
-            throw new BatchException("La ligne commercial ne contient pas 7 éléments mais " + commercialFields.length);
-        }
-
-        //appel de la méthode par défaut qui vérifie les formats de certain champs
-        processEmploye(ligneCommercial, c);
-
-        //vérification format chiffre d'affaire
-        if (!commercialFields[5].matches(REGEX_CA)){
-            throw new BatchException("Le chiffre d'affaire du commercial est incorrect: " + commercialFields[5]);
-        }
+    private interface Lecture {
+        void lire(Path chemin, RegistreManagers registre) throws IOException;
+    }
 
-        //vérification format performance
-        if (!commercialFields[6].matches(REGEX_PERFORMANCE)){
-            throw new BatchException( ("La performance du commercial est incorrecte : " + commercialFields[6]));
+    /**
+     * Lit le fichier en signalant une erreur de lecture sans l'interrompre : les employés lus avant l'erreur ont déjà
+     * été transmis à la destination
+     * @return le nombre d'employés valides transmis à la destination
+     */
+    private long lire(Path chemin, Consumer<Employe> destination, Lecture lecture) {
+        RegistreManagers registre = nouveauRegistre(destination);
+        try {
+            lecture.lire(chemin, registre);
+        } catch (IOException e) {
+            logger.error("Problème dans la lecture du fichier " + chemin + " : " + e.getMessage());
         }
-
-        employes.add(c);
+        return registre.getNbAcceptes();
     }
 
     /**
-     * Méthode qui crée un Manager à partir d'une ligne contenant les informations d'un manager et l'ajoute dans la liste globale des employés
-     * @param ligneManager la ligne contenant les infos du manager à intégrer
-     * @throws BatchException s'il y a un problème sur cette ligne
+     * Méthode qui lit le fichier CSV en paramètre afin d'intégrer son contenu en BDD
+     * @param fileName Le nom du fichier (à mettre dans src/main/resources)
+     * @return une liste contenant les employés à insérer en BDD ou une liste vide si le fichier n'a pas pu être lu
      */
-    private void processManager(String ligneManager) throws BatchException {
-        Manager m = new Manager();
-        String[] managerFields = ligneManager.split(",");
+    public List<Employe> readFile(String fileName) {
+        List<Employe> employes = new ArrayList<>();
 
-        if (managerFields.length != NB_CHAMPS_MANAGER){
-            throw new BatchException("La ligne manager ne contient pas 5 éléments mais " + managerFields.length);
+        logger.info("Lecture du fichier : " + fileName);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(fileName).getInputStream(), StandardCharsets.UTF_8))) {
+            RegistreManagers registre = nouveauRegistre(employes::add);
+            readLines(reader, registre, this::rejeter);
+            registre.terminer();
+        } catch (IOException e) {
+            logger.error("Problème dans l'ouverture du fichier " + fileName);
         }
 
-        //appel de la méthode par défaut qui vérifie les formats de certain champs
-        processEmploye(ligneManager, m);
+        return employes;
+    }
 
+    /**
+     * Méthode qui lit en flux le fichier CSV situé sur le disque : les lignes sont traitées une par une et chaque
+     * employé valide est transmis à la destination, sans être conservé. La mémoire utilisée ne dépend donc pas de la
+     * taille du fichier. Un fichier compressé en gzip est décompressé au fil de la lecture.
+     * @param chemin Le chemin du fichier sur le disque
+     * @param destination Le consommateur qui reçoit chaque employé valide
+     * @return le nombre d'employés valides transmis à la destination
+     */
+    public long readFile(Path chemin, Consumer<Employe> destination) {
+        return lire(chemin, destination, this::lireFichier);
+    }
 
-        employes.add(m);
+    private void lireFichier(Path chemin, RegistreManagers registre) throws IOException {
+        logger.info("Lecture du fichier : " + chemin);
 
+        try (BufferedReader reader = FichierImport.lire(chemin, nbThreads())) {
+            readLines(reader, registre, this::rejeter);
+        }
+        registre.terminer();
     }
 
     /**
-     * Méthode qui crée un Technicien à partir d'une ligne contenant les informations d'un technicien et l'ajoute dans la liste globale des employés
-     * @param ligneTechnicien la ligne contenant les infos du technicien à intégrer
-     * @throws BatchException s'il y a un problème sur cette ligne
+     * Méthode qui lit le fichier CSV situé sur le disque en validant ses lignes en parallèle sur un ForkJoinPool.
+     * Les employés valides et les erreurs sont restitués dans l'ordre du fichier avec leur numéro de ligne.
+     * @param chemin Le chemin du fichier sur le disque
+     * @param destination Le consommateur qui reçoit chaque employé valide
+     * @return le nombre d'employés valides transmis à la destination
      */
-    private void processTechnicien(String ligneTechnicien) throws BatchException {
-        Technicien t = new Technicien();
-        String[] technicienFields = ligneTechnicien.split(",");
-
-        if (technicienFields.length != NB_CHAMPS_TECHNICIEN){
-            throw new BatchException("La ligne technicien ne contient pas 7 éléments mais " + technicienFields.length);
-        }
+    public long readFileParallele(Path chemin, Consumer<Employe> destination) {
+        return lire(chemin, destination, this::lireParallele);
+    }
 
-        //appel de la méthode par défaut qui vérifie les formats de certain champs
-        processEmploye(ligneTechnicien, t);
+    private void lireParallele(Path chemin, RegistreManagers registre) throws IOException {
+        logger.info("Lecture parallèle du fichier : " + chemin);
 
-        //vérification du grade du technicien
-        Integer grade;
+        ForkJoinPool pool = parallelisme > 0 ? new ForkJoinPool(parallelisme) : new ForkJoinPool();
         try {
-            grade = Integer.parseInt(technicienFields[5]);
-        }
-        catch (Exception e) {
-            throw new BatchException(technicienFields[5] + " n'est pas un format valide de grade");
+            long nbLignes = new ImportParallele(pool, analyseurLigne).importer(chemin, registre, this::rejeter);
+            registre.terminer();
+            logger.info(nbLignes + " lignes lues");
+        } finally {
+            pool.shutdown();
         }
+    }
 
-        //vérification que le grade soit bien entre 1 et 5
-        try {
-            t.setGrade(grade);
-        }
-        catch (Exception e){
-            throw new BatchException("Le grade doit être compris entre 1 et 5");
-        }
+    /**
+     * Méthode qui importe le fichier CSV situé sur le disque en pipeline : un thread lit le fichier, un pool de threads
+     * valide les lignes et le thread courant écrit les employés en base, les trois étapes travaillant en même temps.
+     * Les blocs de lignes en cours sont bornés : si la base ralentit, la lecture attend.
+     * @param chemin Le chemin du fichier sur le disque
+     * @param destination Le consommateur qui reçoit chaque employé valide, sur le thread courant
+     * @return le nombre d'employés valides transmis à la destination
+     */
+    public long readFilePipeline(Path chemin, Consumer<Employe> destination) {
+        return lire(chemin, destination, this::lirePipeline);
+    }
 
-        //vérification du matricule du manager
-        if (!technicienFields[6].matches(REGEX_MATRICULE_MANAGER)){
-            throw new BatchException("La chaîne " + technicienFields[6] + " ne respecte pas l'expression régulière " + REGEX_MATRICULE_MANAGER);
+    private void lirePipeline(Path chemin, RegistreManagers registre) throws IOException {
+        logger.info("Lecture du fichier en pipeline : " + chemin);
+
+        int nbThreads = nbThreads();
+        ExecutorService validation = Executors.newFixedThreadPool(nbThreads);
+        try (BufferedReader reader = FichierImport.lire(chemin, nbThreads)) {
+            ImportPipeline pipeline = new ImportPipeline(validation, analyseurLigne, 2 * nbThreads);
+            pipeline.setStatistiques(statistiques);
+            long nbLignes = pipeline.importer(reader, registre, this::rejeter);
+            registre.terminer();
+            logger.info(nbLignes + " lignes lues");
+        } finally {
+            validation.shutdownNow();
         }
+    }
 
-        //vérification de l'existence du manager dans la BDD puis dans le fichier
-        Manager manager = managerRepository.findByMatricule(technicienFields[6]);
-
-
-        if (manager == null){
-            throw new BatchException("Le manager de matricule " + technicienFields[6] + " n'a pas été trouvé en base de données");
-        }
+    /**
+     * Méthode qui lit le fichier CSV situé sur le disque en le projetant en mémoire : les lignes et les champs sont
+     * repérés directement sur les octets, sans décodage du fichier ni String par ligne.
+     * @param chemin Le chemin du fichier sur le disque
+     * @param destination Le consommateur qui reçoit chaque employé valide
+     * @return le nombre d'employés valides transmis à la destination
+     */
+    public long readFileMappe(Path chemin, Consumer<Employe> destination) {
+        return lire(chemin, destination, this::lireMappe);
+    }
 
-        /* parcourir liste employe
-         * vérifier si chaque élément est un manager
-         * si c'est un manager vérifier son matricule
-         * parcourir toute la liste
-         * si matricule pas trouvé, on lance l'exception
-        */
+    private void lireMappe(Path chemin, RegistreManagers registre) throws IOException {
+        logger.info("Lecture du fichier projeté en mémoire : " + chemin);
 
-        /*for (int i = 0; i < employes.size(); i++){
-            on parcourt chaque ligne avec processLine
-            si processLine appelle processManager c'est qu'on a bien un manager
-            si manager on vérifie son matricule
-            si pas de matricule trouvé, on lance l'exception
-        }*/
+        long nbLignes = new LecteurMappe(analyseurLigne).lire(chemin, registre, this::rejeter);
+        registre.terminer();
+        logger.info(nbLignes + " lignes lues");
+    }
 
+    /**
+     * Méthode qui importe le fichier situé sur le disque en enregistrant un point de reprise dans la transaction de
+     * chaque lot. Si un import précédent du même fichier a été interrompu, la lecture reprend après le dernier lot
+     * validé, avec les techniciens qui attendaient encore leur manager : aucun employé n'est enregistré deux fois.
+     * Le fichier de rejets complété est ramené au point de reprise : aucune ligne n'y est rejetée deux fois.
+     * Le fichier est lu avec le lecteur projeté en mémoire, qui connaît la position en octets de chaque ligne.
+     * @param chemin Le chemin du fichier sur le disque
+     * @param ecriture L'écriture par lots qui enregistre les employés valides
+     * @return le nombre d'employés valides transmis à l'écriture par cet import
+     * @throws IOException si le fichier ou son point de reprise ne peuvent pas être lus
+     */
+    public long readFileAvecReprise(Path chemin, EcritureParLots ecriture) throws IOException {
+        long taille = Files.size(chemin);
+        long empreinte = PointDeReprise.empreinte(chemin);
+        PointDeReprise pointDeReprise = PointDeReprise.charger(chemin, taille, empreinte, id -> employeRepository.exists(id));
+        if (rapportRejets instanceof EcritureRejets) {
+            //sans quoi les rejets des lignes relues seraient écrits une seconde fois dans le fichier complété
+            ((EcritureRejets) rapportRejets).reprendre(pointDeReprise != null ? pointDeReprise.getNumLigne() : 0,
+                    pointDeReprise != null ? pointDeReprise.getLignesEnAttente().keySet() : Collections.emptySet());
+        }
 
-        employes.add(t);
+        LecteurMappe lecteur = new LecteurMappe(analyseurLigne);
+        RegistreManagers registre = nouveauRegistre(ecriture);
+        long nbLotsPrecedents = 0;
+        if (pointDeReprise != null) {
+            logger.info("Reprise du fichier " + chemin + " à la ligne " + (pointDeReprise.getNumLigne() + 1) + " après le lot "
+                    + pointDeReprise.getNumLot() + " (" + pointDeReprise.getLignesEnAttente().size() + " techniciens en attente)");
+            lecteur.positionner(pointDeReprise.getPosition(), pointDeReprise.getNumLigne());
+            nbLotsPrecedents = pointDeReprise.getNumLot();
+        } else {
+            logger.info("Lecture du fichier avec points de reprise : " + chemin);
+        }
 
+        long lotsPrecedents = nbLotsPrecedents;
+        ecriture.setAvantValidation(dernier -> {
+            try {
+                new PointDeReprise(taille, empreinte, lecteur.getPosition(), lecteur.getNumLigne(),
+                        lotsPrecedents + ecriture.getNbLots() + 1, dernier.getId(), registre.getLignesEnAttente())
+                        .enregistrer(chemin);
+            } catch (IOException e) {
+                //annule la transaction du lot : sans point de reprise, il serait réinséré à la reprise
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        if (pointDeReprise != null) {
+            for (Map.Entry<Long, String> ligne : pointDeReprise.getLignesEnAttente().entrySet()) {
+                try {
+                    registre.accepter(ligne.getKey(), ligne.getValue(), analyseurLigne.analyser(ligne.getValue()));
+                } catch (BatchException e) {
+                    rejeter(ligne.getKey(), ligne.getValue(), e);
+                }
+            }
+        }
+        long nbLignes = lecteur.lire(chemin, registre, this::rejeter);
+        registre.terminer();
+        logger.info(nbLignes + " lignes lues");
+        return registre.getNbAcceptes();
     }
 
     /**
-     * Méthode générique qui vérifie les champs Matricule, Nom, Prénom, Date d'embauche et Salaire
-     * @param ligneEmploye la ligne contenant les infos de l'employé à intégrer
-     * @throws BatchException s'il y a un problème sur cette ligne
+     * Méthode qui importe le fichier situé sur le disque de manière différentielle : le fichier contient tout le
+     * personnel et seuls les employés ajoutés, modifiés ou absents du fichier sont écrits en base (voir ImportDelta).
+     * Les absents ne sont supprimés que si le fichier a été lu entièrement.
+     * @param chemin Le chemin du fichier sur le disque
+     * @return le nombre d'employés valides dans le fichier
+     * @throws IOException si le fichier ne peut pas être lu
      */
-    private void processEmploye(String ligneEmploye, Employe employe) throws BatchException {
-        //on split la lignes pour séparer chaque colonne. La séparation se fait sur la virgule
-        String[] employeFields = ligneEmploye.split(",");
-
-        //vérification format matricule
-        if (!employeFields[0].matches(REGEX_MATRICULE)){
-            throw new BatchException("La chaîne: " + employeFields[0] + " ne respecte pas l'expression régulière ^[MTC][0-9]{5}$");
+    public long readFileDelta(Path chemin) throws IOException {
+        logger.info("Import différentiel du fichier : " + chemin);
+
+        try (ImportDelta importDelta = new ImportDelta(entityManager, new TransactionTemplate(transactionManager), tailleLot,
+                employeRepository.findAllMatriculeAndId(), empreinteEmployeRepository.findAllMatriculeAndIdAndEmpreinte())) {
+            importDelta.setStatistiques(statistiques);
+            RapportErreur rapport = (numLigne, ligne, e) -> {
+                importDelta.conserver(ligne);
+                rejeter(numLigne, ligne, e);
+            };
+            RegistreManagers registre = nouveauRegistre(importDelta, rapport);
+            try (BufferedReader reader = FichierImport.lire(chemin, nbThreads())) {
+                readLines(reader, registre, rapport);
+            }
+            registre.terminer();
+            importDelta.supprimerAbsents();
+            return registre.getNbAcceptes();
         }
+    }
 
-        //vérification format nom
-        if (!employeFields[1].matches(REGEX_NOM)){
-            throw new BatchException("Le nom ne respecte pas les règles");
-        }
+    /**
+     * Nombre de threads de validation, et de décompression d'un fichier gzip de plusieurs membres
+     */
+    private int nbThreads() {
+        return parallelisme > 0 ? parallelisme : Runtime.getRuntime().availableProcessors();
+    }
 
-        //vérification format prenom
-        if (!employeFields[2].matches(REGEX_PRENOM)){
-            throw new BatchException("Le prénom ne respecte pas les règles");
+    private boolean estCompresse(Path chemin) {
+        try {
+            return FichierImport.estCompresse(chemin);
+        } catch (IOException e) {
+            //l'erreur sera signalée à la lecture du fichier
+            return false;
         }
+    }
 
-        //vérification format date
-        LocalDate dateEmbauche;
-        try{
-            dateEmbauche = DateTimeFormat.forPattern("dd/MM/yyyy").parseLocalDate(employeFields[3]);
+    /**
+     * Méthode qui charge un instantané binaire produit par exporterInstantane : les employés sont déjà validés et
+     * sont enregistrés par lots, sans passer par l'analyse des lignes
+     * @param chemin Le chemin de l'instantané sur le disque
+     * @return le nombre d'employés lus
+     * @throws IOException si le fichier ne peut pas être lu ou n'est pas un instantané valide
+     */
+    public long readInstantane(Path chemin) throws IOException {
+        logger.info("Chargement de l'instantané : " + chemin);
+        if (!persister) {
+            return InstantaneEmployes.lire(chemin, e -> {});
+        }
+        try (EcritureParLots ecriture = nouvelleEcriture()) {
+            return InstantaneEmployes.lire(chemin, ecriture);
         }
-        catch (Exception e) {
+    }
 
-            throw new BatchException( employeFields[3] + " ne respecte pas le format de date dd/MM/yyyy");
+    /**
+     * Méthode qui exporte tous les employés de la base dans un instantané binaire, lus page par page, chaque page
+     * repartant du dernier identifiant lu
+     * @param chemin Le fichier à écrire, remplacé s'il existe
+     */
+    public void exporterInstantane(Path chemin) {
+        InstantaneEmployes instantane = new InstantaneEmployes();
+        Slice<Employe> page;
+        Long dernier = Long.MIN_VALUE;
+        do {
+            page = employeRepository.findByIdGreaterThanOrderByIdAsc(dernier, new PageRequest(0, tailleLot));
+            for (Employe employe : page) {
+                instantane.ajouter(employe);
+                dernier = employe.getId();
+            }
+        } while (page.hasNext());
+        try {
+            instantane.ecrire(chemin);
+            logger.info(instantane.getNbEmployes() + " employés exportés dans l'instantané " + chemin);
+        } catch (IOException e) {
+            logger.error("Problème dans l'écriture de l'instantané " + chemin + " : " + e.getMessage());
         }
+    }
 
-        //vérification format salaire
-        double salaire;
+    private boolean estInstantane(Path chemin) {
         try {
-            salaire = Double.parseDouble(employeFields[4]);
+            return InstantaneEmployes.estInstantane(chemin);
+        } catch (IOException e) {
+            //l'erreur sera signalée à la lecture du fichier
+            return false;
         }
-        catch (Exception e){
-            throw new BatchException( employeFields[4] + " n'est pas un format valide de salaire");
+    }
+
+    /**
+     * Méthode qui crée le registre des managers d'un import, préchargé en une seule requête avec les managers en base
+     * @param destination Le consommateur qui reçoit chaque employé accepté
+     * @return le registre, à terminer en fin de fichier pour traiter les techniciens en attente de leur manager
+     */
+    private RegistreManagers nouveauRegistre(Consumer<Employe> destination) {
+        return nouveauRegistre(destination, this::rejeter);
+    }
+
+    private RegistreManagers nouveauRegistre(Consumer<Employe> destination, RapportErreur rapport) {
+        RegistreManagers registre = new RegistreManagers(RegistreManagers.indexer(managerRepository.findAllMatriculeAndId()), destination, rapport);
+        registre.setStatistiques(statistiques);
+        return registre;
+    }
+
+    /**
+     * Méthode qui crée l'écriture par lots des employés valides, une transaction par lot
+     */
+    private EcritureParLots nouvelleEcriture() {
+        EcritureParLots ecriture = new EcritureParLots(entityManager, new TransactionTemplate(transactionManager), tailleLot);
+        ecriture.setStatistiques(statistiques);
+        return ecriture;
+    }
+
+    /**
+     * Méthode qui traite les lignes du reader une par une en conservant leur numéro pour les messages d'erreur
+     * @param reader le reader positionné au début du fichier
+     * @param destination reçoit chaque employé valide avec sa ligne
+     * @param rapport reçoit chaque ligne rejetée
+     * @throws IOException si la lecture échoue en cours de route
+     */
+    private void readLines(BufferedReader reader, DestinationLigne destination, RapportErreur rapport) throws IOException {
+        long numLigne = 0;
+        String ligne;
+        long debut = statistiques.debut();
+        while ((ligne = reader.readLine()) != null){
+            statistiques.mesurer(StatistiquesImport.Etape.LECTURE, debut);
+            numLigne++;
+            try {
+                destination.accepter(numLigne, ligne, analyseurLigne.analyser(ligne));
+            } catch (BatchException e) {
+                rapport.rejeter(numLigne, ligne, e);
+            }
+            debut = statistiques.debut();
         }
+        logger.info(numLigne + " lignes lues");
+    }
 
-        //création d'un nouvel employé
-        /*employe.setMatricule(employeFields[0]);
-        employe.setNom(employeFields[1]);
-        employe.setPrenom(employeFields[2]);
-        employe.setDateEmbauche(dateEmbauche);
-        employe.setSalaire(salaire);*/
+    /**
+     * Méthode appelée pour chaque ligne rejetée, dans l'ordre du fichier
+     * @param numLigne le numéro de la ligne dans le fichier (à partir de 1)
+     * @param ligne la ligne problématique
+     * @param e l'erreur rencontrée sur cette ligne
+     */
+    private void rejeter(long numLigne, String ligne, BatchException e) {
+        statistiques.rejet(e.getCode(), ligne);
+        if (rapportRejets != null) {
+            //Écrit en tâche de fond dans le fichier de rejets (import.fichier-rejets)
+            rapportRejets.rejeter(numLigne, ligne, e);
+            return;
+        }
+        logger.error("Ligne " + numLigne + " : " + e.getMessage() + " => " + ligne);
+        /*Avec ce logger.error l'exception ne va pas se préoccuper pas de la ligne ou du problème. On dit juste
+        qu'il y a un problème. C'est ici qu'on se préoccupe de la ligne.
+        */
     }
 }
@@ -0,0 +1,123 @@
+package com.ipiecoles.java.java230.batch;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * Lecture des dates d'embauche au format dd/MM/yyyy.
+ *
+ * L'écriture habituelle, sur 10 caractères, est lue directement chiffre par chiffre et validée (mois, nombre de jours
+ * du mois, années bissextiles) sans passer par Joda ni lever d'exception. Les dates étant très concentrées (beaucoup
+ * d'employés embauchés le même jour), les dernières dates lues sont gardées dans un petit cache à accès direct : une
+ * date déjà vue ne coûte aucune allocation. Les autres écritures acceptées par le format Joda (jour ou mois sur un
+ * chiffre, année signée...) sont confiées à un formatter Joda unique.
+ *
+ * Le cache ne contient que des objets immuables, l'analyseur peut donc être partagé entre plusieurs threads.
+ */
+public class AnalyseurDate {
+
+    public static final String FORMAT = "dd/MM/yyyy";
+
+    /**
+     * Origine des dates comptées en jours, dans les colonnes et les instantanés d'employés
+     */
+    public static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormat.forPattern(FORMAT);
+
+    private static final int TAILLE_CACHE = 1024;
+
+    private static final int[] JOURS_PAR_MOIS = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private final Entree[] cache = new Entree[TAILLE_CACHE];
+
+    /**
+     * @param texte le texte contenant la date
+     * @param debut l'indice du premier caractère de la date
+     * @param fin l'indice qui suit le dernier caractère de la date
+     * @return la date lue, ou null si le texte ne respecte pas le format dd/MM/yyyy ou n'est pas une date valide
+     */
+    public LocalDate lire(CharSequence texte, int debut, int fin) {
+        if (fin - debut != FORMAT.length() || texte.charAt(debut + 2) != '/' || texte.charAt(debut + 5) != '/') {
+            return lireAvecJoda(texte.subSequence(debut, fin).toString());
+        }
+        int jour = nombre(texte, debut, 2);
+        int mois = nombre(texte, debut + 3, 2);
+        int annee = nombre(texte, debut + 6, 4);
+        if (jour < 0 || mois < 0 || annee < 0) {
+            return lireAvecJoda(texte.subSequence(debut, fin).toString());
+        }
+        if (mois < 1 || mois > 12 || jour < 1 || jour > joursDuMois(mois, annee)) {
+            return null;
+        }
+
+        int cle = annee * 10000 + mois * 100 + jour;
+        int indice = (cle * 0x9E3779B1 >>> 22) & (TAILLE_CACHE - 1);
+        Entree entree = cache[indice];
+        if (entree == null || entree.cle != cle) {
+            entree = new Entree(cle, new LocalDate(annee, mois, jour));
+            cache[indice] = entree;
+        }
+        return entree.date;
+    }
+
+    public LocalDate lire(CharSequence texte) {
+        return lire(texte, 0, texte.length());
+    }
+
+    /**
+     * @return le nombre de jours entre le 01/01/1970 et la date, négatif avant
+     */
+    public static int jour(LocalDate date) {
+        return Days.daysBetween(EPOCH, date).getDays();
+    }
+
+    /**
+     * @param jour un nombre de jours depuis le 01/01/1970, voir {@link #jour(LocalDate)}
+     */
+    public static LocalDate date(int jour) {
+        return EPOCH.plusDays(jour);
+    }
+
+    private static LocalDate lireAvecJoda(String date) {
+        try {
+            return FORMAT_DATE.parseLocalDate(date);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return la valeur des nbChiffres chiffres à partir de debut, ou -1 si l'un d'eux n'est pas un chiffre
+     */
+    private static int nombre(CharSequence texte, int debut, int nbChiffres) {
+        int valeur = 0;
+        for (int i = debut; i < debut + nbChiffres; i++) {
+            char c = texte.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valeur = valeur * 10 + (c - '0');
+        }
+        return valeur;
+    }
+
+    private static int joursDuMois(int mois, int annee) {
+        if (mois == 2 && annee % 4 == 0 && (annee % 100 != 0 || annee % 400 == 0)) {
+            return 29;
+        }
+        return JOURS_PAR_MOIS[mois - 1];
+    }
+
+    private static final class Entree {
+        private final int cle;
+        private final LocalDate date;
+
+        Entree(int cle, LocalDate date) {
+            this.cle = cle;
+            this.date = date;
+        }
+    }
+}
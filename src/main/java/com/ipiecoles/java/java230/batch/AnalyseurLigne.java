@@ -0,0 +1,369 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import com.ipiecoles.java.java230.exceptions.TechnicienException;
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.joda.time.LocalDate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Analyse d'une ligne du fichier CSV en un seul parcours : les débuts de champs sont repérés une fois, puis chaque
+ * champ est vérifié directement sur les caractères de la ligne, sans split ni expression régulière. Seuls les champs
+ * conservés (matricule, nom, prénom, matricule du manager) sont copiés dans des String.
+ *
+ * Les contrôles et les messages d'erreur sont ceux des règles d'origine :
+ * <ul>
+ *     <li>nombre de champs compté comme String.split(","), qui ignore les champs vides en fin de ligne</li>
+ *     <li>matricule ^[MTC][0-9]{5}$, matricule du manager ^M[0-9]{5}$</li>
+ *     <li>salaire accepté par Double.parseDouble, grade accepté par Integer.parseInt et compris entre 1 et 5</li>
+ *     <li>chiffre d'affaire ^[0-9]+(\.[0-9]{1,2})?$, performance [0-9]+</li>
+ * </ul>
+ *
+ * L'analyseur ne garde pas d'état entre deux lignes (hormis le cache des dates) et peut être utilisé par plusieurs
+ * threads.
+ */
+@Component
+public class AnalyseurLigne implements TraitementLigne {
+
+    private static final String REGEX_MATRICULE = "^[MTC][0-9]{5}$";
+    private static final String REGEX_MATRICULE_MANAGER = "^M[0-9]{5}$";
+    private static final int LONGUEUR_MATRICULE = 6;
+    private static final int NB_CHAMPS_MANAGER = 5;
+    private static final int NB_CHAMPS_TECHNICIEN = 7;
+    private static final int NB_CHAMPS_COMMERCIAL = 7;
+    private static final int NB_CHAMPS_MAX = 8;
+
+    private static final int MATRICULE = 0;
+    private static final int NOM = 1;
+    private static final int PRENOM = 2;
+    private static final int DATE_EMBAUCHE = 3;
+    private static final int SALAIRE = 4;
+    private static final int CA_ANNUEL = 5;
+    private static final int PERFORMANCE = 6;
+    private static final int GRADE = 5;
+    private static final int MATRICULE_MANAGER = 6;
+
+    /** Puissances de 10 représentées exactement par un double */
+    private static final double[] PUISSANCES_10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /** Au-delà, une mantisse entière n'est plus représentée exactement par un double */
+    private static final long MANTISSE_MAX = 1L << 53;
+    private static final long ENTIER_INVALIDE = Long.MIN_VALUE;
+
+    /** Débuts des premiers champs de la ligne en cours, un tableau par thread pour ne pas allouer à chaque ligne */
+    private static final ThreadLocal<int[]> DEBUTS_CHAMPS = ThreadLocal.withInitial(() -> new int[NB_CHAMPS_MAX + 1]);
+
+    private final AnalyseurDate analyseurDate = new AnalyseurDate();
+
+    private StatistiquesImport statistiques = StatistiquesImport.INACTIVES;
+
+    @Autowired(required = false)
+    public void setStatistiques(StatistiquesImport statistiques) {
+        this.statistiques = statistiques;
+    }
+
+    @Override
+    public Employe traiter(String ligne) throws BatchException {
+        return analyser(ligne);
+    }
+
+    /**
+     * Regarde le premier caractère de la ligne et crée l'employé correspondant
+     * @param ligne la ligne à analyser
+     * @return l'employé créé à partir de la ligne. Un technicien porte un manager provisoire ne contenant que le
+     * matricule lu, à rattacher au vrai manager (voir {@link RegistreManagers})
+     * @throws BatchException si la ligne est incorrecte, avec le message de la première erreur rencontrée
+     */
+    public Employe analyser(CharSequence ligne) throws BatchException {
+        long debut = statistiques.debut();
+        try {
+            return analyserLigne(ligne);
+        } finally {
+            statistiques.mesurer(StatistiquesImport.Etape.ANALYSE, debut);
+        }
+    }
+
+    private Employe analyserLigne(CharSequence ligne) throws BatchException {
+        char type = ligne.length() == 0 ? ' ' : ligne.charAt(0);
+        if (type != 'T' && type != 'M' && type != 'C') {
+            throw new BatchException(CodeErreur.TYPE_INCONNU, "Type d'employé inconnu");
+        }
+        int[] debuts = DEBUTS_CHAMPS.get();
+        int nbChamps = decouper(ligne, debuts);
+        switch (type) {
+            case 'T':
+                return analyserTechnicien(ligne, debuts, nbChamps);
+            case 'M':
+                return analyserManager(ligne, debuts, nbChamps);
+            default:
+                return analyserCommercial(ligne, debuts, nbChamps);
+        }
+    }
+
+    private Commercial analyserCommercial(CharSequence ligne, int[] debuts, int nbChamps) throws BatchException {
+        if (nbChamps != NB_CHAMPS_COMMERCIAL) {
+            throw new BatchException(CodeErreur.NB_CHAMPS, "La ligne commercial ne contient pas 7 éléments mais " + nbChamps);
+        }
+        Commercial c = new Commercial();
+        c.setSalaire(analyserEmploye(ligne, debuts, c));
+
+        int debut = debuts[CA_ANNUEL];
+        int fin = fin(debuts, CA_ANNUEL);
+        if (!estMontant(ligne, debut, fin)) {
+            throw new BatchException(CodeErreur.CHIFFRE_AFFAIRE, "Le chiffre d'affaire du commercial est incorrect: " + champ(ligne, debuts, CA_ANNUEL));
+        }
+        c.setCaAnnuel(lireDecimal(ligne, debut, fin));
+
+        long performance = lireEntier(ligne, debuts[PERFORMANCE], fin(debuts, PERFORMANCE));
+        if (performance < 0 || !estChiffres(ligne, debuts[PERFORMANCE], fin(debuts, PERFORMANCE))) {
+            throw new BatchException(CodeErreur.PERFORMANCE, "La performance du commercial est incorrecte : " + champ(ligne, debuts, PERFORMANCE));
+        }
+        c.setPerformance((int) performance);
+        return c;
+    }
+
+    private Manager analyserManager(CharSequence ligne, int[] debuts, int nbChamps) throws BatchException {
+        if (nbChamps != NB_CHAMPS_MANAGER) {
+            throw new BatchException(CodeErreur.NB_CHAMPS, "La ligne manager ne contient pas 5 éléments mais " + nbChamps);
+        }
+        Manager m = new Manager();
+        m.setSalaire(analyserEmploye(ligne, debuts, m));
+        return m;
+    }
+
+    private Technicien analyserTechnicien(CharSequence ligne, int[] debuts, int nbChamps) throws BatchException {
+        if (nbChamps != NB_CHAMPS_TECHNICIEN) {
+            throw new BatchException(CodeErreur.NB_CHAMPS, "La ligne technicien ne contient pas 7 éléments mais " + nbChamps);
+        }
+        Technicien t = new Technicien();
+        double salaire = analyserEmploye(ligne, debuts, t);
+
+        long grade = lireEntier(ligne, debuts[GRADE], fin(debuts, GRADE));
+        if (grade == ENTIER_INVALIDE) {
+            throw new BatchException(CodeErreur.GRADE_FORMAT, champ(ligne, debuts, GRADE) + " n'est pas un format valide de grade");
+        }
+        try {
+            t.setGrade((int) grade);
+        } catch (TechnicienException e) {
+            throw new BatchException(CodeErreur.GRADE_VALEUR, "Le grade doit être compris entre 1 et 5");
+        }
+        //le salaire d'un technicien dépend de son grade, il ne peut être positionné qu'une fois le grade connu
+        t.setSalaire(salaire);
+
+        if (!estMatricule(ligne, debuts[MATRICULE_MANAGER], fin(debuts, MATRICULE_MANAGER), false)) {
+            throw new BatchException(CodeErreur.MATRICULE_MANAGER, "La chaîne " + champ(ligne, debuts, MATRICULE_MANAGER)
+                    + " ne respecte pas l'expression régulière " + REGEX_MATRICULE_MANAGER);
+        }
+        Manager manager = new Manager();
+        manager.setMatricule(champ(ligne, debuts, MATRICULE_MANAGER));
+        t.setManager(manager);
+        return t;
+    }
+
+    /**
+     * Vérifie les champs communs et les positionne sur l'employé, à l'exception du salaire qui est renvoyé à
+     * l'appelant (son calcul dépend du type d'employé)
+     */
+    private double analyserEmploye(CharSequence ligne, int[] debuts, Employe employe) throws BatchException {
+        if (!estMatricule(ligne, debuts[MATRICULE], fin(debuts, MATRICULE), true)) {
+            throw new BatchException(CodeErreur.MATRICULE, "La chaîne: " + champ(ligne, debuts, MATRICULE)
+                    + " ne respecte pas l'expression régulière " + REGEX_MATRICULE);
+        }
+
+        LocalDate dateEmbauche = analyseurDate.lire(ligne, debuts[DATE_EMBAUCHE], fin(debuts, DATE_EMBAUCHE));
+        if (dateEmbauche == null) {
+            throw new BatchException(CodeErreur.DATE, champ(ligne, debuts, DATE_EMBAUCHE) + " ne respecte pas le format de date "
+                    + AnalyseurDate.FORMAT);
+        }
+
+        double salaire = lireDecimal(ligne, debuts[SALAIRE], fin(debuts, SALAIRE));
+        if (Double.isNaN(salaire) && !estNaN(ligne, debuts[SALAIRE], fin(debuts, SALAIRE))) {
+            throw new BatchException(CodeErreur.SALAIRE, champ(ligne, debuts, SALAIRE) + " n'est pas un format valide de salaire");
+        }
+
+        employe.setMatricule(champ(ligne, debuts, MATRICULE));
+        employe.setNom(champ(ligne, debuts, NOM));
+        employe.setPrenom(champ(ligne, debuts, PRENOM));
+        employe.setDateEmbauche(dateEmbauche);
+        return salaire;
+    }
+
+    /**
+     * Repère le début des premiers champs de la ligne : debuts[k] est l'indice du premier caractère du champ k et
+     * debuts[k + 1] - 1 l'indice qui suit son dernier caractère.
+     * @return le nombre de champs au sens de String.split(","), c'est-à-dire sans les champs vides de fin de ligne
+     */
+    private static int decouper(CharSequence ligne, int[] debuts) {
+        int longueur = ligne.length();
+        int nbChamps = 1;
+        int nbChampsUtiles = 0;
+        debuts[0] = 0;
+        for (int i = 0; i < longueur; i++) {
+            if (ligne.charAt(i) == ',') {
+                if (nbChamps <= NB_CHAMPS_MAX) {
+                    debuts[nbChamps] = i + 1;
+                }
+                nbChamps++;
+            } else {
+                nbChampsUtiles = nbChamps;
+            }
+        }
+        if (nbChamps <= NB_CHAMPS_MAX) {
+            debuts[nbChamps] = longueur + 1;
+        }
+        return nbChampsUtiles;
+    }
+
+    private static int fin(int[] debuts, int champ) {
+        return debuts[champ + 1] - 1;
+    }
+
+    private static String champ(CharSequence ligne, int[] debuts, int champ) {
+        return ligne.subSequence(debuts[champ], fin(debuts, champ)).toString();
+    }
+
+    /**
+     * ^[MTC][0-9]{5}$ si tousTypes, ^M[0-9]{5}$ sinon
+     */
+    private static boolean estMatricule(CharSequence ligne, int debut, int fin, boolean tousTypes) {
+        if (fin - debut != LONGUEUR_MATRICULE) {
+            return false;
+        }
+        char type = ligne.charAt(debut);
+        if (type != 'M' && !(tousTypes && (type == 'T' || type == 'C'))) {
+            return false;
+        }
+        return estChiffres(ligne, debut + 1, fin);
+    }
+
+    /**
+     * [0-9]+
+     */
+    private static boolean estChiffres(CharSequence ligne, int debut, int fin) {
+        if (debut >= fin) {
+            return false;
+        }
+        for (int i = debut; i < fin; i++) {
+            if (!estChiffre(ligne.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ^[0-9]+(\.[0-9]{1,2})?$
+     */
+    private static boolean estMontant(CharSequence ligne, int debut, int fin) {
+        int i = debut;
+        while (i < fin && estChiffre(ligne.charAt(i))) {
+            i++;
+        }
+        if (i == debut) {
+            return false;
+        }
+        if (i == fin) {
+            return true;
+        }
+        int nbDecimales = fin - i - 1;
+        return ligne.charAt(i) == '.' && nbDecimales >= 1 && nbDecimales <= 2 && estChiffres(ligne, i + 1, fin);
+    }
+
+    private static boolean estChiffre(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean estNaN(CharSequence ligne, int debut, int fin) {
+        return ligne.subSequence(debut, fin).toString().trim().matches("[+-]?NaN[fFdD]?");
+    }
+
+    /**
+     * Lit un entier comme Integer.parseInt, sans exception
+     * @return la valeur lue ou ENTIER_INVALIDE si le champ n'est pas un int valide
+     */
+    private static long lireEntier(CharSequence ligne, int debut, int fin) {
+        int i = debut;
+        boolean negatif = false;
+        if (i < fin && (ligne.charAt(i) == '-' || ligne.charAt(i) == '+')) {
+            negatif = ligne.charAt(i) == '-';
+            i++;
+        }
+        if (i == fin) {
+            return ENTIER_INVALIDE;
+        }
+        long valeur = 0;
+        for (; i < fin; i++) {
+            char c = ligne.charAt(i);
+            if (!estChiffre(c)) {
+                return ENTIER_INVALIDE;
+            }
+            valeur = valeur * 10 + (c - '0');
+            if (valeur > (long) Integer.MAX_VALUE + 1) {
+                return ENTIER_INVALIDE;
+            }
+        }
+        valeur = negatif ? -valeur : valeur;
+        return valeur > Integer.MAX_VALUE ? ENTIER_INVALIDE : valeur;
+    }
+
+    /**
+     * Lit un nombre décimal avec le même résultat que Double.parseDouble. Le cas courant [+-]chiffres[.chiffres] est
+     * lu directement : tant que la mantisse tient sur 53 bits et que la puissance de 10 est exacte, la division est
+     * arrondie correctement et donne le même double que parseDouble. Les autres écritures (exposant, espaces...)
+     * passent par parseDouble.
+     * @return la valeur lue, ou NaN si le champ n'est pas un nombre (voir estNaN pour distinguer un NaN écrit en clair)
+     */
+    private static double lireDecimal(CharSequence ligne, int debut, int fin) {
+        int i = debut;
+        boolean negatif = false;
+        if (i < fin && (ligne.charAt(i) == '-' || ligne.charAt(i) == '+')) {
+            negatif = ligne.charAt(i) == '-';
+            i++;
+        }
+        long mantisse = 0;
+        int nbChiffres = 0;
+        int nbDecimales = 0;
+        boolean point = false;
+        for (; i < fin; i++) {
+            char c = ligne.charAt(i);
+            if (estChiffre(c) && mantisse < MANTISSE_MAX) {
+                mantisse = mantisse * 10 + (c - '0');
+                nbChiffres++;
+                if (point) {
+                    nbDecimales++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (i == fin && nbChiffres > 0 && mantisse < MANTISSE_MAX && nbDecimales < PUISSANCES_10.length) {
+            double valeur = mantisse / PUISSANCES_10[nbDecimales];
+            return negatif ? -valeur : valeur;
+        }
+        return lireDecimalLent(ligne.subSequence(debut, fin).toString());
+    }
+
+    private static double lireDecimalLent(String texte) {
+        boolean chiffre = false;
+        for (int i = 0; i < texte.length() && !chiffre; i++) {
+            chiffre = estChiffre(texte.charAt(i));
+        }
+        if (!chiffre && !texte.contains("Infinity")) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(texte);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Destination d'import qui enregistre les employés validés avec l'outil de chargement en masse de la base de données,
+ * bien plus rapide que des INSERT JPA sur les quatre tables de la hiérarchie Employe.
+ *
+ * Chaque employé reçoit un identifiant réservé par blocs dans employe_seq, selon le même protocole que le générateur
+ * pooled-lo d'Hibernate (voir Employe.id), puis ses lignes sont écrites dans un fichier intermédiaire par table
+ * (Employe, Manager, Commercial, Technicien). {@link #terminer()} charge ces fichiers dans une seule transaction, puis
+ * renseigne la clé étrangère manager_id des techniciens en une requête ensembliste : le matricule du manager de chaque
+ * technicien est chargé dans une table temporaire et joint aux managers en base, qu'ils viennent du fichier ou d'un
+ * import précédent. {@link #close()} sans {@link #terminer()}, par exemple quand la lecture du fichier a échoué en
+ * cours de route, abandonne le chargement : rien n'est écrit en base.
+ *
+ * Les fichiers intermédiaires sont au format CSV : chaînes entre guillemets (guillemets doublés), valeur nulle écrite
+ * NULL sans guillemets, dates au format ISO. Les sous-classes fournissent l'instruction de chargement propre à la base.
+ */
+public abstract class ChargementNatif implements Consumer<Employe>, AutoCloseable {
+
+    protected static final String TABLE_RATTACHEMENT = "ChargementRattachement";
+
+    protected static final String[] COLONNES_EMPLOYE = {"id", "nom", "prenom", "matricule", "dateEmbauche", "salaire"};
+    protected static final String[] COLONNES_MANAGER = {"id"};
+    protected static final String[] COLONNES_COMMERCIAL = {"id", "caAnnuel", "performance"};
+    protected static final String[] COLONNES_TECHNICIEN = {"id", "grade"};
+    protected static final String[] COLONNES_RATTACHEMENT = {"id", "matriculeManager"};
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    protected final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int tailleBloc;
+
+    private final Path dossier;
+
+    private final Writer employes;
+    private final Writer managers;
+    private final Writer commerciaux;
+    private final Writer techniciens;
+    private final Writer rattachements;
+
+    private final StringBuilder ligne = new StringBuilder(128);
+
+    private long prochainId = 0;
+
+    private long finBloc = 0;
+
+    private long nbEmployes = 0;
+
+    private boolean ferme = false;
+
+    private StatistiquesImport statistiques = StatistiquesImport.INACTIVES;
+
+    /**
+     * @param jdbcTemplate l'accès JDBC à la base
+     * @param transactionTemplate le template utilisé pour la réservation des identifiants et pour le chargement
+     * @param dossier le dossier où créer les fichiers intermédiaires
+     * @param tailleBloc le nombre d'identifiants réservés à la fois dans employe_seq
+     * @throws IOException si les fichiers intermédiaires ne peuvent pas être créés
+     */
+    protected ChargementNatif(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Path dossier,
+                              int tailleBloc) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tailleBloc = tailleBloc;
+        this.dossier = Files.createTempDirectory(dossier, "chargement");
+        this.employes = fichier("Employe");
+        this.managers = fichier("Manager");
+        this.commerciaux = fichier("Commercial");
+        this.techniciens = fichier("Technicien");
+        this.rattachements = fichier(TABLE_RATTACHEMENT);
+    }
+
+    /**
+     * Crée le chargement adapté à la base de données de l'accès JDBC : H2, sinon MySQL
+     * @see #ChargementNatif(JdbcTemplate, TransactionTemplate, Path, int)
+     */
+    public static ChargementNatif pour(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Path dossier,
+                                       int tailleBloc) throws IOException {
+        String base = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if ("H2".equals(base)) {
+            return new ChargementNatifH2(jdbcTemplate, transactionTemplate, dossier, tailleBloc);
+        }
+        return new ChargementNatifMySql(jdbcTemplate, transactionTemplate, dossier, tailleBloc);
+    }
+
+    /**
+     * Charge un fichier intermédiaire dans une table
+     * @param table la table
+     * @param colonnes les colonnes, dans l'ordre du fichier
+     * @param fichier le fichier intermédiaire
+     * @return le nombre de lignes chargées
+     */
+    protected abstract int charger(String table, String[] colonnes, Path fichier);
+
+    /**
+     * Crée la table temporaire des matricules de managers, propre à la connexion de la transaction de chargement
+     */
+    protected abstract void creerTableRattachement();
+
+    /**
+     * Supprime la table temporaire des matricules de managers en fin de chargement
+     */
+    protected void supprimerTableRattachement() {
+        jdbcTemplate.execute("DROP TABLE " + TABLE_RATTACHEMENT);
+    }
+
+    /**
+     * Renseigne le manager des techniciens chargés à partir de la table temporaire des rattachements
+     * @return le nombre de techniciens rattachés
+     */
+    protected int rattacherManagers() {
+        return jdbcTemplate.update("UPDATE Technicien SET manager_id = ("
+                + "SELECT MAX(m.id) FROM " + TABLE_RATTACHEMENT + " r JOIN Employe e ON e.matricule = r.matriculeManager "
+                + "JOIN Manager m ON m.id = e.id WHERE r.id = Technicien.id) "
+                + "WHERE id IN (SELECT id FROM " + TABLE_RATTACHEMENT + ")");
+    }
+
+    @Override
+    public void accept(Employe employe) {
+        employe.setId(allouerId());
+        try {
+            debut(employe.getId());
+            chaine(employe.getNom());
+            chaine(employe.getPrenom());
+            chaine(employe.getMatricule());
+            date(employe.getDateEmbauche());
+            valeur(employe.getSalaire());
+            ecrire(employes);
+            if (employe instanceof Manager) {
+                debut(employe.getId());
+                ecrire(managers);
+            } else if (employe instanceof Commercial) {
+                debut(employe.getId());
+                valeur(((Commercial) employe).getCaAnnuel());
+                valeur(((Commercial) employe).getPerformance());
+                ecrire(commerciaux);
+            } else if (employe instanceof Technicien) {
+                Technicien technicien = (Technicien) employe;
+                debut(employe.getId());
+                valeur(technicien.getGrade());
+                ecrire(techniciens);
+                if (technicien.getManager() != null) {
+                    debut(employe.getId());
+                    chaine(technicien.getManager().getMatricule());
+                    ecrire(rattachements);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nbEmployes++;
+    }
+
+    /**
+     * Charge les fichiers intermédiaires en base dans une seule transaction, rattache les techniciens à leur manager
+     * puis supprime les fichiers. À appeler une fois tous les employés transmis.
+     * @throws IllegalStateException si le chargement est déjà terminé ou abandonné
+     */
+    public void terminer() {
+        if (ferme) {
+            throw new IllegalStateException("Chargement déjà terminé ou abandonné");
+        }
+        ferme = true;
+        try {
+            fermerFichiers();
+            long debut = statistiques.debut();
+            int nbRattaches = transactionTemplate.execute(status -> {
+                charger("Employe", COLONNES_EMPLOYE, dossier.resolve("Employe.csv"));
+                charger("Manager", COLONNES_MANAGER, dossier.resolve("Manager.csv"));
+                charger("Commercial", COLONNES_COMMERCIAL, dossier.resolve("Commercial.csv"));
+                charger("Technicien", COLONNES_TECHNICIEN, dossier.resolve("Technicien.csv"));
+                creerTableRattachement();
+                int nbRattachements = charger(TABLE_RATTACHEMENT, COLONNES_RATTACHEMENT,
+                        dossier.resolve(TABLE_RATTACHEMENT + ".csv"));
+                int rattaches = rattacherManagers();
+                supprimerTableRattachement();
+                if (rattaches != nbRattachements) {
+                    logger.warn((nbRattachements - rattaches) + " techniciens n'ont pas pu être rattachés à leur manager");
+                }
+                return rattaches;
+            });
+            statistiques.mesurer(StatistiquesImport.Etape.PERSISTANCE, debut);
+            statistiques.enregistres(nbEmployes);
+            logger.info(nbEmployes + " employés chargés en masse, " + nbRattaches + " techniciens rattachés à leur manager");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            supprimerFichiers();
+        }
+    }
+
+    /**
+     * Abandonne le chargement s'il n'a pas été terminé : les fichiers intermédiaires sont supprimés sans être chargés.
+     * Les identifiants déjà réservés dans employe_seq restent inutilisés.
+     */
+    @Override
+    public void close() {
+        if (ferme) {
+            return;
+        }
+        ferme = true;
+        try {
+            fermerFichiers();
+        } catch (IOException e) {
+            logger.warn("Impossible de fermer les fichiers de chargement de " + dossier + " : " + e.getMessage());
+        } finally {
+            supprimerFichiers();
+        }
+        logger.warn("Chargement abandonné : " + nbEmployes + " employés lus n'ont pas été chargés");
+    }
+
+    public long getNbEmployes() {
+        return nbEmployes;
+    }
+
+    public void setStatistiques(StatistiquesImport statistiques) {
+        this.statistiques = statistiques;
+    }
+
+    /**
+     * Réserve un bloc d'identifiants comme le générateur pooled-lo : next_val est le premier identifiant du bloc et
+     * devient le premier identifiant libre après le bloc
+     */
+    private long allouerId() {
+        if (prochainId == finBloc) {
+            transactionTemplate.execute(status -> {
+                Long debut = jdbcTemplate.queryForObject("SELECT next_val FROM employe_seq FOR UPDATE", Long.class);
+                jdbcTemplate.update("UPDATE employe_seq SET next_val = ?", debut + tailleBloc);
+                prochainId = debut;
+                finBloc = debut + tailleBloc;
+                return null;
+            });
+        }
+        return prochainId++;
+    }
+
+    private void fermerFichiers() throws IOException {
+        for (Writer writer : new Writer[]{employes, managers, commerciaux, techniciens, rattachements}) {
+            writer.close();
+        }
+    }
+
+    private Writer fichier(String table) throws IOException {
+        return Files.newBufferedWriter(dossier.resolve(table + ".csv"), StandardCharsets.UTF_8);
+    }
+
+    private void supprimerFichiers() {
+        try {
+            for (String table : new String[]{"Employe", "Manager", "Commercial", "Technicien", TABLE_RATTACHEMENT}) {
+                Files.deleteIfExists(dossier.resolve(table + ".csv"));
+            }
+            Files.deleteIfExists(dossier);
+        } catch (IOException e) {
+            logger.warn("Impossible de supprimer les fichiers de chargement de " + dossier + " : " + e.getMessage());
+        }
+    }
+
+    private void debut(long id) {
+        ligne.setLength(0);
+        ligne.append(id);
+    }
+
+    private void chaine(String valeur) {
+        ligne.append(',');
+        if (valeur == null) {
+            ligne.append("NULL");
+            return;
+        }
+        ligne.append('"');
+        for (int i = 0; i < valeur.length(); i++) {
+            char c = valeur.charAt(i);
+            if (c == '"') {
+                ligne.append('"');
+            }
+            ligne.append(c);
+        }
+        ligne.append('"');
+    }
+
+    private void date(LocalDate date) {
+        ligne.append(',');
+        if (date == null) {
+            ligne.append("NULL");
+            return;
+        }
+        ligne.append(date.getYear()).append('-');
+        if (date.getMonthOfYear() < 10) {
+            ligne.append('0');
+        }
+        ligne.append(date.getMonthOfYear()).append('-');
+        if (date.getDayOfMonth() < 10) {
+            ligne.append('0');
+        }
+        ligne.append(date.getDayOfMonth());
+    }
+
+    private void valeur(Object valeur) {
+        ligne.append(',').append(valeur == null ? "NULL" : valeur);
+    }
+
+    private void ecrire(Writer writer) throws IOException {
+        ligne.append('\n');
+        writer.append(ligne);
+    }
+
+    /**
+     * Chemin absolu d'un fichier intermédiaire, en chaîne SQL
+     */
+    protected static String litteral(Path fichier) {
+        return "'" + fichier.toAbsolutePath().toString().replace("\\", "/").replace("'", "''") + "'";
+    }
+}
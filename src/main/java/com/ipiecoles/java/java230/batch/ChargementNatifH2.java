@@ -0,0 +1,33 @@
+package com.ipiecoles.java.java230.batch;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Chargement en masse H2 par INSERT ... SELECT FROM CSVREAD, pour les tests et les bases locales
+ */
+public class ChargementNatifH2 extends ChargementNatif {
+
+    public ChargementNatifH2(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Path dossier,
+                             int tailleBloc) throws IOException {
+        super(jdbcTemplate, transactionTemplate, dossier, tailleBloc);
+    }
+
+    @Override
+    protected int charger(String table, String[] colonnes, Path fichier) {
+        //les colonnes étant données, le fichier n'a pas de ligne d'en-tête
+        String liste = String.join(", ", colonnes);
+        return jdbcTemplate.update("INSERT INTO " + table + " (" + liste + ") SELECT * FROM CSVREAD(" + litteral(fichier)
+                + ", '" + String.join(",", colonnes).toUpperCase() + "', 'charset=UTF-8 fieldSeparator=, nullString=NULL')");
+    }
+
+    @Override
+    protected void creerTableRattachement() {
+        //TRANSACTIONAL : la création ne valide pas la transaction en cours
+        jdbcTemplate.execute("CREATE LOCAL TEMPORARY TABLE " + TABLE_RATTACHEMENT
+                + " (id BIGINT NOT NULL PRIMARY KEY, matriculeManager VARCHAR(255)) TRANSACTIONAL");
+    }
+}
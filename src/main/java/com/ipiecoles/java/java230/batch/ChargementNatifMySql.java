@@ -0,0 +1,50 @@
+package com.ipiecoles.java.java230.batch;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Chargement en masse MySQL par LOAD DATA LOCAL INFILE. Le driver doit autoriser les fichiers locaux
+ * (allowLoadLocalInfile=true, valeur par défaut du connecteur 5.1) et le serveur doit avoir local_infile activé.
+ */
+public class ChargementNatifMySql extends ChargementNatif {
+
+    public ChargementNatifMySql(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Path dossier,
+                                int tailleBloc) throws IOException {
+        super(jdbcTemplate, transactionTemplate, dossier, tailleBloc);
+    }
+
+    @Override
+    protected int charger(String table, String[] colonnes, Path fichier) {
+        //sans caractère d'échappement, les guillemets doublés d'une chaîne entre guillemets en font partie et le mot
+        //NULL sans guillemets est lu comme une valeur nulle
+        return jdbcTemplate.update("LOAD DATA LOCAL INFILE " + litteral(fichier) + " INTO TABLE " + table
+                + " CHARACTER SET utf8 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''"
+                + " LINES TERMINATED BY '\\n' (" + String.join(", ", colonnes) + ")");
+    }
+
+    @Override
+    protected void creerTableRattachement() {
+        //une table temporaire ne valide pas la transaction en cours, contrairement à CREATE TABLE
+        jdbcTemplate.execute("CREATE TEMPORARY TABLE " + TABLE_RATTACHEMENT
+                + " (id BIGINT NOT NULL PRIMARY KEY, matriculeManager VARCHAR(255), INDEX (matriculeManager))");
+    }
+
+    @Override
+    protected void supprimerTableRattachement() {
+        jdbcTemplate.execute("DROP TEMPORARY TABLE " + TABLE_RATTACHEMENT);
+    }
+
+    /**
+     * Jointure multi-tables, qui peut parcourir les managers une seule fois au lieu d'une sous-requête par technicien
+     */
+    @Override
+    protected int rattacherManagers() {
+        return jdbcTemplate.update("UPDATE Technicien t JOIN " + TABLE_RATTACHEMENT + " r ON r.id = t.id "
+                + "JOIN Employe e ON e.matricule = r.matriculeManager JOIN Manager m ON m.id = e.id "
+                + "SET t.manager_id = m.id");
+    }
+}
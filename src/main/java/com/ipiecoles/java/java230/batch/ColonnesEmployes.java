@@ -0,0 +1,436 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import com.ipiecoles.java.java230.repository.EmployeRepository;
+import org.joda.time.LocalDate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Copie en lecture seule de tout le personnel, rangée par colonnes de types primitifs, pour les calculs en mémoire
+ * (sommes, filtres, regroupements) sur des millions d'employés.
+ *
+ * Une liste d'entités coûte plus de 150 octets par employé avant les chaînes (en-têtes d'objets, Double, Integer et
+ * LocalDate). Ici un employé occupe une cinquantaine d'octets : salaire et chiffre d'affaires en double, date
+ * d'embauche en jours depuis le 01/01/1970, type et grade en octets, noms et prénoms codés par un dictionnaire commun,
+ * matricules mis bout à bout dans un seul tableau de caractères et manager désigné par son numéro de ligne.
+ *
+ * Les employés sont désignés par leur numéro de ligne, de 0 à {@link #getTaille()} - 1. Les valeurs absentes valent
+ * NaN (salaire, chiffre d'affaires), {@link #SANS_DATE}, 0 (grade), -1 (nom, prénom, manager) et chaîne vide
+ * (matricule).
+ */
+public class ColonnesEmployes {
+
+    public static final byte MANAGER = 1;
+    public static final byte COMMERCIAL = 2;
+    public static final byte TECHNICIEN = 3;
+
+    public static final int SANS_DATE = Integer.MIN_VALUE;
+
+    private final int taille;
+    private final byte[] types;
+    private final double[] salaires;
+    private final int[] datesEmbauche;
+    private final byte[] grades;
+    private final double[] caAnnuels;
+    private final int[] noms;
+    private final int[] prenoms;
+    private final int[] managers;
+    private final char[] matricules;
+    private final int[] debutsMatricules;
+    private final String[] dictionnaire;
+
+    private ColonnesEmployes(Constructeur c, int[] managers) {
+        this.taille = c.taille;
+        this.types = Arrays.copyOf(c.types, taille);
+        this.salaires = Arrays.copyOf(c.salaires, taille);
+        this.datesEmbauche = Arrays.copyOf(c.datesEmbauche, taille);
+        this.grades = Arrays.copyOf(c.grades, taille);
+        this.caAnnuels = Arrays.copyOf(c.caAnnuels, taille);
+        this.noms = Arrays.copyOf(c.noms, taille);
+        this.prenoms = Arrays.copyOf(c.prenoms, taille);
+        this.managers = managers;
+        this.matricules = Arrays.copyOf(c.matricules, c.debutsMatricules[taille]);
+        this.debutsMatricules = Arrays.copyOf(c.debutsMatricules, taille + 1);
+        this.dictionnaire = c.dictionnaire.keySet().toArray(new String[0]);
+        for (Map.Entry<String, Integer> mot : c.dictionnaire.entrySet()) {
+            dictionnaire[mot.getValue()] = mot.getKey();
+        }
+    }
+
+    /**
+     * Charge tout le personnel par pages, dans l'ordre des identifiants. Seules les colonnes utiles sont lues, sans
+     * charger les entités, et chaque page repart du dernier identifiant lu (ni OFFSET ni comptage des lignes)
+     * @param employeRepository le repository des employés
+     * @param taillePage le nombre d'employés lus par requête
+     */
+    public static ColonnesEmployes charger(EmployeRepository employeRepository, int taillePage) {
+        Constructeur constructeur = new Constructeur((int) Math.min(employeRepository.count(), Integer.MAX_VALUE));
+        Slice<Object[]> page;
+        Long dernier = Long.MIN_VALUE;
+        do {
+            page = employeRepository.findColonnesApres(dernier, new PageRequest(0, taillePage));
+            for (Object[] ligne : page) {
+                constructeur.ajouter(type((Class<?>) ligne[1]), (String) ligne[2], (String) ligne[3],
+                        (String) ligne[4], (LocalDate) ligne[5], (Double) ligne[6], (Integer) ligne[7],
+                        (Double) ligne[8], (String) ligne[9]);
+                dernier = (Long) ligne[0];
+            }
+        } while (page.hasNext());
+        return constructeur.construire();
+    }
+
+    /**
+     * @return MANAGER, COMMERCIAL ou TECHNICIEN selon la classe de l'employé
+     */
+    public static byte type(Class<?> classe) {
+        if (Manager.class.isAssignableFrom(classe)) {
+            return MANAGER;
+        }
+        if (Commercial.class.isAssignableFrom(classe)) {
+            return COMMERCIAL;
+        }
+        if (Technicien.class.isAssignableFrom(classe)) {
+            return TECHNICIEN;
+        }
+        throw new IllegalArgumentException("Type d'employé inconnu : " + classe);
+    }
+
+    public int getTaille() {
+        return taille;
+    }
+
+    public byte getType(int i) {
+        return types[i];
+    }
+
+    public double getSalaire(int i) {
+        return salaires[i];
+    }
+
+    /**
+     * @return la date d'embauche en jours depuis le 01/01/1970, ou {@link #SANS_DATE}
+     */
+    public int getDateEmbauche(int i) {
+        return datesEmbauche[i];
+    }
+
+    public byte getGrade(int i) {
+        return grades[i];
+    }
+
+    public double getCaAnnuel(int i) {
+        return caAnnuels[i];
+    }
+
+    public String getNom(int i) {
+        return noms[i] < 0 ? null : dictionnaire[noms[i]];
+    }
+
+    public String getPrenom(int i) {
+        return prenoms[i] < 0 ? null : dictionnaire[prenoms[i]];
+    }
+
+    /**
+     * @return le code du nom dans le dictionnaire, -1 si le nom est absent
+     */
+    public int getCodeNom(int i) {
+        return noms[i];
+    }
+
+    /**
+     * @return la ligne du manager d'un technicien, -1 s'il n'en a pas
+     */
+    public int getManager(int i) {
+        return managers[i];
+    }
+
+    public String getMatricule(int i) {
+        return new String(matricules, debutsMatricules[i], debutsMatricules[i + 1] - debutsMatricules[i]);
+    }
+
+    /**
+     * @param mot un nom ou un prénom
+     * @return son code dans le dictionnaire, -1 si aucun employé ne le porte
+     */
+    public int coder(String mot) {
+        for (int code = 0; code < dictionnaire.length; code++) {
+            if (dictionnaire[code].equals(mot)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return les lignes des employés retenus par le filtre, dans l'ordre
+     */
+    public int[] filtrer(IntPredicate filtre) {
+        int[] lignes = new int[taille];
+        int nb = 0;
+        for (int i = 0; i < taille; i++) {
+            if (filtre.test(i)) {
+                lignes[nb++] = i;
+            }
+        }
+        return Arrays.copyOf(lignes, nb);
+    }
+
+    public int compter(IntPredicate filtre) {
+        int nb = 0;
+        for (int i = 0; i < taille; i++) {
+            if (filtre.test(i)) {
+                nb++;
+            }
+        }
+        return nb;
+    }
+
+    /**
+     * @return la somme des salaires des employés retenus par le filtre, salaires absents ignorés
+     */
+    public double sommeSalaires(IntPredicate filtre) {
+        double somme = 0;
+        for (int i = 0; i < taille; i++) {
+            if (filtre.test(i) && !Double.isNaN(salaires[i])) {
+                somme += salaires[i];
+            }
+        }
+        return somme;
+    }
+
+    /**
+     * Somme d'une valeur par groupe. Les employés dont le groupe est négatif ou dont la valeur vaut NaN sont ignorés.
+     * @param groupe le numéro de groupe d'une ligne, de 0 à nbGroupes - 1
+     * @param nbGroupes le nombre de groupes
+     * @param valeur la valeur sommée
+     * @param filtre les lignes à prendre en compte
+     */
+    public double[] sommeParGroupe(IntUnaryOperator groupe, int nbGroupes, IntToDoubleFunction valeur,
+                                   IntPredicate filtre) {
+        double[] sommes = new double[nbGroupes];
+        for (int i = 0; i < taille; i++) {
+            int g = groupe.applyAsInt(i);
+            if (g >= 0 && filtre.test(i)) {
+                double v = valeur.applyAsDouble(i);
+                if (!Double.isNaN(v)) {
+                    sommes[g] += v;
+                }
+            }
+        }
+        return sommes;
+    }
+
+    /**
+     * Nombre d'employés par groupe, les employés dont le groupe est négatif étant ignorés
+     * @see #sommeParGroupe(IntUnaryOperator, int, IntToDoubleFunction, IntPredicate)
+     */
+    public int[] compterParGroupe(IntUnaryOperator groupe, int nbGroupes, IntPredicate filtre) {
+        int[] nb = new int[nbGroupes];
+        for (int i = 0; i < taille; i++) {
+            int g = groupe.applyAsInt(i);
+            if (g >= 0 && filtre.test(i)) {
+                nb[g]++;
+            }
+        }
+        return nb;
+    }
+
+    /**
+     * @return la somme des salaires par type, indicée par MANAGER, COMMERCIAL et TECHNICIEN
+     */
+    public double[] sommeSalairesParType(IntPredicate filtre) {
+        return sommeParGroupe(i -> types[i], TECHNICIEN + 1, i -> salaires[i], filtre);
+    }
+
+    /**
+     * @return la somme des salaires des techniciens par grade, de 1 à 5 (indice 0 : techniciens sans grade)
+     */
+    public double[] sommeSalairesParGrade(IntPredicate filtre) {
+        return sommeParGroupe(i -> types[i] == TECHNICIEN ? grades[i] : -1, 6, i -> salaires[i], filtre);
+    }
+
+    /**
+     * @return pour chaque ligne de manager, la somme des salaires de ses techniciens
+     */
+    public double[] sommeSalairesParManager(IntPredicate filtre) {
+        return sommeParGroupe(i -> managers[i], taille, i -> salaires[i], filtre);
+    }
+
+    /**
+     * Filtre des employés d'un type
+     */
+    public IntPredicate type(byte type) {
+        return i -> types[i] == type;
+    }
+
+    /**
+     * Filtre des employés embauchés strictement avant une date
+     */
+    public IntPredicate embaucheAvant(LocalDate date) {
+        int jour = AnalyseurDate.jour(date);
+        return i -> datesEmbauche[i] != SANS_DATE && datesEmbauche[i] < jour;
+    }
+
+    /**
+     * Filtre des employés dont le salaire est au moins égal à un montant
+     */
+    public IntPredicate salaireMinimum(double salaire) {
+        return i -> salaires[i] >= salaire;
+    }
+
+    /**
+     * Filtre des employés portant un nom, comparé par son code sans relire les chaînes
+     */
+    public IntPredicate nom(String nom) {
+        int code = coder(nom);
+        return i -> code >= 0 && noms[i] == code;
+    }
+
+    /**
+     * Construction des colonnes, un employé à la fois
+     */
+    public static class Constructeur implements Consumer<Employe> {
+
+        private int taille = 0;
+        private byte[] types;
+        private double[] salaires;
+        private int[] datesEmbauche;
+        private byte[] grades;
+        private double[] caAnnuels;
+        private int[] noms;
+        private int[] prenoms;
+        private String[] matriculesManagers;
+        private char[] matricules;
+        private int[] debutsMatricules;
+        private final Map<String, Integer> dictionnaire = new HashMap<>();
+
+        /**
+         * @param capacite le nombre d'employés attendu
+         */
+        public Constructeur(int capacite) {
+            capacite = Math.max(capacite, 16);
+            types = new byte[capacite];
+            salaires = new double[capacite];
+            datesEmbauche = new int[capacite];
+            grades = new byte[capacite];
+            caAnnuels = new double[capacite];
+            noms = new int[capacite];
+            prenoms = new int[capacite];
+            matriculesManagers = new String[capacite];
+            matricules = new char[capacite * 6];
+            debutsMatricules = new int[capacite + 1];
+        }
+
+        @Override
+        public void accept(Employe employe) {
+            Double caAnnuel = null;
+            Integer grade = null;
+            String matriculeManager = null;
+            if (employe instanceof Commercial) {
+                caAnnuel = ((Commercial) employe).getCaAnnuel();
+            } else if (employe instanceof Technicien) {
+                Technicien technicien = (Technicien) employe;
+                grade = technicien.getGrade();
+                matriculeManager = technicien.getManager() == null ? null : technicien.getManager().getMatricule();
+            }
+            ajouter(type(employe.getClass()), employe.getNom(), employe.getPrenom(), employe.getMatricule(),
+                    employe.getDateEmbauche(), employe.getSalaire(), grade, caAnnuel, matriculeManager);
+        }
+
+        /**
+         * Ajoute un employé à partir de ses valeurs
+         * @param type MANAGER, COMMERCIAL ou TECHNICIEN
+         * @param grade le grade d'un technicien, null sinon
+         * @param caAnnuel le chiffre d'affaires annuel d'un commercial, null sinon
+         * @param matriculeManager le matricule du manager d'un technicien, null sinon
+         */
+        public void ajouter(byte type, String nom, String prenom, String matricule, LocalDate dateEmbauche,
+                            Double salaire, Integer grade, Double caAnnuel, String matriculeManager) {
+            if (taille == types.length) {
+                agrandir();
+            }
+            int i = taille;
+            types[i] = type;
+            salaires[i] = salaire == null ? Double.NaN : salaire;
+            datesEmbauche[i] = dateEmbauche == null ? SANS_DATE : AnalyseurDate.jour(dateEmbauche);
+            noms[i] = coder(nom);
+            prenoms[i] = coder(prenom);
+            grades[i] = grade == null ? 0 : grade.byteValue();
+            caAnnuels[i] = caAnnuel == null ? Double.NaN : caAnnuel;
+            matriculesManagers[i] = matriculeManager;
+            ajouterMatricule(matricule);
+            taille++;
+        }
+
+        /**
+         * @return les colonnes, techniciens rattachés à la ligne de leur manager
+         */
+        public ColonnesEmployes construire() {
+            Map<String, Integer> lignesManagers = new HashMap<>();
+            for (int i = 0; i < taille; i++) {
+                if (types[i] == MANAGER) {
+                    lignesManagers.put(matricule(i), i);
+                }
+            }
+            int[] managers = new int[taille];
+            for (int i = 0; i < taille; i++) {
+                Integer ligne = matriculesManagers[i] == null ? null : lignesManagers.get(matriculesManagers[i]);
+                managers[i] = ligne == null ? -1 : ligne;
+            }
+            return new ColonnesEmployes(this, managers);
+        }
+
+        private int coder(String mot) {
+            if (mot == null) {
+                return -1;
+            }
+            Integer code = dictionnaire.get(mot);
+            if (code == null) {
+                code = dictionnaire.size();
+                dictionnaire.put(mot, code);
+            }
+            return code;
+        }
+
+        private void ajouterMatricule(String matricule) {
+            int debut = debutsMatricules[taille];
+            int fin = debut + (matricule == null ? 0 : matricule.length());
+            if (fin > matricules.length) {
+                matricules = Arrays.copyOf(matricules, Math.max(fin, matricules.length * 2));
+            }
+            if (matricule != null) {
+                matricule.getChars(0, matricule.length(), matricules, debut);
+            }
+            debutsMatricules[taille + 1] = fin;
+        }
+
+        private String matricule(int i) {
+            return new String(matricules, debutsMatricules[i], debutsMatricules[i + 1] - debutsMatricules[i]);
+        }
+
+        private void agrandir() {
+            int capacite = types.length * 2;
+            types = Arrays.copyOf(types, capacite);
+            salaires = Arrays.copyOf(salaires, capacite);
+            datesEmbauche = Arrays.copyOf(datesEmbauche, capacite);
+            grades = Arrays.copyOf(grades, capacite);
+            caAnnuels = Arrays.copyOf(caAnnuels, capacite);
+            noms = Arrays.copyOf(noms, capacite);
+            prenoms = Arrays.copyOf(prenoms, capacite);
+            matriculesManagers = Arrays.copyOf(matriculesManagers, capacite);
+            debutsMatricules = Arrays.copyOf(debutsMatricules, capacite + 1);
+        }
+    }
+}
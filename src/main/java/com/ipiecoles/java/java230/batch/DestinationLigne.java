@@ -0,0 +1,11 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Employe;
+
+/**
+ * Destination des employés valides d'un import, appelée dans l'ordre du fichier avec la ligne d'origine.
+ */
+@FunctionalInterface
+public interface DestinationLigne {
+    void accepter(long numLigne, String ligne, Employe employe);
+}
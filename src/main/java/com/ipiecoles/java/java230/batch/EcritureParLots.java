@@ -0,0 +1,149 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Employe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Destination d'import qui enregistre les employés en base par lots. Chaque lot est écrit dans sa propre
+ * transaction : les entités sont persistées, le contexte de persistance est vidé en base (les INSERT partent en
+ * batch JDBC, regroupés par table grâce à hibernate.order_inserts) puis nettoyé, ce qui borne la mémoire utilisée
+ * quelle que soit la taille du fichier.
+ *
+ * {@link #close()} doit être appelé en fin d'import pour écrire le dernier lot incomplet.
+ */
+public class EcritureParLots implements Consumer<Employe>, AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int tailleLot;
+
+    private final BiConsumer<EntityManager, Employe> ecriture;
+
+    private final List<Employe> lot;
+
+    private final long debut = System.nanoTime();
+
+    private long nbLots = 0;
+
+    private long nbEnregistres = 0;
+
+    private Consumer<Employe> avantValidation;
+
+    private StatistiquesImport statistiques = StatistiquesImport.INACTIVES;
+
+    /**
+     * @param entityManager l'entity manager partagé, lié à la transaction courante
+     * @param transactionTemplate le template utilisé pour ouvrir une transaction par lot
+     * @param tailleLot le nombre d'employés écrits par transaction
+     */
+    public EcritureParLots(EntityManager entityManager, TransactionTemplate transactionTemplate, int tailleLot) {
+        this(entityManager, transactionTemplate, tailleLot, EntityManager::persist);
+    }
+
+    /**
+     * @param entityManager l'entity manager partagé, lié à la transaction courante
+     * @param transactionTemplate le template utilisé pour ouvrir une transaction par lot
+     * @param tailleLot le nombre d'employés écrits par transaction
+     * @param ecriture écrit un employé du lot, dans la transaction du lot (persist par défaut)
+     */
+    public EcritureParLots(EntityManager entityManager, TransactionTemplate transactionTemplate, int tailleLot,
+                           BiConsumer<EntityManager, Employe> ecriture) {
+        this.entityManager = entityManager;
+        this.ecriture = ecriture;
+        this.transactionTemplate = transactionTemplate;
+        this.tailleLot = tailleLot;
+        this.lot = new ArrayList<>(tailleLot);
+    }
+
+    @Override
+    public void accept(Employe employe) {
+        lot.add(employe);
+        if (lot.size() >= tailleLot) {
+            ecrireLot();
+        }
+    }
+
+    /**
+     * Écrit le lot en cours sans attendre qu'il soit complet
+     */
+    public void vider() {
+        if (!lot.isEmpty()) {
+            ecrireLot();
+        }
+    }
+
+    /**
+     * Écrit le dernier lot et affiche le bilan de l'écriture
+     */
+    @Override
+    public void close() {
+        vider();
+        logger.info(nbEnregistres + " employés enregistrés en " + nbLots + " lots (" + debit() + " lignes/s)");
+    }
+
+    public long getNbEnregistres() {
+        return nbEnregistres;
+    }
+
+    public long getNbLots() {
+        return nbLots;
+    }
+
+    /**
+     * @param avantValidation appelé dans la transaction de chaque lot, une fois les employés écrits en base et juste
+     * avant la validation, avec le dernier employé du lot
+     */
+    public void setAvantValidation(Consumer<Employe> avantValidation) {
+        this.avantValidation = avantValidation;
+    }
+
+    public void setStatistiques(StatistiquesImport statistiques) {
+        this.statistiques = statistiques;
+    }
+
+    /**
+     * Écrit le lot en cours dans sa transaction. Le lot est abandonné si la transaction échoue : ses employés ont
+     * pu recevoir un identifiant et ne doivent pas être persistés une seconde fois par {@link #close()}
+     */
+    private void ecrireLot() {
+        long debutLot = statistiques.debut();
+        try {
+            transactionTemplate.execute(status -> {
+                for (Employe employe : lot) {
+                    ecriture.accept(entityManager, employe);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                if (avantValidation != null) {
+                    avantValidation.accept(lot.get(lot.size() - 1));
+                }
+                return null;
+            });
+            statistiques.mesurer(StatistiquesImport.Etape.PERSISTANCE, debutLot);
+            statistiques.enregistres(lot.size());
+            nbLots++;
+            nbEnregistres += lot.size();
+            logger.info("Lot " + nbLots + " : " + lot.size() + " employés enregistrés, " + nbEnregistres
+                    + " au total (" + debit() + " lignes/s)");
+        } finally {
+            lot.clear();
+        }
+    }
+
+    private long debit() {
+        long duree = System.nanoTime() - debut;
+        return duree > 0 ? nbEnregistres * 1_000_000_000L / duree : 0;
+    }
+}
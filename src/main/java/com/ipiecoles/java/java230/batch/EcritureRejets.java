@@ -0,0 +1,264 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Rapport d'erreur qui écrit les lignes rejetées dans un fichier de rejets structuré, au format CSV séparé par des
+ * points-virgules : numéro de ligne, code d'erreur, message et contenu brut de la ligne.
+ *
+ * L'écriture est faite par un thread dédié : l'import se contente de déposer le rejet dans une file bornée et ne
+ * fait aucune entrée/sortie. La file ne bloque l'import que si le thread d'écriture a pris plus de
+ * {@code capacite} rejets de retard, ce qui borne la mémoire utilisée.
+ *
+ * {@link #close()} doit être appelé en fin d'import : il attend l'écriture des derniers rejets et affiche le nombre de
+ * rejets par code d'erreur.
+ */
+public class EcritureRejets implements RapportErreur, AutoCloseable {
+
+    public static final String ENTETE = "ligne;code;message;contenu";
+
+    private static final int CAPACITE = 8192;
+
+    private static final Rejet FIN = new Rejet(0, null, null, null);
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path fichier;
+
+    /**
+     * Remplacé seulement par {@link #reprendre(long, Set)}, avant le premier rejet : la file transmet la nouvelle
+     * valeur au thread d'écriture
+     */
+    private Writer writer;
+
+    private final BlockingQueue<Rejet> file;
+
+    private final Thread thread;
+
+    private final long[] nbRejets = new long[CodeErreur.values().length];
+
+    private IOException erreur;
+
+    private boolean ferme = false;
+
+    /**
+     * @param fichier le fichier de rejets
+     * @param ajouter vrai pour compléter le fichier existant (reprise d'un import interrompu), faux pour le remplacer
+     * @throws IOException si le fichier ne peut pas être créé
+     */
+    public EcritureRejets(Path fichier, boolean ajouter) throws IOException {
+        this(fichier, ajouter, CAPACITE);
+    }
+
+    /**
+     * @param fichier le fichier de rejets
+     * @param ajouter vrai pour compléter le fichier existant (reprise d'un import interrompu), faux pour le remplacer
+     * @param capacite le nombre de rejets en attente d'écriture au-delà duquel l'import attend le thread d'écriture
+     * @throws IOException si le fichier ne peut pas être créé
+     */
+    public EcritureRejets(Path fichier, boolean ajouter, int capacite) throws IOException {
+        this.fichier = fichier;
+        if (ajouter && Files.exists(fichier)) {
+            this.writer = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } else {
+            this.writer = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8);
+            this.writer.write(ENTETE);
+            this.writer.write('\n');
+        }
+        this.file = new ArrayBlockingQueue<>(capacite);
+        this.thread = new Thread(this::ecrire, "ecriture-rejets");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Prépare la reprise d'un import interrompu dans un fichier de rejets complété : retire les rejets que l'import va
+     * produire à nouveau, ceux des lignes lues après le point de reprise et ceux des techniciens qui attendaient encore
+     * leur manager, ainsi qu'un dernier rejet écrit à moitié. Doit être appelé avant le premier rejet. Les rejets pas
+     * encore écrits au moment de l'interruption ne sont pas retrouvés
+     * @param numLigne le numéro de la dernière ligne traitée au point de reprise, 0 pour ne garder que l'en-tête
+     * @param lignesEnAttente les numéros de ligne des techniciens en attente au point de reprise
+     * @throws IOException si le fichier ne peut pas être réécrit
+     */
+    public void reprendre(long numLigne, Set<Long> lignesEnAttente) throws IOException {
+        writer.close();
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(fichier));
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporaire))) {
+            ByteArrayOutputStream rejet = new ByteArrayOutputStream(256);
+            boolean entete = true;
+            boolean guillemets = false;
+            int c;
+            while ((c = in.read()) != -1) {
+                rejet.write(c);
+                if (c == '"') {
+                    guillemets = !guillemets;
+                } else if (c == '\n' && !guillemets) {
+                    if (entete || aConserver(rejet.toString(StandardCharsets.UTF_8.name()), numLigne, lignesEnAttente)) {
+                        rejet.writeTo(out);
+                    }
+                    entete = false;
+                    rejet.reset();
+                }
+            }
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING);
+        writer = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private static boolean aConserver(String rejet, long numLigne, Set<Long> lignesEnAttente) {
+        long num = Long.parseLong(rejet.substring(0, rejet.indexOf(';')));
+        return num <= numLigne && !lignesEnAttente.contains(num);
+    }
+
+    @Override
+    public void rejeter(long numLigne, String ligne, BatchException e) {
+        deposer(new Rejet(numLigne, e.getCode(), e.getMessage(), ligne));
+    }
+
+    /**
+     * Attend l'écriture des rejets en attente, ferme le fichier et affiche le bilan par code d'erreur
+     */
+    @Override
+    public void close() {
+        if (ferme) {
+            return;
+        }
+        ferme = true;
+        deposer(FIN);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (erreur == null) {
+                erreur = e;
+            }
+        }
+        if (erreur != null) {
+            logger.error("Problème dans l'écriture du fichier de rejets " + fichier + " : " + erreur.getMessage());
+        }
+        logger.info(getNbRejets() + " lignes rejetées, détail dans " + fichier);
+        for (CodeErreur code : CodeErreur.values()) {
+            if (nbRejets[code.ordinal()] > 0) {
+                logger.info("  " + code + " : " + nbRejets[code.ordinal()]);
+            }
+        }
+    }
+
+    /**
+     * @return le nombre de rejets écrits pour ce code, complet une fois l'écriture fermée
+     */
+    public long getNbRejets(CodeErreur code) {
+        return nbRejets[code.ordinal()];
+    }
+
+    public long getNbRejets() {
+        long total = 0;
+        for (long nb : nbRejets) {
+            total += nb;
+        }
+        return total;
+    }
+
+    private void deposer(Rejet rejet) {
+        try {
+            file.put(rejet);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Boucle du thread d'écriture. Après une erreur d'écriture, la file continue d'être vidée pour ne pas bloquer
+     * l'import : les rejets restent comptés mais ne sont plus écrits.
+     */
+    private void ecrire() {
+        StringBuilder sb = new StringBuilder(256);
+        try {
+            Rejet rejet;
+            while ((rejet = file.take()) != FIN) {
+                nbRejets[rejet.code.ordinal()]++;
+                if (erreur != null) {
+                    continue;
+                }
+                sb.setLength(0);
+                sb.append(rejet.numLigne).append(';').append(rejet.code).append(';');
+                champ(sb, rejet.message);
+                sb.append(';');
+                champ(sb, rejet.ligne);
+                sb.append('\n');
+                try {
+                    writer.append(sb);
+                } catch (IOException e) {
+                    erreur = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ajoute un champ au format CSV : entre guillemets, guillemets doublés, s'il contient un séparateur
+     */
+    private static void champ(StringBuilder sb, String valeur) {
+        if (valeur == null) {
+            return;
+        }
+        boolean echapper = false;
+        for (int i = 0; i < valeur.length() && !echapper; i++) {
+            char c = valeur.charAt(i);
+            echapper = c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!echapper) {
+            sb.append(valeur);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < valeur.length(); i++) {
+            char c = valeur.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static final class Rejet {
+        private final long numLigne;
+        private final CodeErreur code;
+        private final String message;
+        private final String ligne;
+
+        Rejet(long numLigne, CodeErreur code, String message, String ligne) {
+            this.numLigne = numLigne;
+            this.code = code;
+            this.message = message;
+            this.ligne = ligne;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ipiecoles.java.java230.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ouverture d'un fichier d'import, compressé en gzip ou non. La compression est reconnue à la signature du fichier
+ * (octets 1f 8b), quelle que soit son extension, et le fichier est décompressé au fil de la lecture, sans fichier
+ * intermédiaire.
+ */
+public final class FichierImport {
+
+    private static final int TAILLE_TAMPON = 64 * 1024;
+
+    private FichierImport() {
+    }
+
+    /**
+     * @return vrai si le fichier commence par la signature gzip
+     */
+    public static boolean estCompresse(Path fichier) throws IOException {
+        try (InputStream in = Files.newInputStream(fichier)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    /**
+     * Ouvre le fichier en flux d'octets décompressés
+     * @param fichier le fichier, compressé en gzip ou non
+     * @param nbThreads le nombre de threads de décompression des fichiers gzip de plusieurs membres (voir
+     *                  {@link GzipParallele}), 1 pour décompresser sur le thread de lecture
+     */
+    public static InputStream ouvrir(Path fichier, int nbThreads) throws IOException {
+        if (!estCompresse(fichier)) {
+            return Files.newInputStream(fichier);
+        }
+        if (nbThreads > 1) {
+            return new BufferedInputStream(GzipParallele.ouvrir(fichier, nbThreads), TAILLE_TAMPON);
+        }
+        return new GZIPInputStream(Files.newInputStream(fichier), TAILLE_TAMPON);
+    }
+
+    /**
+     * Ouvre le fichier en lecture ligne par ligne, comme {@link Files#newBufferedReader(Path)} : un fichier qui
+     * n'est pas en UTF-8 valide provoque une erreur de lecture
+     * @see #ouvrir(Path, int)
+     */
+    public static BufferedReader lire(Path fichier, int nbThreads) throws IOException {
+        return new BufferedReader(new InputStreamReader(ouvrir(fichier, nbThreads), StandardCharsets.UTF_8.newDecoder()));
+    }
+}
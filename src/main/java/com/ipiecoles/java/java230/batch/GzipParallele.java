@@ -0,0 +1,478 @@
+package com.ipiecoles.java.java230.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Décompression parallèle d'un fichier gzip composé de plusieurs membres (fichiers produits par pigz, bgzip ou par
+ * concaténation de fichiers gzip), restituée comme un flux dans l'ordre du fichier.
+ *
+ * Le fichier compressé est découpé en plages d'environ {@code taillePlage} octets, chacune commençant sur un
+ * en-tête de membre candidat (octets 1f 8b 08 et drapeaux plausibles). Chaque plage est décompressée par un thread du
+ * pool, membre après membre, jusqu'au premier membre qui se termine au-delà du début de la plage suivante. Le
+ * découpage est spéculatif : un candidat peut n'être qu'une suite d'octets des données compressées. Il est vérifié à
+ * la restitution, une plage n'étant utilisée que si elle commence exactement là où la précédente s'est terminée (fin
+ * d'un membre dont le CRC32 et la taille ont été contrôlés). Sinon, la plage est décompressée en flux par le thread
+ * de lecture à partir de la dernière fin de membre vérifiée, et la spéculation reprend à la plage suivante.
+ *
+ * La recherche d'un en-tête candidat est bornée à {@link #NB_PLAGES_RECHERCHE} plages : au-delà, la plage s'arrête
+ * sans en-tête et sera relue en flux. {@link #ouvrir(Path, int)} cherche de même un second membre au début du
+ * fichier et, s'il n'y en a pas, lit directement le fichier avec {@link GZIPInputStream}, sans pool ni plages
+ * spéculatives. Au plus {@code capacite} plages sont décompressées à l'avance, et une plage dont la décompression
+ * dépasse {@link #FACTEUR_SORTIE_MAX} fois sa taille est abandonnée, ce qui borne la mémoire utilisée.
+ */
+public class GzipParallele extends InputStream {
+
+    static final int TAILLE_PLAGE_DEFAUT = 1 << 20;
+
+    static final int FACTEUR_SORTIE_MAX = 16;
+
+    static final int NB_PLAGES_RECHERCHE = 4;
+
+    private static final int TAILLE_TAMPON = 64 * 1024;
+
+    private static final int RESERVES = 0xE0;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final FileChannel channel;
+
+    private final long taille;
+
+    private final ExecutorService pool;
+
+    private final int taillePlage;
+
+    private final int capacite;
+
+    private final Deque<Future<Plage>> plages = new ArrayDeque<>();
+
+    /**
+     * Début de la prochaine plage à confier au pool
+     */
+    private long prochainePlage = 0;
+
+    /**
+     * Fin du dernier membre restitué, vérifiée
+     */
+    private long position = 0;
+
+    private byte[] donnees;
+
+    private int indice;
+
+    /**
+     * Décompression en flux du thread de lecture, quand la plage suivante ne commence pas à la position vérifiée
+     */
+    private Membres sequentiel;
+
+    private long limiteSequentielle;
+
+    /**
+     * @param fichier le fichier gzip
+     * @param nbThreads le nombre de threads de décompression
+     * @throws IOException si le fichier ne peut pas être ouvert
+     */
+    public GzipParallele(Path fichier, int nbThreads) throws IOException {
+        this(fichier, nbThreads, TAILLE_PLAGE_DEFAUT, 2 * nbThreads);
+    }
+
+    /**
+     * Ouvre le fichier gzip en décompression parallèle si un second membre commence dans les
+     * {@link #NB_PLAGES_RECHERCHE} premières plages, sinon en flux avec {@link GZIPInputStream} (fichier d'un seul
+     * membre, ou de membres trop grands pour être décompressés en plages)
+     * @param fichier le fichier gzip
+     * @param nbThreads le nombre de threads de décompression
+     * @throws IOException si le fichier ne peut pas être ouvert
+     */
+    public static InputStream ouvrir(Path fichier, int nbThreads) throws IOException {
+        boolean plusieursMembres;
+        try (FileChannel channel = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long taille = channel.size();
+            long fenetre = Math.min(taille, (long) NB_PLAGES_RECHERCHE * TAILLE_PLAGE_DEFAUT);
+            plusieursMembres = candidat(channel, taille, 1, fenetre) < fenetre;
+        }
+        if (!plusieursMembres) {
+            return new GZIPInputStream(Files.newInputStream(fichier), TAILLE_TAMPON);
+        }
+        return new GzipParallele(fichier, nbThreads);
+    }
+
+    GzipParallele(Path fichier, int nbThreads, int taillePlage, int capacite) throws IOException {
+        this.channel = FileChannel.open(fichier, StandardOpenOption.READ);
+        this.taille = channel.size();
+        this.taillePlage = taillePlage;
+        this.capacite = capacite;
+        AtomicInteger numThread = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(nbThreads, tache -> {
+            Thread thread = new Thread(tache, "decompression-gzip-" + numThread.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        planifier();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] octet = new byte[1];
+        return read(octet, 0, 1) < 0 ? -1 : octet[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            if (donnees != null && indice < donnees.length) {
+                int n = Math.min(len, donnees.length - indice);
+                System.arraycopy(donnees, indice, b, off, n);
+                indice += n;
+                return n;
+            }
+            if (sequentiel != null) {
+                int n = lireSequentiel(b, off, len);
+                if (n >= 0) {
+                    return n;
+                }
+                continue;
+            }
+            Future<Plage> suivante = plages.poll();
+            if (suivante == null) {
+                return -1;
+            }
+            Plage plage = attendre(suivante);
+            donnees = null;
+            if (plage.donnees != null && plage.debut == position) {
+                donnees = plage.donnees;
+                indice = 0;
+                position = plage.fin;
+                planifier();
+            } else if (position < plage.limite) {
+                //candidat invalide, plage abandonnée ou fichier corrompu : relecture en flux depuis la position
+                //vérifiée
+                sequentiel = new Membres(channel, position, taille);
+                limiteSequentielle = plage.limite;
+            }
+            //sinon la plage est entièrement couverte par un membre déjà restitué
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<Plage> plage : plages) {
+            plage.cancel(true);
+        }
+        plages.clear();
+        if (sequentiel != null) {
+            sequentiel.fermer();
+            sequentiel = null;
+        }
+        pool.shutdownNow();
+        channel.close();
+    }
+
+    /**
+     * Lit la suite du membre en cours de décompression en flux, membre après membre jusqu'à la fin de la plage
+     * @return le nombre d'octets lus, -1 une fois la plage terminée
+     */
+    private int lireSequentiel(byte[] b, int off, int len) throws IOException {
+        while (true) {
+            if (!sequentiel.isEnCours()) {
+                position = sequentiel.getPosition();
+                if (position >= limiteSequentielle || !sequentiel.debuter()) {
+                    sequentiel.fermer();
+                    sequentiel = null;
+                    planifier();
+                    return -1;
+                }
+            }
+            int n = sequentiel.lire(b, off, len);
+            if (n >= 0) {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Confie au pool les plages suivantes, dans la limite de la capacité
+     */
+    private void planifier() throws IOException {
+        //après une relecture en flux, les plages déjà couvertes ne sont pas confiées au pool
+        prochainePlage = Math.max(prochainePlage, position);
+        while (plages.size() < capacite && prochainePlage < taille) {
+            long debut = prochainePlage;
+            long limite = candidat(channel, taille, debut + taillePlage, debut + (NB_PLAGES_RECHERCHE + 1L) * taillePlage);
+            plages.add(pool.submit(() -> decompresser(debut, limite)));
+            prochainePlage = limite;
+        }
+    }
+
+    /**
+     * Décompresse les membres qui commencent entre le début et la limite de la plage. Une erreur n'est pas propagée :
+     * le début de la plage n'était peut-être pas un vrai début de membre, ce qui sera vérifié à la restitution.
+     */
+    private Plage decompresser(long debut, long limite) {
+        Membres membres = new Membres(channel, debut, taille);
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(4 * taillePlage);
+        byte[] tampon = new byte[TAILLE_TAMPON];
+        long sortieMax = (long) FACTEUR_SORTIE_MAX * taillePlage;
+        try {
+            while (membres.getPosition() < limite && membres.debuter()) {
+                int n;
+                while ((n = membres.lire(tampon, 0, tampon.length)) >= 0) {
+                    sortie.write(tampon, 0, n);
+                    if (sortie.size() > sortieMax || Thread.currentThread().isInterrupted()) {
+                        return new Plage(debut, limite, -1, null);
+                    }
+                }
+            }
+            return new Plage(debut, limite, membres.getPosition(), sortie.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            return new Plage(debut, limite, -1, null);
+        } finally {
+            membres.fermer();
+        }
+    }
+
+    private static Plage attendre(Future<Plage> plage) throws IOException {
+        try {
+            return plage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Décompression interrompue");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Cherche le premier en-tête de membre plausible qui commence entre deux positions
+     * @return sa position, ou la position de fin de recherche (au plus la taille du fichier) s'il n'y en a pas
+     */
+    private static long candidat(FileChannel channel, long taille, long depuis, long jusqua) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TAILLE_TAMPON);
+        long courant = depuis;
+        while (courant < jusqua && courant + 10 <= taille) {
+            buffer.clear();
+            int lus = 0;
+            int n;
+            while (buffer.hasRemaining() && (n = channel.read(buffer, courant + lus)) > 0) {
+                lus += n;
+            }
+            //les 9 derniers octets du tampon sont relus avec le suivant, pour les en-têtes à cheval
+            for (int i = 0; i + 10 <= lus && courant + i < jusqua; i++) {
+                if (estEntete(buffer, i)) {
+                    return courant + i;
+                }
+            }
+            if (lus < 10) {
+                break;
+            }
+            courant += lus - 9;
+        }
+        return Math.min(jusqua, taille);
+    }
+
+    /**
+     * En-tête gzip plausible : signature, méthode deflate, bits réservés à zéro, XFL et OS connus
+     */
+    private static boolean estEntete(ByteBuffer buffer, int i) {
+        return buffer.get(i) == 0x1f && buffer.get(i + 1) == (byte) 0x8b && buffer.get(i + 2) == 8
+                && (buffer.get(i + 3) & RESERVES) == 0
+                && (buffer.get(i + 8) == 0 || buffer.get(i + 8) == 2 || buffer.get(i + 8) == 4)
+                && ((buffer.get(i + 9) & 0xff) <= 13 || buffer.get(i + 9) == (byte) 0xff);
+    }
+
+    /**
+     * Résultat de la décompression d'une plage : données null si la décompression a échoué ou a été abandonnée
+     */
+    private static final class Plage {
+        private final long debut;
+        private final long limite;
+        private final long fin;
+        private final byte[] donnees;
+
+        Plage(long debut, long limite, long fin, byte[] donnees) {
+            this.debut = debut;
+            this.limite = limite;
+            this.fin = fin;
+            this.donnees = donnees;
+        }
+    }
+
+    /**
+     * Décompression des membres successifs d'un fichier gzip à partir d'une position, avec contrôle du CRC32 et de
+     * la taille de chaque membre
+     */
+    private static final class Membres {
+        private final FileChannel channel;
+        private final long taille;
+        private final byte[] tampon = new byte[TAILLE_TAMPON];
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private long positionTampon;
+        private int debutTampon = 0;
+        private int finTampon = 0;
+        private long longueur;
+        private boolean enCours = false;
+
+        Membres(FileChannel channel, long position, long taille) {
+            this.channel = channel;
+            this.positionTampon = position;
+            this.taille = taille;
+        }
+
+        /**
+         * @return la position du prochain octet compressé non consommé : la fin du dernier membre entre deux membres
+         */
+        long getPosition() {
+            return positionTampon + debutTampon;
+        }
+
+        boolean isEnCours() {
+            return enCours;
+        }
+
+        /**
+         * Lit l'en-tête du membre qui commence à la position courante
+         * @return faux à la fin du fichier
+         * @throws ZipException si la position courante n'est pas un début de membre
+         */
+        boolean debuter() throws IOException {
+            if (getPosition() >= taille) {
+                return false;
+            }
+            if (octet() != 0x1f || octet() != 0x8b || octet() != 8) {
+                throw new ZipException("En-tête gzip invalide à la position " + (getPosition() - 3));
+            }
+            int drapeaux = octet();
+            if ((drapeaux & RESERVES) != 0) {
+                throw new ZipException("En-tête gzip invalide à la position " + (getPosition() - 4));
+            }
+            //MTIME, XFL, OS
+            sauter(6);
+            if ((drapeaux & FEXTRA) != 0) {
+                sauter(octet() | octet() << 8);
+            }
+            if ((drapeaux & FNAME) != 0) {
+                while (octet() != 0) {
+                }
+            }
+            if ((drapeaux & FCOMMENT) != 0) {
+                while (octet() != 0) {
+                }
+            }
+            if ((drapeaux & FHCRC) != 0) {
+                sauter(2);
+            }
+            inflater.reset();
+            crc.reset();
+            longueur = 0;
+            enCours = true;
+            return true;
+        }
+
+        /**
+         * Décompresse la suite du membre en cours
+         * @return le nombre d'octets décompressés, -1 à la fin du membre, une fois son CRC32 et sa taille vérifiés
+         */
+        int lire(byte[] b, int off, int len) throws IOException {
+            try {
+                while (true) {
+                    int n = inflater.inflate(b, off, len);
+                    if (n > 0) {
+                        crc.update(b, off, n);
+                        longueur += n;
+                        return n;
+                    }
+                    if (inflater.finished()) {
+                        debutTampon = finTampon - inflater.getRemaining();
+                        terminer();
+                        return -1;
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new ZipException("Membre gzip avec dictionnaire non supporté");
+                    }
+                    if (inflater.needsInput()) {
+                        if (debutTampon == finTampon && !remplir()) {
+                            throw new EOFException("Fin de fichier inattendue dans un membre gzip");
+                        }
+                        inflater.setInput(tampon, debutTampon, finTampon - debutTampon);
+                        debutTampon = finTampon;
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        /**
+         * Libère la mémoire native de l'inflater
+         */
+        void fermer() {
+            inflater.end();
+        }
+
+        private void terminer() throws IOException {
+            long crcLu = entier();
+            long longueurLue = entier();
+            enCours = false;
+            if (crcLu != crc.getValue() || longueurLue != (longueur & 0xffffffffL)) {
+                throw new ZipException("Membre gzip corrompu avant la position " + getPosition());
+            }
+        }
+
+        private long entier() throws IOException {
+            return (octet() | octet() << 8 | octet() << 16 | (long) octet() << 24) & 0xffffffffL;
+        }
+
+        private void sauter(int nombre) throws IOException {
+            for (int i = 0; i < nombre; i++) {
+                octet();
+            }
+        }
+
+        private int octet() throws IOException {
+            if (debutTampon == finTampon && !remplir()) {
+                throw new EOFException("Fin de fichier inattendue dans un membre gzip");
+            }
+            return tampon[debutTampon++] & 0xff;
+        }
+
+        private boolean remplir() throws IOException {
+            positionTampon += finTampon;
+            debutTampon = 0;
+            finTampon = 0;
+            ByteBuffer buffer = ByteBuffer.wrap(tampon);
+            int n = channel.read(buffer, positionTampon);
+            if (n <= 0) {
+                return false;
+            }
+            finTampon = n;
+            return true;
+        }
+    }
+}
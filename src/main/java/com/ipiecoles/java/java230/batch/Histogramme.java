@@ -0,0 +1,82 @@
+package com.ipiecoles.java.java230.batch;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées en nanosecondes, par puissances de 2 : une durée d compte dans la classe i telle que
+ * 2^(i-1) <= d < 2^i. Les centiles sont donc donnés à un facteur 2 près, ce qui suffit pour repérer l'étape lente
+ * d'un import. Les compteurs peuvent être mis à jour depuis plusieurs threads sans verrou.
+ */
+class Histogramme {
+
+    private final LongAdder[] classes = new LongAdder[64];
+
+    private final LongAdder nombre = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    Histogramme() {
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new LongAdder();
+        }
+    }
+
+    void enregistrer(long duree) {
+        if (duree < 0) {
+            duree = 0;
+        }
+        classes[64 - Long.numberOfLeadingZeros(duree) & 63].increment();
+        nombre.increment();
+        total.add(duree);
+        max.accumulate(duree);
+    }
+
+    long getNombre() {
+        return nombre.sum();
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    long getMoyenne() {
+        long n = getNombre();
+        return n == 0 ? 0 : getTotal() / n;
+    }
+
+    /**
+     * @param centile le centile voulu, entre 0 et 100
+     * @return la borne supérieure de la classe qui contient ce centile, sans dépasser le maximum observé
+     */
+    long getCentile(double centile) {
+        long n = getNombre();
+        if (n == 0) {
+            return 0;
+        }
+        long rang = (long) Math.ceil(n * centile / 100);
+        long cumul = 0;
+        for (int i = 0; i < classes.length; i++) {
+            cumul += classes[i].sum();
+            if (cumul >= rang) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    void reinitialiser() {
+        for (LongAdder classe : classes) {
+            classe.reset();
+        }
+        nombre.reset();
+        total.reset();
+        max.reset();
+    }
+}
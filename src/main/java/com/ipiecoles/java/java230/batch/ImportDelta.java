@@ -0,0 +1,224 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.EmpreinteEmploye;
+import com.ipiecoles.java.java230.model.Employe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Destination d'import différentiel : le fichier contient l'ensemble du personnel et seuls les employés ajoutés,
+ * modifiés ou retirés depuis l'import précédent sont écrits en base.
+ *
+ * Chaque employé importé est comparé, par son matricule, à l'empreinte de sa dernière ligne importée (voir
+ * {@link EmpreinteEmploye}) : un employé inchangé n'est pas écrit, un employé modifié est mis à jour sous son
+ * identifiant existant, un nouvel employé est inséré. Les empreintes et les identifiants sont chargés une seule fois
+ * en début d'import. Au premier import différentiel, les employés déjà en base n'ont pas d'empreinte : ils sont mis à
+ * jour une fois, puis reconnus comme inchangés aux imports suivants.
+ *
+ * {@link #supprimerAbsents()} supprime ensuite les employés importés précédemment dont le matricule n'apparaît plus
+ * dans le fichier. Une ligne rejetée compte comme présente (voir {@link #conserver(String)}) : une erreur de saisie ne
+ * supprime pas l'employé. Les employés créés autrement que par l'import différentiel ne sont jamais supprimés.
+ */
+public class ImportDelta implements Consumer<Employe>, AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int tailleLot;
+
+    private final EcritureParLots ecriture;
+
+    private final Map<String, Etat> etats;
+
+    private long nbInseres = 0;
+
+    private long nbModifies = 0;
+
+    private long nbInchanges = 0;
+
+    private long nbSupprimes = 0;
+
+    /**
+     * @param entityManager l'entity manager partagé, lié à la transaction courante
+     * @param transactionTemplate le template utilisé pour ouvrir une transaction par lot
+     * @param tailleLot le nombre d'employés écrits par transaction
+     * @param employes les employés en base, matricule et identifiant
+     * @param empreintes les empreintes en base, matricule, identifiant de l'employé et empreinte
+     */
+    public ImportDelta(EntityManager entityManager, TransactionTemplate transactionTemplate, int tailleLot,
+                       List<Object[]> employes, List<Object[]> empreintes) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.tailleLot = tailleLot;
+        this.ecriture = new EcritureParLots(entityManager, transactionTemplate, tailleLot, this::ecrire);
+        this.etats = new HashMap<>((employes.size() + empreintes.size()) * 2);
+        for (Object[] employe : employes) {
+            etats.computeIfAbsent((String) employe[0], m -> new Etat()).id = (Long) employe[1];
+        }
+        for (Object[] empreinte : empreintes) {
+            Etat etat = etats.computeIfAbsent((String) empreinte[0], m -> new Etat());
+            etat.empreinteEnBase = true;
+            //une empreinte dont l'employé a été supprimé ou remplacé entre-temps n'est pas fiable
+            if (etat.id != null && etat.id.equals(empreinte[1])) {
+                etat.empreinte = (Long) empreinte[2];
+                etat.empreinteConnue = true;
+            }
+        }
+    }
+
+    @Override
+    public void accept(Employe employe) {
+        long empreinte = EmpreinteEmploye.calculer(employe);
+        Etat etat = etats.computeIfAbsent(employe.getMatricule(), m -> new Etat());
+        etat.present = true;
+        if (etat.id != null) {
+            //porté aussi par les employés inchangés : un technicien modifié peut référencer son manager inchangé
+            employe.setId(etat.id);
+            if (etat.empreinteConnue && etat.empreinte == empreinte) {
+                nbInchanges++;
+                return;
+            }
+            nbModifies++;
+        } else {
+            nbInseres++;
+        }
+        etat.nouvelleEmpreinte = empreinte;
+        ecriture.accept(employe);
+    }
+
+    /**
+     * Marque comme présent dans le fichier l'employé d'une ligne rejetée, pour qu'il ne soit pas supprimé
+     * @param ligne la ligne rejetée
+     */
+    public void conserver(String ligne) {
+        int fin = ligne.indexOf(',');
+        Etat etat = etats.get(fin < 0 ? ligne : ligne.substring(0, fin));
+        if (etat != null) {
+            etat.present = true;
+        }
+    }
+
+    /**
+     * Écrit les derniers employés puis supprime, par lots, les employés importés précédemment qui ne sont plus dans le
+     * fichier. À n'appeler qu'une fois le fichier entièrement lu.
+     */
+    public void supprimerAbsents() {
+        ecriture.vider();
+        List<String> matricules = new ArrayList<>(tailleLot);
+        List<Long> ids = new ArrayList<>(tailleLot);
+        for (Map.Entry<String, Etat> etat : etats.entrySet()) {
+            if (etat.getValue().present || !etat.getValue().empreinteEnBase) {
+                continue;
+            }
+            matricules.add(etat.getKey());
+            if (etat.getValue().id != null) {
+                ids.add(etat.getValue().id);
+            }
+            if (matricules.size() >= tailleLot) {
+                supprimer(matricules, ids);
+            }
+        }
+        if (!matricules.isEmpty()) {
+            supprimer(matricules, ids);
+        }
+    }
+
+    /**
+     * Écrit les derniers employés et affiche le bilan de l'import
+     */
+    @Override
+    public void close() {
+        ecriture.close();
+        logger.info("Import différentiel : " + nbInseres + " employés ajoutés, " + nbModifies + " modifiés, "
+                + nbInchanges + " inchangés, " + nbSupprimes + " supprimés");
+    }
+
+    public void setStatistiques(StatistiquesImport statistiques) {
+        ecriture.setStatistiques(statistiques);
+    }
+
+    public long getNbInseres() {
+        return nbInseres;
+    }
+
+    public long getNbModifies() {
+        return nbModifies;
+    }
+
+    public long getNbInchanges() {
+        return nbInchanges;
+    }
+
+    public long getNbSupprimes() {
+        return nbSupprimes;
+    }
+
+    /**
+     * Écrit un employé ajouté ou modifié et son empreinte, dans la transaction du lot
+     */
+    private void ecrire(EntityManager entityManager, Employe employe) {
+        Etat etat = etats.get(employe.getMatricule());
+        if (employe.getId() == null) {
+            entityManager.persist(employe);
+            etat.id = employe.getId();
+        } else {
+            entityManager.merge(employe);
+        }
+        EmpreinteEmploye empreinte = new EmpreinteEmploye(employe.getMatricule(), etat.id, etat.nouvelleEmpreinte);
+        if (etat.empreinteEnBase) {
+            entityManager.merge(empreinte);
+        } else {
+            entityManager.persist(empreinte);
+            etat.empreinteEnBase = true;
+        }
+        etat.empreinte = etat.nouvelleEmpreinte;
+        etat.empreinteConnue = true;
+    }
+
+    private void supprimer(List<String> matricules, List<Long> ids) {
+        transactionTemplate.execute(status -> {
+            if (!ids.isEmpty()) {
+                //les techniciens restants d'un manager supprimé n'ont plus de manager
+                entityManager.createQuery("update Technicien t set t.manager = null where t.manager.id in :ids")
+                        .setParameter("ids", ids).executeUpdate();
+                for (Long id : ids) {
+                    Employe employe = entityManager.find(Employe.class, id);
+                    if (employe != null) {
+                        entityManager.remove(employe);
+                        nbSupprimes++;
+                    }
+                }
+            }
+            entityManager.createQuery("delete from EmpreinteEmploye e where e.matricule in :matricules")
+                    .setParameter("matricules", matricules).executeUpdate();
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        });
+        matricules.clear();
+        ids.clear();
+    }
+
+    /**
+     * État connu d'un matricule : identifiant en base, empreinte enregistrée et présence dans le fichier
+     */
+    private static final class Etat {
+        private Long id;
+        private boolean empreinteEnBase;
+        private boolean empreinteConnue;
+        private long empreinte;
+        private long nouvelleEmpreinte;
+        private boolean present;
+    }
+}
@@ -0,0 +1,224 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Technicien;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Import parallèle d'un fichier CSV : le fichier est découpé en plages d'octets alignées sur les fins de ligne, chaque
+ * plage est lue et validée par une tâche du {@link ForkJoinPool}. Les résultats sont ensuite restitués dans l'ordre
+ * du fichier, avec le numéro de ligne global, ce qui rend le rapport d'erreurs identique à celui de l'import
+ * séquentiel.
+ *
+ * Le fichier est traité par fenêtres successives afin que la mémoire occupée par les résultats en attente reste
+ * bornée quelle que soit la taille du fichier.
+ */
+public class ImportParallele {
+
+    private static final int TAILLE_SEGMENT_DEFAUT = 4 * 1024 * 1024;
+    private static final int SEGMENTS_PAR_THREAD = 4;
+    private static final int TAILLE_LECTURE = 8 * 1024;
+
+    private final ForkJoinPool pool;
+
+    private final TraitementLigne traitement;
+
+    private final int tailleSegment;
+
+    public ImportParallele(ForkJoinPool pool, TraitementLigne traitement) {
+        this(pool, traitement, TAILLE_SEGMENT_DEFAUT);
+    }
+
+    ImportParallele(ForkJoinPool pool, TraitementLigne traitement, int tailleSegment) {
+        this.pool = pool;
+        this.traitement = traitement;
+        this.tailleSegment = tailleSegment;
+    }
+
+    /**
+     * Importe le fichier en parallèle
+     * @param chemin le fichier à lire
+     * @param destination reçoit les employés valides, dans l'ordre du fichier (la ligne d'origine n'est fournie que
+     *                    pour les techniciens)
+     * @param rapport reçoit les lignes rejetées, dans l'ordre du fichier
+     * @return le nombre de lignes lues
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    public long importer(Path chemin, DestinationLigne destination, RapportErreur rapport) throws IOException {
+        try (FileChannel channel = FileChannel.open(chemin, StandardOpenOption.READ)) {
+            long taille = channel.size();
+            long tailleFenetre = (long) tailleSegment * pool.getParallelism() * SEGMENTS_PAR_THREAD;
+            long numLigne = 0;
+            long debut = 0;
+            while (debut < taille) {
+                long fin = debutLigneSuivante(channel, Math.min(debut + tailleFenetre, taille), taille);
+                List<Segment> segments;
+                try {
+                    segments = pool.invoke(new SegmentTask(channel, debut, fin, taille));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                for (Segment segment : segments) {
+                    numLigne = segment.restituer(numLigne, destination, rapport);
+                }
+                debut = fin;
+            }
+            return numLigne;
+        }
+    }
+
+    /**
+     * Renvoie la position du premier début de ligne situé à partir de la position donnée
+     */
+    private static long debutLigneSuivante(FileChannel channel, long position, long taille) throws IOException {
+        if (position <= 0 || position >= taille) {
+            return Math.min(Math.max(position, 0), taille);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TAILLE_LECTURE);
+        //on part de l'octet précédent : si c'est un retour à la ligne, la position est déjà un début de ligne
+        long courant = position - 1;
+        while (courant < taille) {
+            buffer.clear();
+            int lus = channel.read(buffer, courant);
+            if (lus <= 0) {
+                break;
+            }
+            for (int i = 0; i < lus; i++) {
+                if (buffer.get(i) == '\n') {
+                    return courant + i + 1;
+                }
+            }
+            courant += lus;
+        }
+        return taille;
+    }
+
+    /**
+     * Tâche qui traite une plage d'octets commençant sur un début de ligne et se terminant après une fin de ligne
+     */
+    private class SegmentTask extends RecursiveTask<List<Segment>> {
+        private final FileChannel channel;
+        private final long debut;
+        private final long fin;
+        private final long taille;
+
+        SegmentTask(FileChannel channel, long debut, long fin, long taille) {
+            this.channel = channel;
+            this.debut = debut;
+            this.fin = fin;
+            this.taille = taille;
+        }
+
+        @Override
+        protected List<Segment> compute() {
+            try {
+                if (fin - debut > tailleSegment) {
+                    long milieu = debutLigneSuivante(channel, debut + (fin - debut) / 2, taille);
+                    if (milieu > debut && milieu < fin) {
+                        SegmentTask gauche = new SegmentTask(channel, debut, milieu, taille);
+                        gauche.fork();
+                        List<Segment> droite = new SegmentTask(channel, milieu, fin, taille).compute();
+                        List<Segment> segments = new ArrayList<>(gauche.join());
+                        segments.addAll(droite);
+                        return segments;
+                    }
+                }
+                return Collections.singletonList(traiterSegment());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Segment traiterSegment() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (fin - debut));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, debut + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            byte[] octets = buffer.array();
+            int longueur = buffer.position();
+
+            Segment segment = new Segment();
+            int debutLigne = 0;
+            for (int i = 0; i < longueur; i++) {
+                if (octets[i] == '\n') {
+                    segment.traiter(ligne(octets, debutLigne, i));
+                    debutLigne = i + 1;
+                }
+            }
+            if (debutLigne < longueur) {
+                segment.traiter(ligne(octets, debutLigne, longueur));
+            }
+            return segment;
+        }
+
+        private String ligne(byte[] octets, int debut, int fin) {
+            //même comportement que BufferedReader.readLine pour les fins de ligne Windows
+            if (fin > debut && octets[fin - 1] == '\r') {
+                fin--;
+            }
+            return new String(octets, debut, fin - debut, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Résultat d'une plage : pour chaque ligne, l'employé créé ou la ligne rejetée.
+     * La ligne d'origine d'un employé valide n'est conservée que pour les techniciens, seuls susceptibles d'être
+     * rejetés plus tard (manager introuvable) ; les autres lignes sont libérées dès leur analyse.
+     */
+    private class Segment {
+        private final List<Object> resultats = new ArrayList<>();
+
+        void traiter(String ligne) {
+            try {
+                Employe employe = traitement.traiter(ligne);
+                resultats.add(employe instanceof Technicien ? new LigneTraitee(ligne, employe, null) : employe);
+            } catch (BatchException e) {
+                resultats.add(new LigneTraitee(ligne, null, e));
+            }
+        }
+
+        long restituer(long numLigne, DestinationLigne destination, RapportErreur rapport) {
+            for (Object resultat : resultats) {
+                numLigne++;
+                if (resultat instanceof Employe) {
+                    destination.accepter(numLigne, null, (Employe) resultat);
+                } else {
+                    LigneTraitee traitee = (LigneTraitee) resultat;
+                    if (traitee.erreur != null) {
+                        rapport.rejeter(numLigne, traitee.ligne, traitee.erreur);
+                    } else {
+                        destination.accepter(numLigne, traitee.ligne, traitee.employe);
+                    }
+                }
+            }
+            return numLigne;
+        }
+    }
+
+    private static class LigneTraitee {
+        private final String ligne;
+        private final Employe employe;
+        private final BatchException erreur;
+
+        LigneTraitee(String ligne, Employe employe, BatchException erreur) {
+            this.ligne = ligne;
+            this.employe = employe;
+            this.erreur = erreur;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Technicien;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Import en pipeline : la lecture du fichier, la validation des lignes et l'écriture en base s'exécutent en même
+ * temps, chacune sur ses propres threads.
+ * <ul>
+ *     <li>lecture : un thread dédié lit les lignes par blocs et confie chaque bloc aux threads de validation</li>
+ *     <li>validation : les threads du pool analysent les blocs, plusieurs blocs à la fois</li>
+ *     <li>écriture : le thread appelant restitue les blocs validés dans l'ordre du fichier à la destination, qui
+ *     rattache les techniciens à leur manager et écrit les lots en base</li>
+ * </ul>
+ *
+ * Les blocs circulent de la lecture vers l'écriture dans une file bornée, dans l'ordre du fichier. Quand l'écriture
+ * prend du retard, la file se remplit et la lecture attend : au plus {@code capacite + 2} blocs sont lus sans être
+ * écrits, les employés validés ne s'accumulent donc pas en mémoire quand la base est lente. Le débit de l'import est
+ * celui de l'étape la plus lente.
+ */
+public class ImportPipeline {
+
+    private static final int TAILLE_BLOC_DEFAUT = 1000;
+
+    private static final Future<Bloc> FIN = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService validation;
+
+    private final TraitementLigne traitement;
+
+    private final int tailleBloc;
+
+    private final int capacite;
+
+    private StatistiquesImport statistiques = StatistiquesImport.INACTIVES;
+
+    /**
+     * @param validation les threads de validation des lignes
+     * @param traitement la transformation d'une ligne en employé
+     * @param capacite le nombre de blocs validés ou en cours de validation au-delà duquel la lecture attend
+     *                 l'écriture
+     */
+    public ImportPipeline(ExecutorService validation, TraitementLigne traitement, int capacite) {
+        this(validation, traitement, TAILLE_BLOC_DEFAUT, capacite);
+    }
+
+    ImportPipeline(ExecutorService validation, TraitementLigne traitement, int tailleBloc, int capacite) {
+        this.validation = validation;
+        this.traitement = traitement;
+        this.tailleBloc = tailleBloc;
+        this.capacite = capacite;
+    }
+
+    public void setStatistiques(StatistiquesImport statistiques) {
+        this.statistiques = statistiques;
+    }
+
+    /**
+     * Importe les lignes du reader, en rendant la main une fois la dernière ligne transmise à la destination
+     * @param reader le reader positionné au début du fichier
+     * @param destination reçoit les employés valides, dans l'ordre du fichier et sur le thread appelant (la ligne
+     *                    d'origine n'est fournie que pour les techniciens)
+     * @param rapport reçoit les lignes rejetées, dans l'ordre du fichier et sur le thread appelant
+     * @return le nombre de lignes lues
+     * @throws IOException si la lecture échoue en cours de route
+     */
+    public long importer(BufferedReader reader, DestinationLigne destination, RapportErreur rapport) throws IOException {
+        BlockingQueue<Future<Bloc>> file = new ArrayBlockingQueue<>(capacite);
+        Thread lecture = new Thread(() -> lire(reader, file), "pipeline-lecture");
+        lecture.setDaemon(true);
+        lecture.start();
+        long numLigne = 0;
+        try {
+            Future<Bloc> bloc;
+            while ((bloc = file.take()) != FIN) {
+                numLigne = bloc.get().restituer(numLigne, destination, rapport);
+            }
+            return numLigne;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrompu à la ligne " + numLigne, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            //en cas d'erreur de l'écriture, la lecture ne doit pas rester bloquée sur la file pleine
+            lecture.interrupt();
+            for (Future<Bloc> restant : file) {
+                restant.cancel(false);
+            }
+            file.clear();
+            joindre(lecture);
+        }
+    }
+
+    /**
+     * Boucle du thread de lecture. La fin de fichier, comme une erreur de lecture, est transmise à l'écriture par la
+     * file, à la suite des blocs déjà lus.
+     */
+    private void lire(BufferedReader reader, BlockingQueue<Future<Bloc>> file) {
+        try {
+            String[] lignes = new String[tailleBloc];
+            int nbLignes = 0;
+            String ligne;
+            long debut = statistiques.debut();
+            while ((ligne = reader.readLine()) != null) {
+                statistiques.mesurer(StatistiquesImport.Etape.LECTURE, debut);
+                lignes[nbLignes++] = ligne;
+                if (nbLignes == tailleBloc) {
+                    valider(lignes, nbLignes, file);
+                    nbLignes = 0;
+                }
+                debut = statistiques.debut();
+            }
+            if (nbLignes > 0) {
+                valider(lignes, nbLignes, file);
+            }
+            file.put(FIN);
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<Bloc> erreur = new CompletableFuture<>();
+            erreur.completeExceptionally(e instanceof IOException ? new UncheckedIOException((IOException) e) : e);
+            try {
+                file.put(erreur);
+            } catch (InterruptedException interruption) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (InterruptedException e) {
+            //l'écriture s'est arrêtée
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Confie un bloc aux threads de validation puis l'ajoute à la file, en attendant qu'elle ait de la place
+     */
+    private void valider(String[] lignes, int nbLignes, BlockingQueue<Future<Bloc>> file) throws InterruptedException {
+        String[] bloc = Arrays.copyOf(lignes, nbLignes);
+        file.put(validation.submit(() -> new Bloc(bloc, traitement)));
+    }
+
+    private static void joindre(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bloc de lignes validé : pour chaque ligne, l'employé créé ou l'erreur. Comme dans {@link ImportParallele}, la
+     * ligne d'origine d'un employé valide n'est conservée que pour les techniciens.
+     */
+    private static final class Bloc {
+        private final String[] lignes;
+        private final Object[] resultats;
+
+        Bloc(String[] lignes, TraitementLigne traitement) {
+            this.lignes = lignes;
+            this.resultats = new Object[lignes.length];
+            for (int i = 0; i < lignes.length; i++) {
+                try {
+                    Employe employe = traitement.traiter(lignes[i]);
+                    resultats[i] = employe;
+                    if (!(employe instanceof Technicien)) {
+                        lignes[i] = null;
+                    }
+                } catch (BatchException e) {
+                    resultats[i] = e;
+                }
+            }
+        }
+
+        long restituer(long numLigne, DestinationLigne destination, RapportErreur rapport) {
+            for (int i = 0; i < resultats.length; i++) {
+                numLigne++;
+                if (resultats[i] instanceof BatchException) {
+                    rapport.rejeter(numLigne, lignes[i], (BatchException) resultats[i]);
+                } else {
+                    destination.accepter(numLigne, lignes[i], (Employe) resultats[i]);
+                }
+            }
+            return numLigne;
+        }
+    }
+}
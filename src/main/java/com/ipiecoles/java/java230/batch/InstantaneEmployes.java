@@ -0,0 +1,468 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.TechnicienException;
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.joda.time.LocalDate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Instantané binaire de l'ensemble des employés, pour recharger une base de test ou de recette bien plus vite qu'en
+ * repassant par le fichier CSV : ni expression régulière, ni analyse de date, ni conversion de nombre au chargement.
+ *
+ * Format (version 1, entiers en big-endian) :
+ * <ul>
+ *     <li>signature {@code EMPS} et version</li>
+ *     <li>dictionnaire des noms et prénoms : nombre de chaînes puis chaque chaîne en UTF-8 précédée de sa longueur</li>
+ *     <li>une section par type d'employé, managers en premier : type, longueur de la section en octets (une section
+ *     de type inconnu peut ainsi être sautée), nombre d'employés puis une colonne par attribut</li>
+ * </ul>
+ * Colonnes communes : matricule, nom et prénom (indices dans le dictionnaire, -1 si null), date d'embauche (jour
+ * depuis le 01/01/1970), salaire. Commerciaux : chiffre d'affaires et performance. Techniciens : grade (0 s'il n'en
+ * a pas) et indice du manager dans la section des managers (-1 s'il n'en a pas). Une colonne qui peut contenir des
+ * valeurs nulles est précédée d'un indicateur et, s'il est présent, d'un bitmap des valeurs nulles.
+ *
+ * Les employés sont recréés par leurs constructeurs, qui enregistrent le salaire tel quel : les setters de salaire de
+ * Manager et Technicien le transformeraient. Les identifiants ne sont pas conservés, les employés rechargés sont de
+ * nouveaux employés.
+ */
+public class InstantaneEmployes {
+
+    private static final int MAGIQUE = 0x454D5053;
+
+    private static final int VERSION = 1;
+
+    private static final byte MANAGERS = 1;
+    private static final byte COMMERCIAUX = 2;
+    private static final byte TECHNICIENS = 3;
+
+    private static final int AUCUN = -1;
+
+    private static final int SANS_GRADE = 0;
+
+    private final Map<String, Integer> dictionnaire = new HashMap<>();
+
+    private final List<String> chaines = new ArrayList<>();
+
+    private final Colonnes managers = new Colonnes();
+
+    private final Colonnes commerciaux = new Colonnes();
+
+    private final Doubles caAnnuels = new Doubles();
+
+    private final Entiers performances = new Entiers();
+
+    private final Colonnes techniciens = new Colonnes();
+
+    private final Entiers grades = new Entiers();
+
+    private final List<String> managersTechniciens = new ArrayList<>();
+
+    /**
+     * Ajoute un employé à l'instantané. Le manager d'un technicien est retrouvé par son matricule parmi les managers
+     * de l'instantané.
+     */
+    public void ajouter(Employe employe) {
+        if (employe instanceof Manager) {
+            managers.ajouter(employe);
+        } else if (employe instanceof Commercial) {
+            Commercial commercial = (Commercial) employe;
+            commerciaux.ajouter(employe);
+            caAnnuels.ajouter(commercial.getCaAnnuel());
+            performances.ajouter(commercial.getPerformance());
+        } else if (employe instanceof Technicien) {
+            Technicien technicien = (Technicien) employe;
+            techniciens.ajouter(employe);
+            grades.ajouter(technicien.getGrade() == null ? SANS_GRADE : technicien.getGrade());
+            managersTechniciens.add(technicien.getManager() == null ? null : technicien.getManager().getMatricule());
+        } else {
+            throw new IllegalArgumentException("Type d'employé inconnu : " + employe.getClass().getName());
+        }
+    }
+
+    public int getNbEmployes() {
+        return managers.matricules.size() + commerciaux.matricules.size() + techniciens.matricules.size();
+    }
+
+    public void ecrire(Path fichier) throws IOException {
+        try (OutputStream out = Files.newOutputStream(fichier)) {
+            ecrire(out);
+        }
+    }
+
+    public void ecrire(OutputStream sortie) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sortie, 64 * 1024));
+        out.writeInt(MAGIQUE);
+        out.writeInt(VERSION);
+        out.writeInt(chaines.size());
+        for (String chaine : chaines) {
+            ecrireChaine(out, chaine);
+        }
+
+        ByteArrayOutputStream tampon = new ByteArrayOutputStream();
+        DataOutputStream section = new DataOutputStream(tampon);
+        managers.ecrire(section);
+        ecrireSection(out, MANAGERS, tampon);
+
+        commerciaux.ecrire(section);
+        caAnnuels.ecrire(section);
+        performances.ecrire(section);
+        ecrireSection(out, COMMERCIAUX, tampon);
+
+        Map<String, Integer> indicesManagers = new HashMap<>(managers.matricules.size() * 2);
+        for (int i = 0; i < managers.matricules.size(); i++) {
+            indicesManagers.put(managers.matricules.get(i), i);
+        }
+        techniciens.ecrire(section);
+        for (int i = 0; i < grades.taille; i++) {
+            section.writeByte(grades.valeurs[i]);
+        }
+        for (String matricule : managersTechniciens) {
+            Integer indice = matricule == null ? null : indicesManagers.get(matricule);
+            if (matricule != null && indice == null) {
+                throw new IllegalStateException("Le manager " + matricule + " n'est pas dans l'instantané");
+            }
+            section.writeInt(indice == null ? AUCUN : indice);
+        }
+        ecrireSection(out, TECHNICIENS, tampon);
+        out.flush();
+    }
+
+    private static void ecrireSection(DataOutputStream out, byte type, ByteArrayOutputStream section) throws IOException {
+        out.writeByte(type);
+        out.writeInt(section.size());
+        section.writeTo(out);
+        section.reset();
+    }
+
+    /**
+     * Charge un instantané en mémoire, équipes des managers comprises
+     * @return les managers, puis les commerciaux, puis les techniciens
+     */
+    public static List<Employe> lire(Path fichier) throws IOException {
+        List<Employe> employes = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(fichier)) {
+            lire(in, employes::add, true);
+        }
+        return employes;
+    }
+
+    /**
+     * Transmet les employés d'un instantané section par section, managers en premier : un technicien
+     * référence toujours un manager déjà transmis. Seul le technicien porte le lien avec son manager (c'est le côté
+     * enregistré en base), l'équipe des managers n'est pas remplie pour ne pas garder tous les techniciens en
+     * mémoire.
+     * @return le nombre d'employés transmis
+     * @throws IOException si le fichier n'est pas un instantané ou est tronqué
+     */
+    public static long lire(Path fichier, Consumer<Employe> destination) throws IOException {
+        try (InputStream in = Files.newInputStream(fichier)) {
+            return lire(in, destination, false);
+        }
+    }
+
+    /**
+     * @return vrai si le fichier commence par la signature d'un instantané
+     */
+    public static boolean estInstantane(Path fichier) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(fichier))) {
+            return Files.size(fichier) >= 4 && in.readInt() == MAGIQUE;
+        }
+    }
+
+    static long lire(InputStream entree, Consumer<Employe> destination, boolean equipes) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(entree, 64 * 1024));
+        if (in.readInt() != MAGIQUE) {
+            throw new IOException("Le fichier n'est pas un instantané d'employés");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Version d'instantané non supportée : " + version);
+        }
+        String[] dictionnaire = new String[in.readInt()];
+        for (int i = 0; i < dictionnaire.length; i++) {
+            dictionnaire[i] = lireChaine(in);
+        }
+
+        Manager[] managers = new Manager[0];
+        long nbEmployes = 0;
+        int type;
+        while ((type = in.read()) >= 0) {
+            int longueur = in.readInt();
+            switch (type) {
+                case MANAGERS:
+                    Communs communs = new Communs(in, dictionnaire);
+                    managers = new Manager[communs.taille];
+                    for (int i = 0; i < communs.taille; i++) {
+                        managers[i] = new Manager(communs.noms[i], communs.prenoms[i], communs.matricules[i],
+                                communs.dates[i], communs.salaires[i], new HashSet<>());
+                        destination.accept(managers[i]);
+                    }
+                    nbEmployes += communs.taille;
+                    break;
+                case COMMERCIAUX:
+                    communs = new Communs(in, dictionnaire);
+                    Double[] caAnnuels = Doubles.lire(in, communs.taille);
+                    Integer[] performances = Entiers.lire(in, communs.taille);
+                    for (int i = 0; i < communs.taille; i++) {
+                        destination.accept(new Commercial(communs.noms[i], communs.prenoms[i], communs.matricules[i],
+                                communs.dates[i], communs.salaires[i], caAnnuels[i], performances[i]));
+                    }
+                    nbEmployes += communs.taille;
+                    break;
+                case TECHNICIENS:
+                    communs = new Communs(in, dictionnaire);
+                    byte[] grades = new byte[communs.taille];
+                    in.readFully(grades);
+                    int[] indicesManagers = new int[communs.taille];
+                    for (int i = 0; i < communs.taille; i++) {
+                        indicesManagers[i] = in.readInt();
+                    }
+                    for (int i = 0; i < communs.taille; i++) {
+                        Technicien technicien = technicien(communs, i, grades[i]);
+                        if (indicesManagers[i] != AUCUN) {
+                            Manager manager = managers[indicesManagers[i]];
+                            technicien.setManager(manager);
+                            if (equipes) {
+                                manager.ajoutTechnicienEquipe(technicien);
+                            }
+                        }
+                        destination.accept(technicien);
+                    }
+                    nbEmployes += communs.taille;
+                    break;
+                default:
+                    //section ajoutée par une version ultérieure
+                    in.readFully(new byte[longueur]);
+            }
+        }
+        return nbEmployes;
+    }
+
+    private static Technicien technicien(Communs communs, int i, int grade) throws IOException {
+        if (grade == SANS_GRADE) {
+            return new Technicien(communs.noms[i], communs.prenoms[i], communs.matricules[i], communs.dates[i],
+                    communs.salaires[i]);
+        }
+        try {
+            return new Technicien(communs.noms[i], communs.prenoms[i], communs.matricules[i], communs.dates[i],
+                    communs.salaires[i], grade);
+        } catch (TechnicienException e) {
+            throw new IOException("Grade invalide dans l'instantané pour le technicien " + communs.matricules[i]);
+        }
+    }
+
+    private int indice(String chaine) {
+        if (chaine == null) {
+            return AUCUN;
+        }
+        Integer indice = dictionnaire.get(chaine);
+        if (indice == null) {
+            indice = chaines.size();
+            chaines.add(chaine);
+            dictionnaire.put(chaine, indice);
+        }
+        return indice;
+    }
+
+    private static void ecrireChaine(DataOutputStream out, String chaine) throws IOException {
+        if (chaine == null) {
+            out.writeInt(AUCUN);
+            return;
+        }
+        byte[] octets = chaine.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(octets.length);
+        out.write(octets);
+    }
+
+    private static String lireChaine(DataInputStream in) throws IOException {
+        int longueur = in.readInt();
+        if (longueur == AUCUN) {
+            return null;
+        }
+        byte[] octets = new byte[longueur];
+        in.readFully(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Bitmap des valeurs nulles d'une colonne, écrit seulement s'il y en a
+     */
+    private static void ecrireNuls(DataOutputStream out, BitSet nuls) throws IOException {
+        if (nuls.isEmpty()) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        byte[] octets = nuls.toByteArray();
+        out.writeInt(octets.length);
+        out.write(octets);
+    }
+
+    private static BitSet lireNuls(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return new BitSet();
+        }
+        byte[] octets = new byte[in.readInt()];
+        in.readFully(octets);
+        return BitSet.valueOf(octets);
+    }
+
+    /**
+     * Colonnes communes à tous les employés d'une section, en cours de construction
+     */
+    private final class Colonnes {
+        private final List<String> matricules = new ArrayList<>();
+        private final Entiers noms = new Entiers();
+        private final Entiers prenoms = new Entiers();
+        private final Entiers dates = new Entiers();
+        private final Doubles salaires = new Doubles();
+
+        void ajouter(Employe employe) {
+            matricules.add(employe.getMatricule());
+            noms.ajouter(indice(employe.getNom()));
+            prenoms.ajouter(indice(employe.getPrenom()));
+            LocalDate date = employe.getDateEmbauche();
+            dates.ajouter(date == null ? null : AnalyseurDate.jour(date));
+            salaires.ajouter(employe.getSalaire());
+        }
+
+        void ecrire(DataOutputStream out) throws IOException {
+            out.writeInt(matricules.size());
+            for (String matricule : matricules) {
+                ecrireChaine(out, matricule);
+            }
+            noms.ecrire(out);
+            prenoms.ecrire(out);
+            dates.ecrire(out);
+            salaires.ecrire(out);
+        }
+    }
+
+    /**
+     * Colonnes communes d'une section, relues
+     */
+    private static final class Communs {
+        private final int taille;
+        private final String[] matricules;
+        private final String[] noms;
+        private final String[] prenoms;
+        private final LocalDate[] dates;
+        private final Double[] salaires;
+
+        Communs(DataInputStream in, String[] dictionnaire) throws IOException {
+            taille = in.readInt();
+            matricules = new String[taille];
+            for (int i = 0; i < taille; i++) {
+                matricules[i] = lireChaine(in);
+            }
+            noms = chaines(Entiers.lire(in, taille), dictionnaire);
+            prenoms = chaines(Entiers.lire(in, taille), dictionnaire);
+            Integer[] jours = Entiers.lire(in, taille);
+            dates = new LocalDate[taille];
+            for (int i = 0; i < taille; i++) {
+                dates[i] = jours[i] == null ? null : AnalyseurDate.date(jours[i]);
+            }
+            salaires = Doubles.lire(in, taille);
+        }
+
+        private static String[] chaines(Integer[] indices, String[] dictionnaire) {
+            String[] chaines = new String[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                chaines[i] = indices[i] == AUCUN ? null : dictionnaire[indices[i]];
+            }
+            return chaines;
+        }
+    }
+
+    private static final class Entiers {
+        private int[] valeurs = new int[64];
+        private final BitSet nuls = new BitSet();
+        private int taille = 0;
+
+        void ajouter(Integer valeur) {
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            if (valeur == null) {
+                nuls.set(taille);
+            } else {
+                valeurs[taille] = valeur;
+            }
+            taille++;
+        }
+
+        void ecrire(DataOutputStream out) throws IOException {
+            ecrireNuls(out, nuls);
+            for (int i = 0; i < taille; i++) {
+                out.writeInt(valeurs[i]);
+            }
+        }
+
+        static Integer[] lire(DataInputStream in, int taille) throws IOException {
+            BitSet nuls = lireNuls(in);
+            Integer[] valeurs = new Integer[taille];
+            for (int i = 0; i < taille; i++) {
+                int valeur = in.readInt();
+                valeurs[i] = nuls.get(i) ? null : valeur;
+            }
+            return valeurs;
+        }
+    }
+
+    private static final class Doubles {
+        private double[] valeurs = new double[64];
+        private final BitSet nuls = new BitSet();
+        private int taille = 0;
+
+        void ajouter(Double valeur) {
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            if (valeur == null) {
+                nuls.set(taille);
+            } else {
+                valeurs[taille] = valeur;
+            }
+            taille++;
+        }
+
+        void ecrire(DataOutputStream out) throws IOException {
+            ecrireNuls(out, nuls);
+            for (int i = 0; i < taille; i++) {
+                out.writeDouble(valeurs[i]);
+            }
+        }
+
+        static Double[] lire(DataInputStream in, int taille) throws IOException {
+            BitSet nuls = lireNuls(in);
+            Double[] valeurs = new Double[taille];
+            for (int i = 0; i < taille; i++) {
+                double valeur = in.readDouble();
+                valeurs[i] = nuls.get(i) ? null : valeur;
+            }
+            return valeurs;
+        }
+    }
+}
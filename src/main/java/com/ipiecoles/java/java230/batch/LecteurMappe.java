@@ -0,0 +1,127 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Technicien;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lecture d'un fichier CSV projeté en mémoire avec {@link FileChannel#map}. Les fins de ligne et les champs sont
+ * repérés directement sur les octets et l'analyseur travaille sur une vue de la ligne (voir {@link LigneOctets}) :
+ * il n'y a ni décodage du fichier en UTF-16 ni String par ligne, seuls les champs conservés (matricule, nom, prénom...)
+ * sont décodés.
+ *
+ * Un buffer projeté étant limité à 2 Go, le fichier est projeté par régions successives. Chaque région commence sur un
+ * début de ligne ; la ligne incomplète en fin de région est relue au début de la région suivante.
+ *
+ * Le lecteur tient à jour sa position de lecture, consultable pendant les appels à la destination, et peut reprendre
+ * la lecture à une position donnée (voir {@link PointDeReprise}).
+ */
+public class LecteurMappe {
+
+    private static final long TAILLE_REGION_DEFAUT = 1L << 30;
+
+    private final AnalyseurLigne analyseur;
+
+    private final long tailleRegion;
+
+    private long position = 0;
+
+    private long numLigne = 0;
+
+    public LecteurMappe(AnalyseurLigne analyseur) {
+        this(analyseur, TAILLE_REGION_DEFAUT);
+    }
+
+    LecteurMappe(AnalyseurLigne analyseur, long tailleRegion) {
+        this.analyseur = analyseur;
+        this.tailleRegion = tailleRegion;
+    }
+
+    /**
+     * Positionne le lecteur au début d'une ligne, pour reprendre la lecture d'un fichier déjà en partie lu
+     * @param position la position du début de la ligne, en octets
+     * @param numLigne le numéro de la ligne qui précède
+     */
+    public void positionner(long position, long numLigne) {
+        this.position = position;
+        this.numLigne = numLigne;
+    }
+
+    /**
+     * @return la position qui suit la dernière ligne lue : pendant l'appel à la destination, celle qui suit la ligne
+     * transmise
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return le numéro de la dernière ligne lue
+     */
+    public long getNumLigne() {
+        return numLigne;
+    }
+
+    /**
+     * Lit et analyse le fichier ligne par ligne, à partir de la position courante
+     * @param chemin le fichier à lire
+     * @param destination reçoit les employés valides (la ligne d'origine n'est fournie que pour les techniciens)
+     * @param rapport reçoit les lignes rejetées
+     * @return le numéro de la dernière ligne lue, c'est-à-dire le nombre de lignes du fichier
+     * @throws IOException si le fichier ne peut pas être lu ou contient une ligne plus grande qu'une région
+     */
+    public long lire(Path chemin, DestinationLigne destination, RapportErreur rapport) throws IOException {
+        try (FileChannel channel = FileChannel.open(chemin, StandardOpenOption.READ)) {
+            long taille = channel.size();
+            long debutRegion = position;
+            while (debutRegion < taille) {
+                int longueur = (int) Math.min(tailleRegion, taille - debutRegion);
+                boolean derniereRegion = debutRegion + longueur == taille;
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, debutRegion, longueur);
+                LigneOctets ligne = new LigneOctets(region);
+
+                int debutLigne = 0;
+                for (int i = 0; i < longueur; i++) {
+                    if (region.get(i) == '\n') {
+                        position = debutRegion + i + 1;
+                        traiter(ligne, region, debutLigne, i, ++numLigne, destination, rapport);
+                        debutLigne = i + 1;
+                    }
+                }
+                if (derniereRegion) {
+                    if (debutLigne < longueur) {
+                        position = taille;
+                        traiter(ligne, region, debutLigne, longueur, ++numLigne, destination, rapport);
+                    }
+                    debutRegion = taille;
+                } else if (debutLigne == 0) {
+                    throw new IOException("La ligne " + (numLigne + 1) + " dépasse " + tailleRegion + " octets");
+                } else {
+                    debutRegion += debutLigne;
+                }
+            }
+            return numLigne;
+        }
+    }
+
+    private void traiter(LigneOctets ligne, MappedByteBuffer region, int debut, int fin, long numLigne,
+                         DestinationLigne destination, RapportErreur rapport) {
+        //même comportement que BufferedReader.readLine pour les fins de ligne Windows
+        if (fin > debut && region.get(fin - 1) == '\r') {
+            fin--;
+        }
+        ligne.positionner(debut, fin);
+        try {
+            Employe employe = analyseur.analyser(ligne);
+            destination.accepter(numLigne, employe instanceof Technicien ? ligne.toString() : null, employe);
+        } catch (BatchException e) {
+            rapport.rejeter(numLigne, ligne.toString(), e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ipiecoles.java.java230.batch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Vue d'une ligne encodée en UTF-8 dans un buffer d'octets, lue comme une suite de caractères sans décodage
+ * préalable. charAt renvoie l'octet tel quel, ce qui suffit pour les séparateurs, chiffres et lettres ASCII que
+ * l'analyseur contrôle (en UTF-8, un octet ASCII n'apparaît jamais à l'intérieur d'un caractère multi-octets) ;
+ * seul toString décode réellement, et n'est appelé que pour les champs conservés ou les messages d'erreur.
+ */
+class LigneOctets implements CharSequence {
+
+    private final ByteBuffer buffer;
+
+    private int debut;
+
+    private int fin;
+
+    LigneOctets(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    private LigneOctets(ByteBuffer buffer, int debut, int fin) {
+        this.buffer = buffer;
+        this.debut = debut;
+        this.fin = fin;
+    }
+
+    /**
+     * Fait pointer la vue sur une autre ligne du même buffer
+     */
+    void positionner(int debut, int fin) {
+        this.debut = debut;
+        this.fin = fin;
+    }
+
+    @Override
+    public int length() {
+        return fin - debut;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(debut + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new LigneOctets(buffer, debut + start, debut + end);
+    }
+
+    @Override
+    public String toString() {
+        byte[] octets = new byte[fin - debut];
+        for (int i = 0; i < octets.length; i++) {
+            octets[i] = buffer.get(debut + i);
+        }
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,238 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Entreprise;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.joda.time.LocalDate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Calcul en masse de la prime annuelle, de l'ancienneté et du nombre de jours de congés de tout le personnel, à une
+ * date de référence unique.
+ *
+ * Les méthodes des entités (getPrimeAnnuelle, getNombreAnneeAnciennete, getNbConges) relisent la date du jour à
+ * chaque appel, et Manager.getPrimeAnnuelle parcourt son équipe : sur tout le personnel, les constantes de l'année
+ * sont recalculées pour chaque employé et un calcul à cheval sur le 31 décembre mélange deux années. Ici, l'année de
+ * référence et la prime de base sont calculées une fois, et les employés ajoutés sont rangés dans des colonnes de
+ * types primitifs (type, année d'embauche, grade, chiffre d'affaires, manager), parcourues par {@link #calculer()}.
+ *
+ * Les résultats sont ceux des méthodes des entités à la date de référence, avec les mêmes expressions en virgule
+ * flottante évaluées dans le même ordre. L'équipe d'un manager est formée des techniciens ajoutés qui le désignent
+ * comme manager (par matricule) : elle correspond à Manager.getEquipe quand tout le personnel est ajouté.
+ */
+public class PaieAnnuelle implements Consumer<Employe> {
+
+    public static final byte MANAGER = 1;
+    public static final byte COMMERCIAL = 2;
+    public static final byte TECHNICIEN = 3;
+
+    private static final int CAPACITE_DEFAUT = 1024;
+
+    private final LocalDate dateReference;
+
+    private final int annee;
+
+    private final double primeBase;
+
+    private int taille = 0;
+
+    private String[] matricules;
+    private byte[] types;
+    private int[] anneesEmbauche;
+    private byte[] grades;
+    private double[] caAnnuels;
+    private String[] matriculesManagers;
+
+    private double[] primes;
+    private int[] anciennetes;
+    private int[] conges;
+    private int[] tailleEquipes;
+
+    /**
+     * @param dateReference la date à laquelle les primes, anciennetés et congés sont calculés
+     */
+    public PaieAnnuelle(LocalDate dateReference) {
+        this(dateReference, CAPACITE_DEFAUT);
+    }
+
+    /**
+     * @param dateReference la date à laquelle les primes, anciennetés et congés sont calculés
+     * @param capacite le nombre d'employés attendu, pour dimensionner les colonnes dès le départ
+     */
+    public PaieAnnuelle(LocalDate dateReference, int capacite) {
+        this.dateReference = dateReference;
+        this.annee = dateReference.getYear();
+        //même expression que Entreprise.primeAnnuelleBase
+        this.primeBase = annee * 0.5;
+        capacite = Math.max(capacite, 16);
+        this.matricules = new String[capacite];
+        this.types = new byte[capacite];
+        this.anneesEmbauche = new int[capacite];
+        this.grades = new byte[capacite];
+        this.caAnnuels = new double[capacite];
+        this.matriculesManagers = new String[capacite];
+    }
+
+    /**
+     * Ajoute un employé au calcul
+     * @throws IllegalArgumentException si l'employé n'a pas de date d'embauche, s'il s'agit d'un technicien sans grade
+     * ou d'un commercial sans chiffre d'affaires (la méthode de l'entité échouerait également)
+     */
+    @Override
+    public void accept(Employe employe) {
+        if (employe.getDateEmbauche() == null) {
+            throw new IllegalArgumentException("L'employé " + employe.getMatricule() + " n'a pas de date d'embauche");
+        }
+        if (taille == types.length) {
+            agrandir();
+        }
+        matricules[taille] = employe.getMatricule();
+        anneesEmbauche[taille] = employe.getDateEmbauche().getYear();
+        if (employe instanceof Manager) {
+            types[taille] = MANAGER;
+        } else if (employe instanceof Commercial) {
+            Double caAnnuel = ((Commercial) employe).getCaAnnuel();
+            if (caAnnuel == null) {
+                throw new IllegalArgumentException("Le commercial " + employe.getMatricule()
+                        + " n'a pas de chiffre d'affaires");
+            }
+            types[taille] = COMMERCIAL;
+            caAnnuels[taille] = caAnnuel;
+        } else if (employe instanceof Technicien) {
+            Technicien technicien = (Technicien) employe;
+            if (technicien.getGrade() == null) {
+                throw new IllegalArgumentException("Le technicien " + employe.getMatricule() + " n'a pas de grade");
+            }
+            types[taille] = TECHNICIEN;
+            grades[taille] = technicien.getGrade().byteValue();
+            matriculesManagers[taille] = technicien.getManager() == null ? null : technicien.getManager().getMatricule();
+        } else {
+            throw new IllegalArgumentException("Type d'employé inconnu : " + employe.getClass().getSimpleName());
+        }
+        taille++;
+    }
+
+    /**
+     * Calcule la prime, l'ancienneté et les congés de tous les employés ajoutés. Peut être rappelée après de nouveaux
+     * ajouts.
+     */
+    public void calculer() {
+        primes = new double[taille];
+        anciennetes = new int[taille];
+        conges = new int[taille];
+        tailleEquipes = compterEquipes();
+        double primeParTechnicien = Entreprise.PRIME_MANAGER_PAR_TECHNICIEN;
+        double primeAnciennete = Entreprise.PRIME_ANCIENNETE;
+        int congesBase = Entreprise.NB_CONGES_BASE;
+        for (int i = 0; i < taille; i++) {
+            int anciennete = annee - anneesEmbauche[i];
+            anciennetes[i] = anciennete;
+            switch (types[i]) {
+                case MANAGER:
+                    primes[i] = primeBase + tailleEquipes[i] * primeParTechnicien;
+                    conges[i] = congesBase;
+                    break;
+                case COMMERCIAL:
+                    primes[i] = Math.max(Math.ceil(caAnnuels[i] * 0.05), 500);
+                    conges[i] = congesBase;
+                    break;
+                default:
+                    primes[i] = primeBase + primeBase * (1 + (double) grades[i] / 10) + primeAnciennete * anciennete;
+                    conges[i] = congesBase + anciennete;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Nombre de techniciens ajoutés rattachés à chaque manager ajouté, 0 pour les autres employés
+     */
+    private int[] compterEquipes() {
+        Map<String, Integer> indexManagers = new HashMap<>();
+        for (int i = 0; i < taille; i++) {
+            if (types[i] == MANAGER) {
+                indexManagers.put(matricules[i], i);
+            }
+        }
+        int[] equipes = new int[taille];
+        for (int i = 0; i < taille; i++) {
+            if (matriculesManagers[i] != null) {
+                Integer manager = indexManagers.get(matriculesManagers[i]);
+                if (manager != null) {
+                    equipes[manager]++;
+                }
+            }
+        }
+        return equipes;
+    }
+
+    private void agrandir() {
+        int capacite = types.length * 2;
+        matricules = Arrays.copyOf(matricules, capacite);
+        types = Arrays.copyOf(types, capacite);
+        anneesEmbauche = Arrays.copyOf(anneesEmbauche, capacite);
+        grades = Arrays.copyOf(grades, capacite);
+        caAnnuels = Arrays.copyOf(caAnnuels, capacite);
+        matriculesManagers = Arrays.copyOf(matriculesManagers, capacite);
+    }
+
+    private void verifierCalcul() {
+        if (primes == null || primes.length != taille) {
+            throw new IllegalStateException("calculer() doit être appelée après le dernier ajout");
+        }
+    }
+
+    public LocalDate getDateReference() {
+        return dateReference;
+    }
+
+    public int getTaille() {
+        return taille;
+    }
+
+    public String getMatricule(int i) {
+        return matricules[i];
+    }
+
+    public byte getType(int i) {
+        return types[i];
+    }
+
+    public double getPrimeAnnuelle(int i) {
+        verifierCalcul();
+        return primes[i];
+    }
+
+    public int getNombreAnneeAnciennete(int i) {
+        verifierCalcul();
+        return anciennetes[i];
+    }
+
+    public int getNbConges(int i) {
+        verifierCalcul();
+        return conges[i];
+    }
+
+    public int getTailleEquipe(int i) {
+        verifierCalcul();
+        return tailleEquipes[i];
+    }
+
+    /**
+     * @return la somme des primes annuelles de tous les employés, dans l'ordre d'ajout
+     */
+    public double getTotalPrimes() {
+        verifierCalcul();
+        double total = 0;
+        for (int i = 0; i < taille; i++) {
+            total += primes[i];
+        }
+        return total;
+    }
+}
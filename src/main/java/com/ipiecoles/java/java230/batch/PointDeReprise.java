@@ -0,0 +1,234 @@
+package com.ipiecoles.java.java230.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.zip.CRC32;
+
+/**
+ * Point de reprise d'un import : position dans le fichier (octet et numéro de ligne) jusqu'à laquelle tous les
+ * employés valides sont enregistrés en base, à l'exception des techniciens encore en attente de leur manager dont les
+ * lignes sont conservées dans le point de reprise.
+ *
+ * Le point de reprise est écrit à côté du fichier importé ({@code <fichier>.reprise}) dans la transaction de chaque
+ * lot, juste avant sa validation. Il porte l'identifiant du dernier employé du lot : au redémarrage, si cet employé
+ * n'est pas en base, la transaction n'a pas été validée et c'est le point de reprise précédent
+ * ({@code <fichier>.reprise.precedent}) qui s'applique. Chaque écriture passe par un fichier temporaire synchronisé
+ * sur le disque puis renommé, un point de reprise n'est donc jamais lu à moitié écrit.
+ *
+ * Le fichier importé est identifié par sa taille et une empreinte CRC32 de son début et de sa fin : un point de reprise
+ * écrit pour un autre fichier est ignoré.
+ */
+public class PointDeReprise {
+
+    private static final int MAGIQUE = 0x52455052;
+
+    private static final int VERSION = 1;
+
+    private static final int TAILLE_ECHANTILLON = 1 << 20;
+
+    private final long tailleFichier;
+
+    private final long empreinte;
+
+    private final long position;
+
+    private final long numLigne;
+
+    private final long numLot;
+
+    private final long temoin;
+
+    private final Map<Long, String> lignesEnAttente;
+
+    /**
+     * @param tailleFichier la taille du fichier importé
+     * @param empreinte l'empreinte du fichier importé, voir {@link #empreinte(Path)}
+     * @param position la position, en octets, du début de la première ligne à relire
+     * @param numLigne le numéro de la dernière ligne traitée
+     * @param numLot le numéro du lot dont la validation rend ce point de reprise valable
+     * @param temoin l'identifiant du dernier employé de ce lot, 0 si le lot est vide
+     * @param lignesEnAttente les lignes des techniciens acceptés mais pas encore enregistrés, par numéro de ligne
+     */
+    public PointDeReprise(long tailleFichier, long empreinte, long position, long numLigne, long numLot, long temoin,
+                          Map<Long, String> lignesEnAttente) {
+        this.tailleFichier = tailleFichier;
+        this.empreinte = empreinte;
+        this.position = position;
+        this.numLigne = numLigne;
+        this.numLot = numLot;
+        this.temoin = temoin;
+        this.lignesEnAttente = lignesEnAttente;
+    }
+
+    /**
+     * Calcule l'empreinte d'un fichier à partir de sa taille et de son premier et dernier mégaoctet, sans relire tout
+     * le fichier
+     */
+    public static long empreinte(Path fichier) throws IOException {
+        try (FileChannel channel = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long taille = channel.size();
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(TAILLE_ECHANTILLON);
+            buffer.putLong(taille).flip();
+            crc.update(buffer);
+            echantillon(channel, 0, crc, buffer);
+            if (taille > TAILLE_ECHANTILLON) {
+                echantillon(channel, Math.max(TAILLE_ECHANTILLON, taille - TAILLE_ECHANTILLON), crc, buffer);
+            }
+            return crc.getValue();
+        }
+    }
+
+    private static void echantillon(FileChannel channel, long debut, CRC32 crc, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        long position = debut;
+        int lu;
+        while (buffer.hasRemaining() && (lu = channel.read(buffer, position)) > 0) {
+            position += lu;
+        }
+        buffer.flip();
+        crc.update(buffer);
+    }
+
+    /**
+     * Cherche le point de reprise valable pour un fichier
+     * @param fichier le fichier importé
+     * @param tailleFichier sa taille actuelle
+     * @param empreinte son empreinte actuelle
+     * @param estEnregistre indique si l'employé d'identifiant donné est en base
+     * @return le dernier point de reprise dont le lot a été validé, ou null s'il faut importer le fichier depuis le
+     * début
+     * @throws IOException si un point de reprise existe mais ne peut pas être lu
+     */
+    public static PointDeReprise charger(Path fichier, long tailleFichier, long empreinte, LongPredicate estEnregistre)
+            throws IOException {
+        PointDeReprise reprise = lire(fichierReprise(fichier));
+        if (reprise != null && reprise.temoin != 0 && !estEnregistre.test(reprise.temoin)) {
+            //supprimé pour que le prochain point de reprise ne remplace pas son prédécesseur par ce point non valable
+            Files.delete(fichierReprise(fichier));
+            reprise = null;
+        }
+        if (reprise == null) {
+            //le dernier lot n'a pas été validé : son prédécesseur l'a forcément été
+            reprise = lire(fichierPrecedent(fichier));
+        }
+        if (reprise != null && (reprise.tailleFichier != tailleFichier || reprise.empreinte != empreinte)) {
+            return null;
+        }
+        return reprise;
+    }
+
+    /**
+     * Enregistre ce point de reprise, le précédent étant conservé jusqu'à la validation du lot
+     * @param fichier le fichier importé
+     */
+    public void enregistrer(Path fichier) throws IOException {
+        Path reprise = fichierReprise(fichier);
+        Path temporaire = reprise.resolveSibling(reprise.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaire, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIQUE);
+            out.writeInt(VERSION);
+            out.writeLong(tailleFichier);
+            out.writeLong(empreinte);
+            out.writeLong(position);
+            out.writeLong(numLigne);
+            out.writeLong(numLot);
+            out.writeLong(temoin);
+            out.writeInt(lignesEnAttente.size());
+            for (Map.Entry<Long, String> ligne : lignesEnAttente.entrySet()) {
+                byte[] octets = ligne.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeLong(ligne.getKey());
+                out.writeInt(octets.length);
+                out.write(octets);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        if (Files.exists(reprise)) {
+            Files.move(reprise, fichierPrecedent(fichier), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(temporaire, reprise, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return vrai si un import du fichier a été interrompu et a laissé un point de reprise
+     */
+    public static boolean existe(Path fichier) {
+        return Files.exists(fichierReprise(fichier)) || Files.exists(fichierPrecedent(fichier));
+    }
+
+    /**
+     * Supprime les points de reprise d'un fichier, à appeler une fois son import terminé
+     */
+    public static void supprimer(Path fichier) throws IOException {
+        Files.deleteIfExists(fichierReprise(fichier));
+        Files.deleteIfExists(fichierPrecedent(fichier));
+    }
+
+    private static PointDeReprise lire(Path reprise) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(reprise)))) {
+            if (in.readInt() != MAGIQUE || in.readInt() != VERSION) {
+                throw new IOException("Le fichier " + reprise + " n'est pas un point de reprise");
+            }
+            long tailleFichier = in.readLong();
+            long empreinte = in.readLong();
+            long position = in.readLong();
+            long numLigne = in.readLong();
+            long numLot = in.readLong();
+            long temoin = in.readLong();
+            int nbLignes = in.readInt();
+            Map<Long, String> lignesEnAttente = new LinkedHashMap<>(nbLignes * 2);
+            for (int i = 0; i < nbLignes; i++) {
+                long num = in.readLong();
+                byte[] octets = new byte[in.readInt()];
+                in.readFully(octets);
+                lignesEnAttente.put(num, new String(octets, StandardCharsets.UTF_8));
+            }
+            return new PointDeReprise(tailleFichier, empreinte, position, numLigne, numLot, temoin, lignesEnAttente);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    static Path fichierReprise(Path fichier) {
+        return fichier.resolveSibling(fichier.getFileName() + ".reprise");
+    }
+
+    static Path fichierPrecedent(Path fichier) {
+        return fichier.resolveSibling(fichier.getFileName() + ".reprise.precedent");
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getNumLigne() {
+        return numLigne;
+    }
+
+    public long getNumLot() {
+        return numLot;
+    }
+
+    public Map<Long, String> getLignesEnAttente() {
+        return lignesEnAttente;
+    }
+}
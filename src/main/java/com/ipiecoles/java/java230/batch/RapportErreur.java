@@ -0,0 +1,11 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+
+/**
+ * Destination des lignes rejetées lors d'un import, appelée dans l'ordre du fichier.
+ */
+@FunctionalInterface
+public interface RapportErreur {
+    void rejeter(long numLigne, String ligne, BatchException e);
+}
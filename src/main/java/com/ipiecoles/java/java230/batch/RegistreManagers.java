@@ -0,0 +1,172 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Registre des managers connus pendant un import, qui rattache chaque technicien à son manager sans requête en base.
+ *
+ * Les managers déjà en base sont chargés une seule fois (matricule et identifiant), ceux du fichier sont ajoutés au
+ * fur et à mesure que leurs lignes sont acceptées. Un technicien dont le manager n'est pas encore connu est mis en
+ * attente : il est rattaché lors d'une seconde passe, en fin de fichier, si le manager a été déclaré plus loin.
+ *
+ * Les techniciens issus de l'analyse d'une ligne portent un manager provisoire qui ne contient que le matricule lu.
+ */
+public class RegistreManagers implements DestinationLigne {
+
+    private final Map<String, Long> managersBase;
+
+    private final Map<String, Manager> managersFichier = new HashMap<>();
+
+    private final Map<String, Manager> referencesBase = new HashMap<>();
+
+    private final List<TechnicienEnAttente> enAttente = new ArrayList<>();
+
+    private final Consumer<Employe> destination;
+
+    private final RapportErreur rapport;
+
+    private int nbEnAttenteTraites = 0;
+
+    private long nbAcceptes = 0;
+
+    private StatistiquesImport statistiques = StatistiquesImport.INACTIVES;
+
+    /**
+     * @param managersBase les managers présents en base, matricule vers identifiant
+     * @param destination reçoit les employés acceptés
+     * @param rapport reçoit les techniciens dont le manager est introuvable
+     */
+    public RegistreManagers(Map<String, Long> managersBase, Consumer<Employe> destination, RapportErreur rapport) {
+        this.managersBase = managersBase;
+        this.destination = destination;
+        this.rapport = rapport;
+    }
+
+    /**
+     * Construit la table matricule vers identifiant à partir du résultat de
+     * {@link com.ipiecoles.java.java230.repository.ManagerRepository#findAllMatriculeAndId()}
+     */
+    public static Map<String, Long> indexer(List<Object[]> matriculesEtIds) {
+        Map<String, Long> managers = new HashMap<>(matriculesEtIds.size() * 2);
+        for (Object[] matriculeEtId : matriculesEtIds) {
+            managers.put((String) matriculeEtId[0], (Long) matriculeEtId[1]);
+        }
+        return managers;
+    }
+
+    @Override
+    public void accepter(long numLigne, String ligne, Employe employe) {
+        if (employe instanceof Manager) {
+            managersFichier.put(employe.getMatricule(), (Manager) employe);
+        } else if (employe instanceof Technicien && !rattacher((Technicien) employe)) {
+            enAttente.add(new TechnicienEnAttente(numLigne, ligne, (Technicien) employe));
+            return;
+        }
+        transmettre(employe);
+    }
+
+    /**
+     * Seconde passe, à appeler en fin de fichier : rattache les techniciens en attente aux managers déclarés après eux
+     * et rejette ceux dont le manager n'existe ni dans le fichier ni en base.
+     */
+    public void terminer() {
+        while (nbEnAttenteTraites < enAttente.size()) {
+            //retiré de l'attente avant d'être transmis, voir getLignesEnAttente
+            TechnicienEnAttente attente = enAttente.get(nbEnAttenteTraites++);
+            if (rattacher(attente.technicien)) {
+                transmettre(attente.technicien);
+            } else {
+                rapport.rejeter(attente.numLigne, attente.ligne, new BatchException(CodeErreur.MANAGER_INCONNU,
+                        "Le manager de matricule " + attente.technicien.getManager().getMatricule()
+                        + " n'a pas été trouvé dans le fichier ou en base de données"));
+            }
+        }
+        enAttente.clear();
+        nbEnAttenteTraites = 0;
+    }
+
+    /**
+     * @param matricule le matricule du manager
+     * @return le manager déclaré dans le fichier, une référence vers le manager en base, ou null s'il est inconnu
+     */
+    public Manager trouver(String matricule) {
+        Manager manager = managersFichier.get(matricule);
+        if (manager == null && managersBase.containsKey(matricule)) {
+            manager = referencesBase.computeIfAbsent(matricule, this::referenceBase);
+        }
+        return manager;
+    }
+
+    public void setStatistiques(StatistiquesImport statistiques) {
+        this.statistiques = statistiques;
+    }
+
+    public long getNbAcceptes() {
+        return nbAcceptes;
+    }
+
+    public int getNbEnAttente() {
+        return enAttente.size() - nbEnAttenteTraites;
+    }
+
+    /**
+     * @return les lignes des techniciens en attente de leur manager et pas encore transmis, par numéro de ligne
+     */
+    public Map<Long, String> getLignesEnAttente() {
+        Map<Long, String> lignes = new LinkedHashMap<>();
+        for (int i = nbEnAttenteTraites; i < enAttente.size(); i++) {
+            lignes.put(enAttente.get(i).numLigne, enAttente.get(i).ligne);
+        }
+        return lignes;
+    }
+
+    private boolean rattacher(Technicien technicien) {
+        long debut = statistiques.debut();
+        Manager manager = trouver(technicien.getManager().getMatricule());
+        statistiques.mesurer(StatistiquesImport.Etape.RATTACHEMENT, debut);
+        if (manager == null) {
+            return false;
+        }
+        technicien.setManager(manager);
+        return true;
+    }
+
+    private void transmettre(Employe employe) {
+        destination.accept(employe);
+        nbAcceptes++;
+    }
+
+    /**
+     * Manager détaché ne portant que l'identifiant et le matricule, suffisant pour écrire la clé étrangère du
+     * technicien
+     */
+    private Manager referenceBase(String matricule) {
+        Manager manager = new Manager();
+        manager.setId(managersBase.get(matricule));
+        manager.setMatricule(matricule);
+        return manager;
+    }
+
+    private static class TechnicienEnAttente {
+        private final long numLigne;
+        private final String ligne;
+        private final Technicien technicien;
+
+        TechnicienEnAttente(long numLigne, String ligne, Technicien technicien) {
+            this.numLigne = numLigne;
+            this.ligne = ligne;
+            this.technicien = technicien;
+        }
+    }
+}
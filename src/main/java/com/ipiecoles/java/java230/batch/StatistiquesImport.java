@@ -0,0 +1,211 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures de l'import en cours, exposées en JMX (com.ipiecoles.java.java230:type=Import) : histogramme des durées
+ * de chaque étape, débit en lignes par seconde et rejets par code d'erreur et type d'employé.
+ *
+ * Les étapes sont mesurées là où elles sont séparées dans le code :
+ * <ul>
+ *     <li>LECTURE : lecture d'une ligne par le BufferedReader (imports séquentiel et pipeline ; les lecteurs projeté
+ *     et parallèle repèrent les lignes pendant l'analyse)</li>
+ *     <li>ANALYSE : découpage et contrôle d'une ligne par {@link AnalyseurLigne}</li>
+ *     <li>RATTACHEMENT : recherche du manager d'un technicien dans le {@link RegistreManagers}</li>
+ *     <li>PERSISTANCE : écriture d'un lot en base par {@link EcritureParLots}, transaction comprise</li>
+ * </ul>
+ *
+ * Désactivées (import.statistiques=false, ou par JMX), les mesures se limitent à la lecture d'un booléen : ni appel à
+ * System.nanoTime ni compteur.
+ */
+@Component
+@ManagedResource(objectName = "com.ipiecoles.java.java230:type=Import", description = "Statistiques de l'import CSV")
+public class StatistiquesImport {
+
+    /**
+     * Instance désactivée, utilisée par défaut hors de Spring
+     */
+    public static final StatistiquesImport INACTIVES = new StatistiquesImport(false);
+
+    public enum Etape {
+        LECTURE, ANALYSE, RATTACHEMENT, PERSISTANCE
+    }
+
+    private static final String TYPES = "MTC?";
+
+    private final Histogramme[] etapes = new Histogramme[Etape.values().length];
+
+    private final AtomicLongArray rejets = new AtomicLongArray(CodeErreur.values().length * TYPES.length());
+
+    private final LongAdder enregistres = new LongAdder();
+
+    private volatile boolean actif;
+
+    private volatile long debut = System.nanoTime();
+
+    private volatile long fin = 0;
+
+    public StatistiquesImport(@Value("${import.statistiques:false}") boolean actif) {
+        this.actif = actif;
+        for (int i = 0; i < etapes.length; i++) {
+            etapes[i] = new Histogramme();
+        }
+    }
+
+    /**
+     * @return l'instant de début d'une mesure, à passer à {@link #mesurer(Etape, long)}
+     */
+    public long debut() {
+        return actif ? System.nanoTime() : 0;
+    }
+
+    public void mesurer(Etape etape, long debut) {
+        if (actif && debut != 0) {
+            etapes[etape.ordinal()].enregistrer(System.nanoTime() - debut);
+        }
+    }
+
+    public void rejet(CodeErreur code, CharSequence ligne) {
+        if (actif) {
+            int type = ligne == null || ligne.length() == 0 ? -1 : TYPES.indexOf(ligne.charAt(0));
+            rejets.incrementAndGet(code.ordinal() * TYPES.length() + (type < 0 ? TYPES.length() - 1 : type));
+        }
+    }
+
+    public void enregistres(long nombre) {
+        if (actif) {
+            enregistres.add(nombre);
+        }
+    }
+
+    /**
+     * Remet les mesures à zéro au début d'un import
+     */
+    @ManagedOperation(description = "Remet les mesures à zéro")
+    public void demarrer() {
+        for (Histogramme etape : etapes) {
+            etape.reinitialiser();
+        }
+        for (int i = 0; i < rejets.length(); i++) {
+            rejets.set(i, 0);
+        }
+        enregistres.reset();
+        fin = 0;
+        debut = System.nanoTime();
+    }
+
+    /**
+     * Arrête le chronomètre de l'import : le débit affiché est ensuite celui de l'import terminé
+     */
+    public void terminer() {
+        fin = System.nanoTime();
+    }
+
+    @ManagedAttribute(description = "Mesures activées")
+    public boolean isActif() {
+        return actif;
+    }
+
+    @ManagedAttribute
+    public void setActif(boolean actif) {
+        this.actif = actif;
+    }
+
+    @ManagedAttribute(description = "Lignes analysées")
+    public long getLignesAnalysees() {
+        return etapes[Etape.ANALYSE.ordinal()].getNombre();
+    }
+
+    @ManagedAttribute(description = "Lignes rejetées")
+    public long getLignesRejetees() {
+        long total = 0;
+        for (int i = 0; i < rejets.length(); i++) {
+            total += rejets.get(i);
+        }
+        return total;
+    }
+
+    @ManagedAttribute(description = "Employés enregistrés en base")
+    public long getEmployesEnregistres() {
+        return enregistres.sum();
+    }
+
+    @ManagedAttribute(description = "Lignes analysées par seconde depuis le début de l'import")
+    public long getDebitLignesParSeconde() {
+        long duree = (fin != 0 ? fin : System.nanoTime()) - debut;
+        return duree > 0 ? getLignesAnalysees() * 1_000_000_000L / duree : 0;
+    }
+
+    @ManagedAttribute(description = "Durées par étape en nanosecondes : nombre, moyenne, p50, p99, max")
+    public String[] getDureesEtapes() {
+        String[] durees = new String[etapes.length];
+        for (Etape etape : Etape.values()) {
+            durees[etape.ordinal()] = decrire(etape);
+        }
+        return durees;
+    }
+
+    @ManagedAttribute(description = "Rejets par code d'erreur et type d'employé")
+    public String[] getRejets() {
+        List<String> lignes = new ArrayList<>();
+        CodeErreur[] codes = CodeErreur.values();
+        for (int i = 0; i < rejets.length(); i++) {
+            long nombre = rejets.get(i);
+            if (nombre > 0) {
+                lignes.add(codes[i / TYPES.length()] + "/" + TYPES.charAt(i % TYPES.length()) + "=" + nombre);
+            }
+        }
+        return lignes.toArray(new String[0]);
+    }
+
+    public long getDuree(Etape etape, double centile) {
+        return etapes[etape.ordinal()].getCentile(centile);
+    }
+
+    public long getNombre(Etape etape) {
+        return etapes[etape.ordinal()].getNombre();
+    }
+
+    public long getRejets(CodeErreur code, char type) {
+        int indice = TYPES.indexOf(type);
+        return rejets.get(code.ordinal() * TYPES.length() + (indice < 0 ? TYPES.length() - 1 : indice));
+    }
+
+    /**
+     * @return le bilan de l'import sur une ligne, pour le log de fin d'import
+     */
+    public String resume() {
+        StringBuilder resume = new StringBuilder("Statistiques import : ")
+                .append(getLignesAnalysees()).append(" lignes analysées (")
+                .append(getDebitLignesParSeconde()).append(" lignes/s), ")
+                .append(getEmployesEnregistres()).append(" enregistrés, ")
+                .append(getLignesRejetees()).append(" rejetés");
+        for (Etape etape : Etape.values()) {
+            if (etapes[etape.ordinal()].getNombre() > 0) {
+                resume.append(" | ").append(decrire(etape));
+            }
+        }
+        String[] rejetsParCode = getRejets();
+        if (rejetsParCode.length > 0) {
+            resume.append(" | rejets ").append(String.join(" ", rejetsParCode));
+        }
+        return resume.toString();
+    }
+
+    private String decrire(Etape etape) {
+        Histogramme histogramme = etapes[etape.ordinal()];
+        return etape.name().toLowerCase() + " n=" + histogramme.getNombre()
+                + " moy=" + histogramme.getMoyenne() + "ns p50=" + histogramme.getCentile(50)
+                + "ns p99=" + histogramme.getCentile(99) + "ns max=" + histogramme.getMax() + "ns";
+    }
+}
@@ -0,0 +1,13 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Employe;
+
+/**
+ * Transformation d'une ligne du fichier CSV en employé. L'implémentation doit pouvoir être appelée depuis plusieurs
+ * threads à la fois.
+ */
+@FunctionalInterface
+public interface TraitementLigne {
+    Employe traiter(String ligne) throws BatchException;
+}
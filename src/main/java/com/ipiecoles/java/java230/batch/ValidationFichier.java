@@ -0,0 +1,122 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+/**
+ * Validation seule d'un fichier d'import, sans contexte Spring ni base de données : les lignes passent par les mêmes
+ * contrôles que l'import ({@link AnalyseurLigne}) et le manager de chaque technicien est recherché parmi les managers
+ * valides du fichier ({@link RegistreManagers} sans manager en base). Rien n'est enregistré.
+ *
+ * Lancée par {@code java -jar java230.jar --valider <fichier> [fichier de rejets]} : les erreurs sont affichées avec
+ * logger.error comme pendant l'import, ou écrites dans le fichier de rejets s'il est donné, suivies du bilan par code
+ * d'erreur. Le code de retour est 0 si le fichier est valide, 1 s'il contient des erreurs, 2 s'il ne peut pas être lu.
+ */
+public class ValidationFichier {
+
+    public static final String OPTION = "--valider";
+
+    private static final Logger logger = LoggerFactory.getLogger(ValidationFichier.class);
+
+    private final AnalyseurLigne analyseur = new AnalyseurLigne();
+
+    private final long[] nbErreurs = new long[CodeErreur.values().length];
+
+    private long nbLignes = 0;
+
+    private long nbValides = 0;
+
+    /**
+     * Point d'entrée de la validation, appelé par Application.main avant tout démarrage de Spring
+     * @param args le fichier à valider et, facultatif, le fichier de rejets
+     * @return le code de retour du programme
+     */
+    public static int executer(String[] args) {
+        if (args.length < 1) {
+            logger.error("Usage : " + OPTION + " <fichier> [fichier de rejets]");
+            return 2;
+        }
+        Path fichier = Paths.get(args[0]);
+        ValidationFichier validation = new ValidationFichier();
+        long debut = System.nanoTime();
+        try {
+            if (args.length > 1) {
+                try (EcritureRejets rejets = new EcritureRejets(Paths.get(args[1]), false)) {
+                    validation.valider(fichier, rejets);
+                }
+            } else {
+                validation.valider(fichier, (numLigne, ligne, e) ->
+                        logger.error("Ligne " + numLigne + " : " + e.getMessage() + " => " + ligne));
+            }
+        } catch (IOException e) {
+            logger.error("Problème dans la lecture du fichier " + fichier + " : " + e.getMessage());
+            return 2;
+        }
+        long duree = (System.nanoTime() - debut) / 1_000_000;
+        logger.info(validation.nbLignes + " lignes lues en " + duree + " ms : " + validation.nbValides
+                + " employés valides, " + validation.getNbErreurs() + " lignes en erreur");
+        for (CodeErreur code : CodeErreur.values()) {
+            if (validation.nbErreurs[code.ordinal()] > 0) {
+                logger.info("  " + code + " : " + validation.nbErreurs[code.ordinal()]);
+            }
+        }
+        return validation.getNbErreurs() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Valide toutes les lignes du fichier, compressé en gzip ou non
+     * @param fichier le fichier à valider
+     * @param rapport reçoit chaque ligne en erreur, dans l'ordre du fichier
+     * @return le nombre d'employés valides
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    public long valider(Path fichier, RapportErreur rapport) throws IOException {
+        RapportErreur compteur = (numLigne, ligne, e) -> {
+            nbErreurs[e.getCode().ordinal()]++;
+            rapport.rejeter(numLigne, ligne, e);
+        };
+        RegistreManagers registre = new RegistreManagers(Collections.emptyMap(), e -> {}, compteur);
+        try (BufferedReader reader = FichierImport.lire(fichier, Runtime.getRuntime().availableProcessors())) {
+            String ligne;
+            while ((ligne = reader.readLine()) != null) {
+                nbLignes++;
+                try {
+                    registre.accepter(nbLignes, ligne, analyseur.analyser(ligne));
+                } catch (BatchException e) {
+                    compteur.rejeter(nbLignes, ligne, e);
+                }
+            }
+        }
+        registre.terminer();
+        nbValides = registre.getNbAcceptes();
+        return nbValides;
+    }
+
+    public long getNbLignes() {
+        return nbLignes;
+    }
+
+    public long getNbValides() {
+        return nbValides;
+    }
+
+    public long getNbErreurs(CodeErreur code) {
+        return nbErreurs[code.ordinal()];
+    }
+
+    public long getNbErreurs() {
+        long total = 0;
+        for (long nb : nbErreurs) {
+            total += nb;
+        }
+        return total;
+    }
+}
@@ -1,7 +1,23 @@
 package com.ipiecoles.java.java230.exceptions;
 
+/**
+ * Erreur sur une ligne du fichier d'import. Ces exceptions servent au contrôle des lignes et peuvent être très
+ * nombreuses sur un fichier de mauvaise qualité : la pile d'appels n'est donc pas capturée.
+ */
 public class BatchException extends Exception {
+
+    private final CodeErreur code;
+
     public BatchException(String message){
-        super(message);
+        this(CodeErreur.AUTRE, message);
+    }
+
+    public BatchException(CodeErreur code, String message){
+        super(message, null, false, false);
+        this.code = code;
+    }
+
+    public CodeErreur getCode() {
+        return code;
     }
 }
@@ -0,0 +1,19 @@
+package com.ipiecoles.java.java230.exceptions;
+
+/**
+ * Nature de l'erreur rencontrée sur une ligne du fichier d'import
+ */
+public enum CodeErreur {
+    TYPE_INCONNU,
+    NB_CHAMPS,
+    MATRICULE,
+    DATE,
+    SALAIRE,
+    CHIFFRE_AFFAIRE,
+    PERFORMANCE,
+    GRADE_FORMAT,
+    GRADE_VALEUR,
+    MATRICULE_MANAGER,
+    MANAGER_INCONNU,
+    AUTRE
+}
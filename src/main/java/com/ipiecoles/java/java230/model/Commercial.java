@@ -67,17 +67,6 @@ public class Commercial extends Employe {
 		return performance;
 	}
 
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (!(o instanceof Commercial)) return false;
-		if (!super.equals(o)) return false;
-
-		Commercial that = (Commercial) o;
-
-		return Double.compare(that.caAnnuel, caAnnuel) == 0;
-
-	}
-
 	@Override
 	public String toString() {
 		return "Commercial{" +
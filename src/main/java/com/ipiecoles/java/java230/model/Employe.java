@@ -1,17 +1,36 @@
 package com.ipiecoles.java.java230.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.hibernate.annotations.Type;
 import org.joda.time.LocalDate;
 
 import javax.persistence.*;
-import java.util.Objects;
 
+/**
+ * Les employés des trois types partagent une région du cache de second niveau, utilisée quand le profil "cache" est
+ * actif (voir CacheEmployes). Sans ce profil, le cache est désactivé dans application.properties
+ */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class Employe {
 
+	/**
+	 * Identifiants distribués par blocs de 50 à partir de la table employe_seq (optimiseur pooled-lo) : un seul aller
+	 * retour en base par bloc et des INSERT qui peuvent partir en batch JDBC, contrairement à IDENTITY.
+	 * La table est créée et initialisée au-delà des identifiants existants par sql/employe_seq.sql
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "employe_seq")
+	@GenericGenerator(name = "employe_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+			@Parameter(name = "sequence_name", value = "employe_seq"),
+			@Parameter(name = "increment_size", value = "50"),
+			@Parameter(name = "optimizer", value = "pooled-lo")
+	})
 	private Long id;
 
 	private String nom;
@@ -145,6 +164,10 @@ public abstract class Employe {
 		return sb.toString();
 	}
 
+	/**
+	 * Deux employés sont égaux s'ils ont le même matricule, qui ne change pas, comme hashCode : un employé rangé dans
+	 * un HashSet (l'équipe d'un manager) y reste retrouvable après une augmentation de salaire ou un changement de grade
+	 */
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -152,16 +175,11 @@ public abstract class Employe {
 
 		Employe employe = (Employe) o;
 
-		if (Double.compare(employe.salaire, salaire) != 0) return false;
-		if (nom != null ? !nom.equals(employe.nom) : employe.nom != null) return false;
-		if (prenom != null ? !prenom.equals(employe.prenom) : employe.prenom != null) return false;
-		if (matricule != null ? !matricule.equals(employe.matricule) : employe.matricule != null) return false;
-		return dateEmbauche != null ? dateEmbauche.equals(employe.dateEmbauche) : employe.dateEmbauche == null;
-
+		return matricule != null ? matricule.equals(employe.getMatricule()) : employe.getMatricule() == null;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(nom, prenom, matricule, dateEmbauche, salaire);
+		return matricule != null ? matricule.hashCode() : 0;
 	}
 }
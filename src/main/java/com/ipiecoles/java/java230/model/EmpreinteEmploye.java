@@ -0,0 +1,125 @@
+package com.ipiecoles.java.java230.model;
+
+import org.joda.time.LocalDate;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.Objects;
+
+/**
+ * Empreinte sur 64 bits de la dernière ligne importée pour un matricule, utilisée par l'import différentiel pour
+ * reconnaître les employés inchangés sans relire leur état complet en base.
+ * La table est créée par sql/empreinte_employe.sql
+ */
+@Entity
+public class EmpreinteEmploye {
+
+	private static final long FNV_BASE = 0xcbf29ce484222325L;
+
+	private static final long FNV_PREMIER = 0x100000001b3L;
+
+	@Id
+	private String matricule;
+
+	private Long employeId;
+
+	private Long empreinte;
+
+	public EmpreinteEmploye() {
+
+	}
+
+	public EmpreinteEmploye(String matricule, Long employeId, Long empreinte) {
+		this.matricule = matricule;
+		this.employeId = employeId;
+		this.empreinte = empreinte;
+	}
+
+	/**
+	 * Calcule l'empreinte des données importées d'un employé : type, matricule, nom, prénom, date d'embauche, salaire,
+	 * puis chiffre d'affaire et performance pour un commercial, grade et matricule du manager pour un technicien.
+	 * Deux employés aux mêmes données ont la même empreinte quel que soit le mode de lecture du fichier.
+	 */
+	public static long calculer(Employe employe) {
+		long h = FNV_BASE;
+		h = melanger(h, employe.getClass().getSimpleName());
+		h = melanger(h, employe.getMatricule());
+		h = melanger(h, employe.getNom());
+		h = melanger(h, employe.getPrenom());
+		LocalDate date = employe.getDateEmbauche();
+		h = melanger(h, date == null ? -1 : date.getYear() * 10000 + date.getMonthOfYear() * 100 + date.getDayOfMonth());
+		h = melanger(h, Double.doubleToLongBits(employe.getSalaire()));
+		if (employe instanceof Commercial) {
+			Commercial commercial = (Commercial) employe;
+			h = melanger(h, commercial.getCaAnnuel() == null ? -1 : Double.doubleToLongBits(commercial.getCaAnnuel()));
+			h = melanger(h, commercial.getPerformance() == null ? -1 : commercial.getPerformance());
+		} else if (employe instanceof Technicien) {
+			Technicien technicien = (Technicien) employe;
+			h = melanger(h, technicien.getGrade());
+			h = melanger(h, technicien.getManager() == null ? null : technicien.getManager().getMatricule());
+		}
+		//finalisation de MurmurHash3 : répartit les bits de FNV, faibles sur les derniers caractères
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static long melanger(long h, String valeur) {
+		if (valeur == null) {
+			return melanger(h, -1);
+		}
+		for (int i = 0; i < valeur.length(); i++) {
+			h = (h ^ valeur.charAt(i)) * FNV_PREMIER;
+		}
+		//séparateur, pour que ("ab", "c") et ("a", "bc") diffèrent
+		return (h ^ 0xFFFF) * FNV_PREMIER;
+	}
+
+	private static long melanger(long h, long valeur) {
+		for (int i = 0; i < 8; i++) {
+			h = (h ^ (valeur & 0xFF)) * FNV_PREMIER;
+			valeur >>>= 8;
+		}
+		return h;
+	}
+
+	public String getMatricule() {
+		return matricule;
+	}
+
+	public void setMatricule(String matricule) {
+		this.matricule = matricule;
+	}
+
+	public Long getEmployeId() {
+		return employeId;
+	}
+
+	public void setEmployeId(Long employeId) {
+		this.employeId = employeId;
+	}
+
+	public Long getEmpreinte() {
+		return empreinte;
+	}
+
+	public void setEmpreinte(Long empreinte) {
+		this.empreinte = empreinte;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof EmpreinteEmploye)) return false;
+		EmpreinteEmploye that = (EmpreinteEmploye) o;
+		return Objects.equals(matricule, that.matricule);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(matricule);
+	}
+}
@@ -0,0 +1,137 @@
+package com.ipiecoles.java.java230.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Équipe d'un manager rangée par grade, avec le nombre de techniciens et la somme des salaires de chaque grade tenus à
+ * jour à chaque ajout, à chaque retrait et à chaque changement de salaire ou de grade d'un technicien (voir
+ * Technicien.notifierManager).
+ * Les techniciens sans grade sont rangés à part, après le grade 1.
+ *
+ * Les sommes sont mises à jour par différence : après de nombreuses modifications, {@link #recalculer()} les
+ * recalcule exactement à partir des salaires.
+ */
+public class EquipeParGrade {
+
+	public static final int NB_GRADES = 5;
+
+	private static final int SANS_GRADE = 0;
+
+	private final List<Set<Technicien>> techniciens = new ArrayList<>(NB_GRADES + 1);
+
+	private final double[] salaires = new double[NB_GRADES + 1];
+
+	private int taille = 0;
+
+	public EquipeParGrade(Collection<Technicien> equipe) {
+		for (int i = 0; i <= NB_GRADES; i++) {
+			techniciens.add(new LinkedHashSet<>());
+		}
+		for (Technicien technicien : equipe) {
+			ajouter(technicien);
+		}
+	}
+
+	public void ajouter(Technicien technicien) {
+		int grade = indice(technicien.getGrade());
+		if (techniciens.get(grade).add(technicien)) {
+			salaires[grade] += valeur(technicien.getSalaire());
+			taille++;
+		}
+	}
+
+	/**
+	 * Retire un technicien de l'équipe, cherché d'abord parmi ceux de son grade
+	 */
+	public void retirer(Technicien technicien) {
+		int grade = indice(technicien.getGrade());
+		if (!techniciens.get(grade).contains(technicien)) {
+			grade = -1;
+			for (int i = 0; i <= NB_GRADES && grade < 0; i++) {
+				if (techniciens.get(i).contains(technicien)) {
+					grade = i;
+				}
+			}
+			if (grade < 0) {
+				return;
+			}
+		}
+		techniciens.get(grade).remove(technicien);
+		salaires[grade] -= valeur(technicien.getSalaire());
+		taille--;
+	}
+
+	/**
+	 * Range à nouveau un technicien de l'équipe dont le grade ou le salaire a changé
+	 * @param technicien le technicien, déjà modifié
+	 * @param ancienGrade son grade avant la modification
+	 * @param ancienSalaire son salaire avant la modification
+	 */
+	public void modifier(Technicien technicien, Integer ancienGrade, Double ancienSalaire) {
+		int ancien = indice(ancienGrade);
+		if (!techniciens.get(ancien).remove(technicien)) {
+			return;
+		}
+		salaires[ancien] -= valeur(ancienSalaire);
+		int grade = indice(technicien.getGrade());
+		techniciens.get(grade).add(technicien);
+		salaires[grade] += valeur(technicien.getSalaire());
+	}
+
+	/**
+	 * Recalcule les sommes des salaires de chaque grade
+	 */
+	public void recalculer() {
+		for (int i = 0; i <= NB_GRADES; i++) {
+			double somme = 0;
+			for (Technicien technicien : techniciens.get(i)) {
+				somme += valeur(technicien.getSalaire());
+			}
+			salaires[i] = somme;
+		}
+	}
+
+	/**
+	 * @return les techniciens du grade 5 au grade 1, puis ceux sans grade
+	 */
+	public List<Technicien> parGradeDecroissant() {
+		List<Technicien> equipe = new ArrayList<>(taille);
+		for (int grade = NB_GRADES; grade >= 1; grade--) {
+			equipe.addAll(techniciens.get(grade));
+		}
+		equipe.addAll(techniciens.get(SANS_GRADE));
+		return equipe;
+	}
+
+	public int getTaille() {
+		return taille;
+	}
+
+	public int getTaille(int grade) {
+		return techniciens.get(grade).size();
+	}
+
+	public double getSalaire(int grade) {
+		return salaires[grade];
+	}
+
+	public double getSalaireTotal() {
+		double total = 0;
+		for (double salaire : salaires) {
+			total += salaire;
+		}
+		return total;
+	}
+
+	private static int indice(Integer grade) {
+		return grade == null || grade < 1 || grade > NB_GRADES ? SANS_GRADE : grade;
+	}
+
+	private static double valeur(Double salaire) {
+		return salaire == null ? 0 : salaire;
+	}
+}
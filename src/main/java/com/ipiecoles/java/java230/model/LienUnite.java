@@ -0,0 +1,77 @@
+package com.ipiecoles.java.java230.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Table de fermeture de l'organigramme : une ligne pour chaque unité et chacune de ses unités parentes, à toutes les
+ * profondeurs, plus une ligne de profondeur 0 de l'unité vers elle-même. Les unités d'un sous-arbre sont ainsi les
+ * descendants d'un même ancêtre, et la chaîne des unités au-dessus d'une unité ses ancêtres triés par profondeur.
+ * Les lignes sont tenues à jour en SQL par UniteOrganisationRepository.
+ */
+@Entity
+@IdClass(LienUnite.Cle.class)
+public class LienUnite {
+
+	@Id
+	private Long ancetre;
+
+	@Id
+	private Long descendant;
+
+	private Integer profondeur;
+
+	public LienUnite() {
+
+	}
+
+	public LienUnite(Long ancetre, Long descendant, Integer profondeur) {
+		this.ancetre = ancetre;
+		this.descendant = descendant;
+		this.profondeur = profondeur;
+	}
+
+	public Long getAncetre() {
+		return ancetre;
+	}
+
+	public Long getDescendant() {
+		return descendant;
+	}
+
+	public Integer getProfondeur() {
+		return profondeur;
+	}
+
+	public static class Cle implements Serializable {
+
+		private Long ancetre;
+
+		private Long descendant;
+
+		public Cle() {
+
+		}
+
+		public Cle(Long ancetre, Long descendant) {
+			this.ancetre = ancetre;
+			this.descendant = descendant;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Cle)) return false;
+			Cle cle = (Cle) o;
+			return Objects.equals(ancetre, cle.ancetre) && Objects.equals(descendant, cle.descendant);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(ancetre, descendant);
+		}
+	}
+}
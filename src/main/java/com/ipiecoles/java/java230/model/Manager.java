@@ -1,14 +1,16 @@
 package com.ipiecoles.java.java230.model;
 
 import com.ipiecoles.java.java230.exceptions.TechnicienException;
+import org.hibernate.Hibernate;
 import org.joda.time.LocalDate;
 
 import javax.persistence.Entity;
 import javax.persistence.OneToMany;
+import javax.persistence.Transient;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Entity
 public class Manager extends Employe {
@@ -16,6 +18,29 @@ public class Manager extends Employe {
 	@OneToMany(mappedBy = "manager")
 	private Set<Technicien> equipe = new HashSet();
 
+	/**
+	 * Agrégats de l'équipe lus en base à la demande (voir EmployeService.chargerAgregatsEquipe), pour ne pas
+	 * initialiser la collection equipe quand seuls sa taille ou ses salaires sont utilisés. Ils ne suivent pas les
+	 * modifications faites ensuite en mémoire : dès que equipe est initialisée, c'est elle qui fait foi (voir
+	 * getTailleEquipe). Sans agrégats, equipe est chargée.
+	 */
+	@Transient
+	private Integer tailleEquipeBase;
+
+	@Transient
+	private Double salaireEquipeBase;
+
+	@Transient
+	private Double salaireEquipeGrade1Base;
+
+	/**
+	 * Équipe rangée par grade, construite à la première utilisation une fois equipe en mémoire et tenue à jour ensuite
+	 * par les ajouts, les retraits et par les techniciens eux-mêmes (voir Technicien.notifierManager). equipe n'est
+	 * modifiable que par ajoutTechnicienEquipe, retirerTechnicienEquipe et setEquipe (getEquipe est en lecture seule).
+	 */
+	@Transient
+	private EquipeParGrade equipeParGrade;
+
 	public Manager(){
 
 	}
@@ -26,19 +51,27 @@ public class Manager extends Employe {
 	}
 
 	public void ajoutTechnicienEquipe(Technicien technicien) {
-		equipe.add(technicien);
+		if (equipe.add(technicien) && equipeParGrade != null) {
+			equipeParGrade.ajouter(technicien);
+		}
 	}
 
 	public void ajoutTechnicienEquipe(String nom, String prenom, String matricule, LocalDate dateEmbauche, Double salaire, Integer grade) throws TechnicienException {
 		this.ajoutTechnicienEquipe(new Technicien(nom, prenom, matricule, dateEmbauche, salaire, grade));
 	}
+
+	public void retirerTechnicienEquipe(Technicien technicien) {
+		if (equipe.remove(technicien) && equipeParGrade != null) {
+			equipeParGrade.retirer(technicien);
+		}
+	}
 	
 	public void setSalaire(Double salaire) {
-		super.setSalaire(salaire * Entreprise.INDICE_MANAGER + (salaire * (double)equipe.size() / 10));
+		super.setSalaire(salaire * Entreprise.INDICE_MANAGER + (salaire * (double)getTailleEquipe() / 10));
 	}
 
 	public Double getPrimeAnnuelle() {
-		return Entreprise.primeAnnuelleBase() + equipe.size() * Entreprise.PRIME_MANAGER_PAR_TECHNICIEN;
+		return Entreprise.primeAnnuelleBase() + getTailleEquipe() * Entreprise.PRIME_MANAGER_PAR_TECHNICIEN;
 	}
 	
 	public void augmenterSalaire(Double pourcentage) {
@@ -50,21 +83,84 @@ public class Manager extends Employe {
 		for (Technicien technicien : equipe) {
 			technicien.augmenterSalaire(pourcentage);
 		}
+		if (equipeParGrade != null) {
+			equipeParGrade.recalculer();
+		}
 	}
 
+	/**
+	 * @return l'équipe du grade 5 au grade 1
+	 */
 	public List<Technicien> equipeParGrade(){
-		return equipe.stream().sorted(Technicien::compareTo).collect(Collectors.toList());
+		return getEquipeParGrade().parGradeDecroissant();
 	}
 
 	public double salaireEquipeGrade1(){
-		return equipe.stream().filter(t -> t.getGrade().equals(1)).mapToDouble(Technicien::getSalaire).sum();
+		if (!equipeEnMemoire()) {
+			return salaireEquipeGrade1Base;
+		}
+		return getEquipeParGrade().getSalaire(1);
+	}
+
+	/**
+	 * @return le nombre de techniciens de l'équipe, sans charger l'équipe si ses agrégats ont été lus en base
+	 */
+	public int getTailleEquipe() {
+		return equipeEnMemoire() ? equipe.size() : tailleEquipeBase;
+	}
+
+	/**
+	 * @return la somme des salaires de l'équipe, sans charger l'équipe si ses agrégats ont été lus en base
+	 */
+	public double getSalaireEquipe() {
+		if (!equipeEnMemoire()) {
+			return salaireEquipeBase;
+		}
+		return getEquipeParGrade().getSalaireTotal();
+	}
+
+	/**
+	 * Range à nouveau dans l'équipe par grade un technicien dont le grade ou le salaire vient de changer
+	 */
+	public void technicienModifie(Technicien technicien, Integer ancienGrade, Double ancienSalaire) {
+		if (equipeParGrade != null) {
+			equipeParGrade.modifier(technicien, ancienGrade, ancienSalaire);
+		}
+	}
+
+	/**
+	 * @return l'équipe rangée par grade
+	 */
+	public EquipeParGrade getEquipeParGrade() {
+		if (equipeParGrade == null) {
+			equipeParGrade = new EquipeParGrade(equipe);
+		}
+		return equipeParGrade;
+	}
+
+	/**
+	 * @param taille le nombre de techniciens de l'équipe
+	 * @param salaire la somme de leurs salaires
+	 * @param salaireGrade1 la somme des salaires des techniciens de grade 1
+	 */
+	public void setAgregatsEquipe(int taille, double salaire, double salaireGrade1) {
+		this.tailleEquipeBase = taille;
+		this.salaireEquipeBase = salaire;
+		this.salaireEquipeGrade1Base = salaireGrade1;
+	}
+
+	/**
+	 * L'équipe fait foi si elle a été chargée, ou si ses agrégats n'ont pas été lus en base : elle est alors chargée
+	 */
+	private boolean equipeEnMemoire() {
+		return Hibernate.isInitialized(equipe) || tailleEquipeBase == null;
 	}
 
 	/**
-	 * @return the equipe
+	 * @return the equipe, en lecture seule
 	 */
 	public Set<Technicien> getEquipe() {
-		return equipe;
+		return Collections.unmodifiableSet(equipe);
 	}
 
 	/**
@@ -72,6 +168,7 @@ public class Manager extends Employe {
 	 */
 	public void setEquipe(HashSet<Technicien> equipe) {
 		this.equipe = equipe;
+		this.equipeParGrade = null;
 	}
 
 	@Override
@@ -0,0 +1,37 @@
+package com.ipiecoles.java.java230.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Affectation d'un employé à son unité de l'organigramme : un employé appartient à une seule unité
+ */
+@Entity
+public class MembreUnite {
+
+	@Id
+	private Long employeId;
+
+	private Long uniteId;
+
+	public MembreUnite() {
+
+	}
+
+	public MembreUnite(Long employeId, Long uniteId) {
+		this.employeId = employeId;
+		this.uniteId = uniteId;
+	}
+
+	public Long getEmployeId() {
+		return employeId;
+	}
+
+	public Long getUniteId() {
+		return uniteId;
+	}
+
+	public void setUniteId(Long uniteId) {
+		this.uniteId = uniteId;
+	}
+}
@@ -1,12 +1,12 @@
 package com.ipiecoles.java.java230.model;
 
 import com.ipiecoles.java.java230.exceptions.TechnicienException;
+import org.hibernate.Hibernate;
 import org.joda.time.LocalDate;
 
 import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
-import java.util.Objects;
 
 @Entity
 public class Technicien extends Employe implements Comparable<Technicien> {
@@ -26,6 +26,13 @@ public class Technicien extends Employe implements Comparable<Technicien> {
 		this.setGrade(grade);
 	}
 
+	/**
+	 * Technicien sans grade, comme ceux que la base peut contenir (colonne grade facultative)
+	 */
+	public Technicien(String nom, String prenom, String matricule, LocalDate dateEmbauche, Double salaire) {
+		super(nom, prenom, matricule, dateEmbauche, salaire);
+	}
+
 	public Double getPrimeAnnuelle() {
 		Double salaireBase = Entreprise.primeAnnuelleBase();
 		return salaireBase + salaireBase * (1 + (double) grade / 10) + Entreprise.PRIME_ANCIENNETE * this.getNombreAnneeAnciennete();
@@ -58,33 +65,39 @@ public class Technicien extends Employe implements Comparable<Technicien> {
 		if(grade <= 0 || grade > 5) {
 			throw new TechnicienException(TechnicienException.GRADE, this, grade);
 		}
+		Integer ancienGrade = this.grade;
 		this.grade = grade;
+		notifierManager(ancienGrade, getSalaire());
 	}
 
 	@Override
 	public void setSalaire(Double salaire) {
+		Double ancienSalaire = getSalaire();
 		super.setSalaire( salaire * (1 + (double) grade / 10));
+		notifierManager(grade, ancienSalaire);
 	}
 
 	@Override
-	public String toString() {
-		return "Technicien{" +
-				"grade=" + grade +
-				"} " + super.toString();
+	public void augmenterSalaire(Double pourcentage) {
+		Double ancienSalaire = getSalaire();
+		super.augmenterSalaire(pourcentage);
+		notifierManager(grade, ancienSalaire);
 	}
 
-	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (!(o instanceof Technicien)) return false;
-		if (!super.equals(o)) return false;
-		Technicien that = (Technicien) o;
-		return Objects.equals(grade, that.grade);
+	/**
+	 * Tient à jour l'équipe par grade du manager, s'il est en mémoire, après un changement de grade ou de salaire
+	 */
+	private void notifierManager(Integer ancienGrade, Double ancienSalaire) {
+		if (manager != null && Hibernate.isInitialized(manager)) {
+			manager.technicienModifie(this, ancienGrade, ancienSalaire);
+		}
 	}
 
 	@Override
-	public int hashCode() {
-		return Objects.hash(super.hashCode(), grade);
+	public String toString() {
+		return "Technicien{" +
+				"grade=" + grade +
+				"} " + super.toString();
 	}
 
 	@Override
@@ -1,6 +1,6 @@
 package com.ipiecoles.java.java230.model;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 
 public class Unite<T> {
@@ -18,7 +18,7 @@ public class Unite<T> {
     }
 
     public void ajouterMembre(T... membres) {
-        this.membres.addAll(Arrays.asList(membres));
+        Collections.addAll(this.membres, membres);
     }
 
     public T getResponsable() {
@@ -0,0 +1,80 @@
+package com.ipiecoles.java.java230.model;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * Unité de l'organigramme (direction, département, service...), rattachée à son unité parente. Version persistante de
+ * {@link Unite} : les membres sont affectés par {@link MembreUnite}, et les liens de chaque unité avec toutes ses
+ * unités parentes sont enregistrés dans {@link LienUnite} pour interroger un sous-arbre en une seule requête.
+ * Les tables sont créées par sql/unite_organisation.sql
+ */
+@Entity
+public class UniteOrganisation {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	private String nom;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	private UniteOrganisation parent;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	private Employe responsable;
+
+	public UniteOrganisation() {
+
+	}
+
+	public UniteOrganisation(String nom, UniteOrganisation parent, Employe responsable) {
+		this.nom = nom;
+		this.parent = parent;
+		this.responsable = responsable;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getNom() {
+		return nom;
+	}
+
+	public void setNom(String nom) {
+		this.nom = nom;
+	}
+
+	public UniteOrganisation getParent() {
+		return parent;
+	}
+
+	public void setParent(UniteOrganisation parent) {
+		this.parent = parent;
+	}
+
+	public Employe getResponsable() {
+		return responsable;
+	}
+
+	public void setResponsable(Employe responsable) {
+		this.responsable = responsable;
+	}
+
+	@Override
+	public String toString() {
+		return "UniteOrganisation{" +
+				"id=" + id +
+				", nom='" + nom + '\'' +
+				'}';
+	}
+}
@@ -1,7 +1,13 @@
 package com.ipiecoles.java.java230.repository;
 
 import com.ipiecoles.java.java230.model.Manager;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface CommercialRepository extends BaseEmployeRepository<Manager> {
 
+    @Modifying(clearAutomatically = true)
+    @Query("update Commercial c set c.salaire = c.salaire * :facteur")
+    int multiplierSalaireTous(@Param("facteur") Double facteur);
 }
@@ -1,6 +1,30 @@
 package com.ipiecoles.java.java230.repository;
 
 import com.ipiecoles.java.java230.model.Employe;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface EmployeRepository extends BaseEmployeRepository<Employe> {
+    @Query("select e.matricule, e.id from Employe e")
+    List<Object[]> findAllMatriculeAndId();
+
+    /**
+     * Colonnes de tous les employés d'identifiant supérieur à apres, par identifiant croissant, sans charger les
+     * entités ni compter les lignes : lire les pages suivantes en repartant du dernier identifiant lu
+     * @return par employé : identifiant, classe, nom, prénom, matricule, date d'embauche, salaire, grade (technicien),
+     * chiffre d'affaires annuel (commercial) et matricule du manager (technicien)
+     */
+    @Query("select e.id, type(e), e.nom, e.prenom, e.matricule, e.dateEmbauche, e.salaire, e.grade, e.caAnnuel, m.matricule "
+            + "from Employe e left join e.manager m where e.id > :apres order by e.id")
+    Slice<Object[]> findColonnesApres(@Param("apres") Long apres, Pageable pageable);
+
+    /**
+     * Employés d'identifiant supérieur à id, par identifiant croissant, sans compter les lignes : lire les pages
+     * suivantes en repartant du dernier identifiant lu
+     */
+    Slice<Employe> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
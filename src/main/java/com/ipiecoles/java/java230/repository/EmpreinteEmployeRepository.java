@@ -0,0 +1,12 @@
+package com.ipiecoles.java.java230.repository;
+
+import com.ipiecoles.java.java230.model.EmpreinteEmploye;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface EmpreinteEmployeRepository extends CrudRepository<EmpreinteEmploye, String> {
+    @Query("select e.matricule, e.employeId, e.empreinte from EmpreinteEmploye e")
+    List<Object[]> findAllMatriculeAndIdAndEmpreinte();
+}
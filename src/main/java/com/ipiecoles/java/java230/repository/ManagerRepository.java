@@ -2,8 +2,24 @@ package com.ipiecoles.java.java230.repository;
 
 import com.ipiecoles.java.java230.model.Manager;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface ManagerRepository extends BaseEmployeRepository<Manager> {
     @EntityGraph(attributePaths = "equipe")
     Manager findOneWithEquipeById(Long id);
+
+    @Query("select m.matricule, m.id from Manager m")
+    List<Object[]> findAllMatriculeAndId();
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Manager m set m.salaire = m.salaire * :facteur where m.id = :id")
+    int multiplierSalaire(@Param("id") Long id, @Param("facteur") Double facteur);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Manager m set m.salaire = m.salaire * :facteur")
+    int multiplierSalaireTous(@Param("facteur") Double facteur);
 }
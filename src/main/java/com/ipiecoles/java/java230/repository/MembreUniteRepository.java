@@ -0,0 +1,9 @@
+package com.ipiecoles.java.java230.repository;
+
+import com.ipiecoles.java.java230.model.MembreUnite;
+import org.springframework.data.repository.CrudRepository;
+
+public interface MembreUniteRepository extends CrudRepository<MembreUnite, Long> {
+
+    long countByUniteId(Long uniteId);
+}
@@ -2,8 +2,12 @@ package com.ipiecoles.java.java230.repository;
 
 import com.ipiecoles.java.java230.model.Technicien;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.awt.print.Pageable;
+import java.util.Collection;
 import java.util.List;
 
 public interface TechnicienRepository extends BaseEmployeRepository<Technicien> {
@@ -12,4 +16,36 @@ public interface TechnicienRepository extends BaseEmployeRepository<Technicien>
 
     Slice<Technicien> findTop5ByGrade(Integer grade);
 
+    /**
+     * Agrégats de l'équipe d'un manager calculés en base, sans charger les techniciens
+     * @return pour chaque grade présent dans l'équipe : grade, nombre de techniciens et somme des salaires
+     */
+    @Query("select t.grade, count(t), sum(t.salaire) from Technicien t where t.manager.id = :managerId group by t.grade order by t.grade")
+    List<Object[]> findAgregatsEquipeParGrade(@Param("managerId") Long managerId);
+
+    /**
+     * Agrégats des équipes de plusieurs managers en une requête, sans charger les techniciens
+     * @return pour chaque manager ayant une équipe : identifiant du manager, nombre de techniciens, somme des salaires
+     * et somme des salaires du grade 1
+     */
+    @Query("select t.manager.id, count(t), sum(t.salaire), sum(case when t.grade = 1 then t.salaire else 0 end) "
+            + "from Technicien t where t.manager.id in :managerIds group by t.manager.id")
+    List<Object[]> findAgregatsEquipes(@Param("managerIds") Collection<Long> managerIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Technicien t set t.salaire = t.salaire * :facteur where t.manager.id = :managerId")
+    int multiplierSalaireEquipe(@Param("managerId") Long managerId, @Param("facteur") Double facteur);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Technicien t set t.salaire = t.salaire * :facteur where t.manager is not null")
+    int multiplierSalaireAvecManager(@Param("facteur") Double facteur);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Technicien t set t.salaire = t.salaire * :facteur where t.grade = :grade")
+    int multiplierSalaireGrade(@Param("grade") Integer grade, @Param("facteur") Double facteur);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Technicien t set t.salaire = t.salaire * :facteur")
+    int multiplierSalaireTous(@Param("facteur") Double facteur);
+
 }
@@ -0,0 +1,98 @@
+package com.ipiecoles.java.java230.repository;
+
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.UniteOrganisation;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UniteOrganisationRepository extends CrudRepository<UniteOrganisation, Long> {
+
+    List<UniteOrganisation> findByParentId(Long parentId);
+
+    /**
+     * @return les employés affectés à l'unité ou à l'une des unités de son sous-arbre
+     */
+    @Query("select e from Employe e, MembreUnite m, LienUnite l "
+            + "where l.ancetre = :uniteId and m.uniteId = l.descendant and e.id = m.employeId")
+    List<Employe> findMembresSousUnite(@Param("uniteId") Long uniteId);
+
+    /**
+     * @return les unités du sous-arbre, l'unité elle-même comprise, par profondeur croissante
+     */
+    @Query("select u from UniteOrganisation u, LienUnite l where l.ancetre = :uniteId and u.id = l.descendant "
+            + "order by l.profondeur")
+    List<UniteOrganisation> findSousUnites(@Param("uniteId") Long uniteId);
+
+    /**
+     * @return l'unité de l'employé puis les unités au-dessus d'elle jusqu'à la racine
+     */
+    @Query("select u from UniteOrganisation u, LienUnite l, MembreUnite m "
+            + "where m.employeId = :employeId and l.descendant = m.uniteId and u.id = l.ancetre order by l.profondeur")
+    List<UniteOrganisation> findChaineUnitesEmploye(@Param("employeId") Long employeId);
+
+    /**
+     * @return une seule ligne : l'effectif et la somme des salaires du sous-arbre de l'unité
+     */
+    @Query("select count(e), sum(e.salaire) from Employe e, MembreUnite m, LienUnite l "
+            + "where l.ancetre = :uniteId and m.uniteId = l.descendant and e.id = m.employeId")
+    List<Object[]> findEffectifEtSalairesSousUnite(@Param("uniteId") Long uniteId);
+
+    /**
+     * @return pour chaque unité ayant au moins un membre dans son sous-arbre : identifiant, effectif et somme des
+     * salaires du sous-arbre
+     */
+    @Query("select l.ancetre, count(e), sum(e.salaire) from Employe e, MembreUnite m, LienUnite l "
+            + "where m.uniteId = l.descendant and e.id = m.employeId group by l.ancetre")
+    List<Object[]> findEffectifsEtSalairesParUnite();
+
+    @Query("select count(l) from LienUnite l where l.ancetre = :ancetre and l.descendant = :descendant")
+    long countLiens(@Param("ancetre") Long ancetre, @Param("descendant") Long descendant);
+
+    /*
+     * Maintenance de la table de fermeture, en SQL
+     */
+
+    @Modifying
+    @Query(value = "INSERT INTO LienUnite (ancetre, descendant, profondeur) VALUES (:id, :id, 0)", nativeQuery = true)
+    int insererLienUnite(@Param("id") Long id);
+
+    /**
+     * Relie une unité à toutes les unités au-dessus de son parent, le parent compris
+     */
+    @Modifying
+    @Query(value = "INSERT INTO LienUnite (ancetre, descendant, profondeur) "
+            + "SELECT ancetre, :id, profondeur + 1 FROM LienUnite WHERE descendant = :parentId", nativeQuery = true)
+    int insererLiensAncetres(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Détache le sous-arbre d'une unité de toutes les unités au-dessus d'elle (les liens internes au sous-arbre
+     * sont conservés). Le sous-arbre est lu dans une table dérivée matérialisée (DISTINCT), que MySQL accepte dans un
+     * DELETE sur la même table.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM LienUnite "
+            + "WHERE descendant IN (SELECT sous.descendant FROM "
+            + "(SELECT DISTINCT descendant FROM LienUnite WHERE ancetre = :id) sous) "
+            + "AND ancetre NOT IN (SELECT interne.descendant FROM "
+            + "(SELECT DISTINCT descendant FROM LienUnite WHERE ancetre = :id) interne)", nativeQuery = true)
+    int detacherSousArbre(@Param("id") Long id);
+
+    /**
+     * Rattache le sous-arbre d'une unité sous un nouveau parent : chaque unité au-dessus du parent, le parent compris,
+     * devient ancêtre de chaque unité du sous-arbre
+     */
+    @Modifying
+    @Query(value = "INSERT INTO LienUnite (ancetre, descendant, profondeur) "
+            + "SELECT dessus.ancetre, dessous.descendant, dessus.profondeur + dessous.profondeur + 1 "
+            + "FROM LienUnite dessus JOIN LienUnite dessous ON dessous.ancetre = :id "
+            + "WHERE dessus.descendant = :parentId", nativeQuery = true)
+    int rattacherSousArbre(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    @Modifying
+    @Query(value = "DELETE FROM LienUnite WHERE descendant = :id", nativeQuery = true)
+    int supprimerLiensUnite(@Param("id") Long id);
+}
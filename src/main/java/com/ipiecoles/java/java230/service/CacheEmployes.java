@@ -0,0 +1,60 @@
+package com.ipiecoles.java.java230.service;
+
+import com.ipiecoles.java.java230.model.Employe;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+/**
+ * Cache de second niveau des employés (région de la hiérarchie Employe) et cache des requêtes (findByMatricule).
+ * Activé par le profil Spring "cache" (voir application-cache.properties et ehcache.xml), inactif sinon.
+ *
+ * Hibernate tient le cache à jour pour les écritures qui passent par lui : save, delete, et les UPDATE/DELETE JPQL,
+ * après lesquels il vide les régions des entités modifiées. Les écritures faites en JDBC (chargement natif) lui
+ * échappent : {@link #vider()} doit être appelée après ces écritures. L'équipe d'un manager n'est pas en cache : elle
+ * est relue en base à chaque chargement.
+ */
+@Component
+public class CacheEmployes {
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Vide la région des employés et les résultats de requêtes en cache
+     */
+    public void vider() {
+        Cache cache = sessionFactory().getCache();
+        cache.evictEntityRegion(Employe.class);
+        cache.evictDefaultQueryRegion();
+        cache.evictQueryRegions();
+    }
+
+    public boolean isActif() {
+        return sessionFactory().getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+
+    /**
+     * @return les succès, échecs et ajouts du cache des employés et du cache des requêtes, si les statistiques
+     * Hibernate sont activées
+     */
+    public String resume() {
+        Statistics statistiques = sessionFactory().getStatistics();
+        if (!statistiques.isStatisticsEnabled()) {
+            return "Statistiques du cache désactivées (hibernate.generate_statistics)";
+        }
+        return "Cache des employés : " + statistiques.getSecondLevelCacheHitCount() + " succès, "
+                + statistiques.getSecondLevelCacheMissCount() + " échecs, "
+                + statistiques.getSecondLevelCachePutCount() + " ajouts ; cache des requêtes : "
+                + statistiques.getQueryCacheHitCount() + " succès, " + statistiques.getQueryCacheMissCount()
+                + " échecs, " + statistiques.getQueryCachePutCount() + " ajouts";
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
@@ -1,9 +1,20 @@
 package com.ipiecoles.java.java230.service;
 
+import com.ipiecoles.java.java230.model.Commercial;
 import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import com.ipiecoles.java.java230.repository.CommercialRepository;
 import com.ipiecoles.java.java230.repository.EmployeRepository;
+import com.ipiecoles.java.java230.repository.ManagerRepository;
+import com.ipiecoles.java.java230.repository.TechnicienRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 public class EmployeService {
@@ -11,6 +22,15 @@ public class EmployeService {
     @Autowired
     private EmployeRepository employeRepository;
 
+    @Autowired
+    private ManagerRepository managerRepository;
+
+    @Autowired
+    private TechnicienRepository technicienRepository;
+
+    @Autowired
+    private CommercialRepository commercialRepository;
+
     public Employe findById(Long id){
         return employeRepository.findOne(id);
     }
@@ -26,4 +46,101 @@ public class EmployeService {
     public Employe creerEmploye(Employe e) {
         return employeRepository.save(e);
     }
+
+    /**
+     * Lit en base la taille et les salaires de l'équipe d'un manager, en une requête et sans charger les techniciens :
+     * getTailleEquipe, getSalaireEquipe, salaireEquipeGrade1, setSalaire et getPrimeAnnuelle les utilisent ensuite
+     * tant que l'équipe n'est pas chargée
+     * @param manager un manager lu en base
+     */
+    public void chargerAgregatsEquipe(Manager manager) {
+        int taille = 0;
+        double salaire = 0;
+        double salaireGrade1 = 0;
+        for (Object[] agregat : technicienRepository.findAgregatsEquipeParGrade(manager.getId())) {
+            taille += ((Number) agregat[1]).intValue();
+            salaire += ((Number) agregat[2]).doubleValue();
+            if (Integer.valueOf(1).equals(agregat[0])) {
+                salaireGrade1 = ((Number) agregat[2]).doubleValue();
+            }
+        }
+        manager.setAgregatsEquipe(taille, salaire, salaireGrade1);
+    }
+
+    /**
+     * Comme {@link #chargerAgregatsEquipe(Manager)}, en une seule requête pour tous les managers, par exemple une page
+     * de managers d'un calcul de paie
+     * @param managers des managers lus en base
+     */
+    public void chargerAgregatsEquipes(Collection<Manager> managers) {
+        if (managers.isEmpty()) {
+            return;
+        }
+        Map<Long, Manager> parId = new HashMap<>();
+        for (Manager manager : managers) {
+            parId.put(manager.getId(), manager);
+            manager.setAgregatsEquipe(0, 0, 0);
+        }
+        for (Object[] agregat : technicienRepository.findAgregatsEquipes(parId.keySet())) {
+            parId.get(agregat[0]).setAgregatsEquipe(((Number) agregat[1]).intValue(),
+                    ((Number) agregat[2]).doubleValue(), ((Number) agregat[3]).doubleValue());
+        }
+    }
+
+    /*
+     * Augmentations de salaire en masse : chaque augmentation est une requête UPDATE ensembliste, sans charger les
+     * employés. Le pourcentage a le même sens que dans Employe.augmenterSalaire (0.05 pour 5%) et le résultat est le
+     * même que celui des méthodes des entités. Les modifications en attente sont écrites en base avant chaque requête
+     * et le contexte de persistance est vidé après (voir les @Modifying des repositories) : les employés déjà chargés
+     * sont relus avec leur nouveau salaire, et Hibernate vide la région des employés du cache de second niveau (voir
+     * CacheEmployes). Chaque méthode renvoie le nombre d'employés augmentés.
+     */
+
+    /**
+     * Augmente le salaire d'un manager et de tous les techniciens de son équipe, comme Manager.augmenterSalaire
+     * @param managerId l'identifiant du manager
+     * @param pourcentage le pourcentage d'augmentation
+     * @return le nombre d'employés augmentés, 0 si le manager n'existe pas
+     */
+    @Transactional
+    public int augmenterSalaireManager(Long managerId, Double pourcentage) {
+        int nbManagers = managerRepository.multiplierSalaire(managerId, 1 + pourcentage);
+        if (nbManagers == 0) {
+            return 0;
+        }
+        return nbManagers + technicienRepository.multiplierSalaireEquipe(managerId, 1 + pourcentage);
+    }
+
+    /**
+     * Augmente le salaire de tous les employés d'un type. Comme pour Manager.augmenterSalaire appelée sur chaque
+     * manager, augmenter les managers augmente aussi les techniciens qui ont un manager.
+     * @param type Manager, Technicien ou Commercial
+     * @param pourcentage le pourcentage d'augmentation
+     * @return le nombre d'employés augmentés
+     */
+    @Transactional
+    public int augmenterSalaireType(Class<? extends Employe> type, Double pourcentage) {
+        Double facteur = 1 + pourcentage;
+        if (Manager.class.equals(type)) {
+            return managerRepository.multiplierSalaireTous(facteur) + technicienRepository.multiplierSalaireAvecManager(facteur);
+        }
+        if (Technicien.class.equals(type)) {
+            return technicienRepository.multiplierSalaireTous(facteur);
+        }
+        if (Commercial.class.equals(type)) {
+            return commercialRepository.multiplierSalaireTous(facteur);
+        }
+        throw new IllegalArgumentException("Type d'employé inconnu : " + type);
+    }
+
+    /**
+     * Augmente le salaire de tous les techniciens d'un grade
+     * @param grade le grade, de 1 à 5
+     * @param pourcentage le pourcentage d'augmentation
+     * @return le nombre de techniciens augmentés
+     */
+    @Transactional
+    public int augmenterSalaireGrade(Integer grade, Double pourcentage) {
+        return technicienRepository.multiplierSalaireGrade(grade, 1 + pourcentage);
+    }
 }
@@ -0,0 +1,117 @@
+package com.ipiecoles.java.java230.service;
+
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.MembreUnite;
+import com.ipiecoles.java.java230.model.UniteOrganisation;
+import com.ipiecoles.java.java230.repository.MembreUniteRepository;
+import com.ipiecoles.java.java230.repository.UniteOrganisationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Organigramme : création et déplacement des unités, affectation des employés et requêtes sur les sous-arbres. Chaque
+ * modification de l'arbre met à jour la table de fermeture LienUnite dans la même transaction.
+ */
+@Service
+public class OrganisationService {
+
+    @Autowired
+    private UniteOrganisationRepository uniteRepository;
+
+    @Autowired
+    private MembreUniteRepository membreRepository;
+
+    /**
+     * @param nom le nom de l'unité
+     * @param parentId l'unité parente, null pour une racine
+     * @param responsable le responsable de l'unité, peut être null
+     * @return l'unité créée
+     */
+    @Transactional
+    public UniteOrganisation creerUnite(String nom, Long parentId, Employe responsable) {
+        UniteOrganisation parent = parentId == null ? null : trouver(parentId);
+        UniteOrganisation unite = uniteRepository.save(new UniteOrganisation(nom, parent, responsable));
+        uniteRepository.insererLienUnite(unite.getId());
+        if (parentId != null) {
+            uniteRepository.insererLiensAncetres(unite.getId(), parentId);
+        }
+        return unite;
+    }
+
+    /**
+     * Déplace une unité et tout son sous-arbre sous un nouveau parent
+     * @param uniteId l'unité à déplacer
+     * @param parentId le nouveau parent, null pour en faire une racine
+     * @throws IllegalArgumentException si le nouveau parent est dans le sous-arbre de l'unité
+     */
+    @Transactional
+    public void deplacerUnite(Long uniteId, Long parentId) {
+        UniteOrganisation unite = trouver(uniteId);
+        UniteOrganisation parent = parentId == null ? null : trouver(parentId);
+        if (parentId != null && uniteRepository.countLiens(uniteId, parentId) > 0) {
+            throw new IllegalArgumentException("L'unité " + parentId + " fait partie du sous-arbre de l'unité " + uniteId);
+        }
+        unite.setParent(parent);
+        uniteRepository.detacherSousArbre(uniteId);
+        if (parentId != null) {
+            uniteRepository.rattacherSousArbre(uniteId, parentId);
+        }
+    }
+
+    /**
+     * Supprime une unité sans sous-unité ni membre
+     * @throws IllegalStateException si l'unité a encore des sous-unités ou des membres
+     */
+    @Transactional
+    public void supprimerUnite(Long uniteId) {
+        UniteOrganisation unite = trouver(uniteId);
+        if (!uniteRepository.findByParentId(uniteId).isEmpty() || membreRepository.countByUniteId(uniteId) > 0) {
+            throw new IllegalStateException("L'unité " + uniteId + " a encore des sous-unités ou des membres");
+        }
+        uniteRepository.supprimerLiensUnite(uniteId);
+        uniteRepository.delete(unite);
+    }
+
+    /**
+     * Affecte un employé à une unité, en remplacement de son unité précédente
+     */
+    @Transactional
+    public void affecter(Long employeId, Long uniteId) {
+        trouver(uniteId);
+        membreRepository.save(new MembreUnite(employeId, uniteId));
+    }
+
+    public List<Employe> findMembresSousUnite(Long uniteId) {
+        return uniteRepository.findMembresSousUnite(uniteId);
+    }
+
+    public List<UniteOrganisation> findChaineUnitesEmploye(Long employeId) {
+        return uniteRepository.findChaineUnitesEmploye(employeId);
+    }
+
+    /**
+     * @return l'effectif du sous-arbre de l'unité
+     */
+    public long effectifSousUnite(Long uniteId) {
+        return ((Number) uniteRepository.findEffectifEtSalairesSousUnite(uniteId).get(0)[0]).longValue();
+    }
+
+    /**
+     * @return la somme des salaires du sous-arbre de l'unité, 0 s'il n'a pas de membre
+     */
+    public double salairesSousUnite(Long uniteId) {
+        Object somme = uniteRepository.findEffectifEtSalairesSousUnite(uniteId).get(0)[1];
+        return somme == null ? 0 : ((Number) somme).doubleValue();
+    }
+
+    private UniteOrganisation trouver(Long uniteId) {
+        UniteOrganisation unite = uniteRepository.findOne(uniteId);
+        if (unite == null) {
+            throw new IllegalArgumentException("L'unité " + uniteId + " n'existe pas");
+        }
+        return unite;
+    }
+}
@@ -0,0 +1,11 @@
+-- Table de séquence du générateur d'identifiants de la hiérarchie Employe (voir Employe.id).
+-- MySQL n'ayant pas de séquences, Hibernate utilise une table à une ligne dont next_val est le prochain
+-- identifiant libre ; chaque lecture réserve un bloc de 50 identifiants.
+-- La valeur de départ suit le plus grand identifiant existant : les identifiants déjà attribués ne changent pas.
+CREATE TABLE IF NOT EXISTS employe_seq (
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO employe_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 1 FROM Employe
+WHERE NOT EXISTS (SELECT 1 FROM employe_seq);
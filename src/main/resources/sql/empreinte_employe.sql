@@ -0,0 +1,7 @@
+-- Empreintes de l'import différentiel (voir EmpreinteEmploye) : une ligne par matricule importé, avec l'identifiant
+-- de l'employé et l'empreinte sur 64 bits de sa dernière ligne importée.
+CREATE TABLE IF NOT EXISTS EmpreinteEmploye (
+    matricule VARCHAR(255) NOT NULL PRIMARY KEY,
+    employeId BIGINT,
+    empreinte BIGINT
+);
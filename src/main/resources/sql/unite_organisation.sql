@@ -0,0 +1,32 @@
+-- Organigramme (voir UniteOrganisation) : les unités, leur table de fermeture et l'affectation des employés.
+-- LienUnite contient une ligne (ancetre, descendant, profondeur) pour chaque unité et chacune de ses unités parentes,
+-- plus (unite, unite, 0) : un sous-arbre, la chaîne des unités parentes ou un cumul par sous-arbre se lisent en une
+-- seule requête sur ses index, sans parcours récursif.
+CREATE TABLE IF NOT EXISTS UniteOrganisation (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    nom VARCHAR(255),
+    parent_id BIGINT,
+    responsable_id BIGINT,
+    INDEX idx_unite_parent (parent_id),
+    FOREIGN KEY (parent_id) REFERENCES UniteOrganisation (id),
+    -- la suppression du responsable laisse l'unité sans responsable
+    FOREIGN KEY (responsable_id) REFERENCES Employe (id) ON DELETE SET NULL
+);
+
+CREATE TABLE IF NOT EXISTS LienUnite (
+    ancetre BIGINT NOT NULL,
+    descendant BIGINT NOT NULL,
+    profondeur INT NOT NULL,
+    PRIMARY KEY (ancetre, descendant),
+    INDEX idx_lien_descendant (descendant, profondeur),
+    FOREIGN KEY (ancetre) REFERENCES UniteOrganisation (id),
+    FOREIGN KEY (descendant) REFERENCES UniteOrganisation (id)
+);
+
+CREATE TABLE IF NOT EXISTS MembreUnite (
+    employeId BIGINT NOT NULL PRIMARY KEY,
+    uniteId BIGINT NOT NULL,
+    INDEX idx_membre_unite (uniteId),
+    FOREIGN KEY (employeId) REFERENCES Employe (id) ON DELETE CASCADE,
+    FOREIGN KEY (uniteId) REFERENCES UniteOrganisation (id)
+);
@@ -0,0 +1,174 @@
+package com.ipiecoles.java.java230;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import com.ipiecoles.java.java230.batch.AnalyseurLigne;
+import com.ipiecoles.java.java230.batch.InstantaneEmployes;
+import com.ipiecoles.java.java230.batch.StatistiquesImport;
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import com.ipiecoles.java.java230.repository.EmployeRepository;
+import com.ipiecoles.java.java230.repository.ManagerRepository;
+import com.ipiecoles.java.java230.utils.BaseH2;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+public class MyRunnerTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    /**
+     * Employés reçus par la destination et messages de MyRunner, dans l'ordre où ils se produisent
+     */
+    private final List<String> evenements = new ArrayList<>();
+
+    private final AppenderBase<ILoggingEvent> journal = new AppenderBase<ILoggingEvent>() {
+        @Override
+        protected void append(ILoggingEvent evenement) {
+            evenements.add(evenement.getFormattedMessage());
+        }
+    };
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(MyRunner.class);
+
+    private final MyRunner myRunner = new MyRunner();
+
+    @Before
+    public void setUp() {
+        journal.start();
+        logger.addAppender(journal);
+        //le manager M00000 est déjà en base avec l'identifiant 1
+        ReflectionTestUtils.setField(myRunner, "managerRepository", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ManagerRepository.class}, (proxy, methode, args) -> {
+                    if (methode.getDeclaringClass() == Object.class) {
+                        return methode.getName().equals("toString") ? "ManagerRepository" : 0;
+                    }
+                    return Collections.singletonList(new Object[]{"M00000", 1L});
+                }));
+        ReflectionTestUtils.setField(myRunner, "analyseurLigne", new AnalyseurLigne());
+        ReflectionTestUtils.setField(myRunner, "statistiques", StatistiquesImport.INACTIVES);
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(journal);
+    }
+
+    @Test
+    public void testLectureEnFlux() throws Exception {
+        //Given
+        Path fichier = dossier.newFile("employes.csv").toPath();
+        Files.write(fichier, Arrays.asList(
+                "M00001,durand,jacques,04/06/2013,1200.5",
+                "XXXXXX,durand,jacques,04/06/2013,1200.5",
+                "T00001,dupont,pierre,12/03/2003,1700.5,5,M00000",
+                "T00002,dupont,paul,12/03/2003,1700.5,5,M00002",
+                "M00002,martin,jeanne,04/06/2013,1200.5",
+                "M12,durand,jacques,04/06/2013,1200.5"), StandardCharsets.UTF_8);
+        List<Employe> employes = new ArrayList<>();
+
+        //When
+        long nbEmployes = myRunner.readFile(fichier, employe -> {
+            evenements.add(employe.getMatricule());
+            employes.add(employe);
+        });
+
+        //Then chaque employé est transmis dès sa ligne lue, le technicien en attente de son manager en fin de fichier
+        Assertions.assertThat(nbEmployes).isEqualTo(4);
+        Assertions.assertThat(evenements).containsExactly(
+                "Lecture du fichier : " + fichier,
+                "M00001",
+                "Ligne 2 : Type d'employé inconnu => XXXXXX,durand,jacques,04/06/2013,1200.5",
+                "T00001",
+                "M00002",
+                "Ligne 6 : La chaîne: M12 ne respecte pas l'expression régulière ^[MTC][0-9]{5}$ => M12,durand,jacques,04/06/2013,1200.5",
+                "6 lignes lues",
+                "T00002");
+        Assertions.assertThat(((Technicien) employes.get(1)).getManager().getId()).isEqualTo(1L);
+        Assertions.assertThat(((Technicien) employes.get(3)).getManager()).isSameAs(employes.get(2));
+    }
+
+    @Test
+    public void testFichierIntrouvable() {
+        //Given
+        Path fichier = dossier.getRoot().toPath().resolve("absent.csv");
+        List<Employe> employes = new ArrayList<>();
+
+        //When
+        long nbEmployes = myRunner.readFile(fichier, employes::add);
+
+        //Then l'erreur est signalée sans être propagée
+        Assertions.assertThat(nbEmployes).isEqualTo(0);
+        Assertions.assertThat(employes).isEmpty();
+        Assertions.assertThat(evenements).last().asString().startsWith("Problème dans la lecture du fichier " + fichier);
+    }
+
+    @Test
+    public void testExportInstantaneParPagesH2() throws Exception {
+        //Given 5 employés en base dont un technicien sans grade, lus par pages de 2
+        EntityManagerFactory entityManagerFactory = BaseH2.entityManagerFactory(BaseH2.dataSource("export"),
+                new HashMap<>());
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            ReflectionTestUtils.setField(myRunner, "employeRepository",
+                    new JpaRepositoryFactory(entityManager).getRepository(EmployeRepository.class));
+            ReflectionTestUtils.setField(myRunner, "tailleLot", 2);
+            Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2013, 6, 4), 2000d, new HashSet<>());
+            Technicien sansGrade = new Technicien("martin", "jacques", "T00001", new LocalDate(2015, 1, 9), 1500d);
+            sansGrade.setManager(manager);
+            Technicien technicien = new Technicien("petit", "julie", "T00002", new LocalDate(2016, 12, 31), 1600d, 2);
+            technicien.setManager(manager);
+            transaction.execute(statut -> {
+                entityManager.persist(manager);
+                entityManager.persist(sansGrade);
+                entityManager.persist(new Commercial("aubert", "michel", "C00001", new LocalDate(2018, 9, 5), 1500d, 1.0E5));
+                entityManager.persist(technicien);
+                entityManager.persist(new Manager("dupont", "jean", "M00002", null, 1800d, new HashSet<>()));
+                return null;
+            });
+            Path fichier = dossier.getRoot().toPath().resolve("employes.instantane");
+
+            //When
+            myRunner.exporterInstantane(fichier);
+
+            //Then
+            List<Employe> employes = InstantaneEmployes.lire(fichier);
+            Assertions.assertThat(evenements).last().isEqualTo("5 employés exportés dans l'instantané " + fichier);
+            Assertions.assertThat(employes).extracting(Employe::getMatricule)
+                    .containsExactly("M00001", "M00002", "C00001", "T00001", "T00002");
+            Assertions.assertThat(((Technicien) employes.get(3)).getGrade()).isNull();
+            Assertions.assertThat(((Manager) employes.get(0)).getEquipe()).hasSize(2);
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ipiecoles.java.java230.batch;
+
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+public class AnalyseurDateTest {
+
+    private final AnalyseurDate analyseur = new AnalyseurDate();
+
+    @Test
+    public void testDatesValides() {
+        Assertions.assertThat(analyseur.lire("04/06/2013")).isEqualTo(new LocalDate(2013, 6, 4));
+        Assertions.assertThat(analyseur.lire("29/02/2012")).isEqualTo(new LocalDate(2012, 2, 29));
+        //écriture courte acceptée par le format Joda
+        Assertions.assertThat(analyseur.lire("4/6/2013")).isEqualTo(new LocalDate(2013, 6, 4));
+        //une date déjà lue est servie par le cache
+        Assertions.assertThat(analyseur.lire("x,04/06/2013", 2, 12)).isSameAs(analyseur.lire("04/06/2013"));
+    }
+
+    @Test
+    public void testDatesInvalides() {
+        Assertions.assertThat(analyseur.lire("04/99/2013")).isNull();
+        Assertions.assertThat(analyseur.lire("29/02/1900")).isNull();
+        Assertions.assertThat(analyseur.lire("31/04/2013")).isNull();
+        Assertions.assertThat(analyseur.lire("05/09/XX")).isNull();
+        Assertions.assertThat(analyseur.lire("")).isNull();
+    }
+
+    @Test
+    public void testJoursDepuis1970() {
+        Assertions.assertThat(AnalyseurDate.jour(new LocalDate(1970, 1, 1))).isEqualTo(0);
+        Assertions.assertThat(AnalyseurDate.jour(new LocalDate(1969, 12, 31))).isEqualTo(-1);
+        Assertions.assertThat(AnalyseurDate.jour(new LocalDate(2020, 2, 29))).isEqualTo(18321);
+        Assertions.assertThat(AnalyseurDate.jour(new LocalDate(1900, 3, 1))).isEqualTo(-25508);
+        Assertions.assertThat(AnalyseurDate.date(18321)).isEqualTo(new LocalDate(2020, 2, 29));
+        Assertions.assertThat(AnalyseurDate.date(-25508)).isEqualTo(new LocalDate(1900, 3, 1));
+    }
+}
@@ -0,0 +1,78 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+public class AnalyseurLigneTest {
+
+    private final AnalyseurLigne analyseur = new AnalyseurLigne();
+
+    private String erreur(String ligne) {
+        try {
+            analyseur.analyser(ligne);
+        } catch (BatchException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    @Test
+    public void testLignesValides() throws Exception {
+        Employe m = analyseur.analyser("M87654,durand,jacques,04/06/2013,1200.5");
+        Assertions.assertThat(m).isInstanceOf(Manager.class);
+        Assertions.assertThat(m.getMatricule()).isEqualTo("M87654");
+        Assertions.assertThat(m.getNom()).isEqualTo("durand");
+        Assertions.assertThat(m.getPrenom()).isEqualTo("jacques");
+        Assertions.assertThat(m.getDateEmbauche()).isEqualTo(new LocalDate(2013, 6, 4));
+
+        Technicien t = (Technicien) analyseur.analyser("T98765,dupont,pierre,12/03/2003,1700.5,5,M87654");
+        Assertions.assertThat(t.getGrade()).isEqualTo(5);
+        Assertions.assertThat(t.getSalaire()).isEqualTo(1700.5 * 1.5);
+        Assertions.assertThat(t.getManager().getMatricule()).isEqualTo("M87654");
+
+        Commercial c = (Commercial) analyseur.analyser("C32154,aubert,michel,05/09/2018,2200.5,150000,100");
+        Assertions.assertThat(c.getSalaire()).isEqualTo(2200.5);
+        Assertions.assertThat(c.getCaAnnuel()).isEqualTo(150000d);
+        Assertions.assertThat(c.getPerformance()).isEqualTo(100);
+    }
+
+    @Test
+    public void testMessagesErreur() {
+        Assertions.assertThat(erreur("XXXXXX,durand,jacques,04/06/2013,1200.5")).isEqualTo("Type d'employé inconnu");
+        Assertions.assertThat(erreur("")).isEqualTo("Type d'employé inconnu");
+        Assertions.assertThat(erreur("M12,durand,jacques,04/06/2013,1200.5"))
+                .isEqualTo("La chaîne: M12 ne respecte pas l'expression régulière ^[MTC][0-9]{5}$");
+        Assertions.assertThat(erreur("M12345,durand,jacques,"))
+                .isEqualTo("La ligne manager ne contient pas 5 éléments mais 3");
+        Assertions.assertThat(erreur("M12345,durand,jacques,04/06/2013,1200.5,dfgdfg,dfgdfg"))
+                .isEqualTo("La ligne manager ne contient pas 5 éléments mais 7");
+        Assertions.assertThat(erreur("M12345,durand,jacques,04/99/2013,1200.5"))
+                .isEqualTo("04/99/2013 ne respecte pas le format de date dd/MM/yyyy");
+        Assertions.assertThat(erreur("M12345,durand,jacques,04/06/2013,sdf"))
+                .isEqualTo("sdf n'est pas un format valide de salaire");
+        Assertions.assertThat(erreur("C12345,aubert,michel,05/09/2018,2200.5,xxx,100"))
+                .isEqualTo("Le chiffre d'affaire du commercial est incorrect: xxx");
+        Assertions.assertThat(erreur("C12345,aubert,michel,05/09/2018,2200.5,150000.0,xxx"))
+                .isEqualTo("La performance du commercial est incorrecte : xxx");
+        Assertions.assertThat(erreur("T12345,dupont,pierre,12/03/2003,1700.5,9,M00001"))
+                .isEqualTo("Le grade doit être compris entre 1 et 5");
+        Assertions.assertThat(erreur("T12345,dupont,pierre,12/03/2003,1700.5,X,M00001"))
+                .isEqualTo("X n'est pas un format valide de grade");
+        Assertions.assertThat(erreur("T12345,dupont,pierre,12/03/2003,1700.5,5,xxx"))
+                .isEqualTo("La chaîne xxx ne respecte pas l'expression régulière ^M[0-9]{5}$");
+    }
+
+    @Test
+    public void testNombresCommeParseDouble() throws Exception {
+        for (String salaire : new String[]{"0.1", "1480.27", "-0", ".5", "1.", "1e3", " 12 ", "123456789012345678901234.5"}) {
+            Employe m = analyseur.analyser("C12345,a,b,01/01/2000," + salaire + ",1,1");
+            Assertions.assertThat(m.getSalaire()).as(salaire).isEqualTo(Double.parseDouble(salaire));
+        }
+    }
+}
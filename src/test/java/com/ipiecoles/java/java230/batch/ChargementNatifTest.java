@@ -0,0 +1,157 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chargement sur une base H2 en mémoire, disponible avec le profil Maven h2, et abandon du chargement sans base
+ */
+public class ChargementNatifTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private void baseH2() {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            Assume.assumeNoException("H2 absent, lancer les tests avec -Ph2", e);
+        }
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:chargement;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE Employe (id BIGINT PRIMARY KEY, nom VARCHAR(255), prenom VARCHAR(255), "
+                + "matricule VARCHAR(255), dateEmbauche DATE, salaire DOUBLE)");
+        jdbcTemplate.execute("CREATE TABLE Manager (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE Commercial (id BIGINT PRIMARY KEY, caAnnuel DOUBLE, performance INT)");
+        jdbcTemplate.execute("CREATE TABLE Technicien (id BIGINT PRIMARY KEY, grade INT, manager_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE employe_seq (next_val BIGINT NOT NULL)");
+        jdbcTemplate.execute("INSERT INTO Employe VALUES (1, 'ancien', 'manager', 'M00000', '2001-01-01', 2000)");
+        jdbcTemplate.execute("INSERT INTO Manager VALUES (1)");
+        jdbcTemplate.execute("INSERT INTO employe_seq VALUES (2)");
+    }
+
+    @Test
+    public void testChargementEtRattachement() throws Exception {
+        //Given un manager en base, un manager du fichier et des techniciens de chacun
+        baseH2();
+        Manager managerBase = new Manager();
+        managerBase.setId(1L);
+        managerBase.setMatricule("M00000");
+        Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2013, 6, 4), 2345.67, new HashSet<>());
+        Technicien t1 = new Technicien("martin", "jacques", "T00001", new LocalDate(2015, 1, 9), 1500.25, 3);
+        t1.setManager(manager);
+        Technicien t2 = new Technicien("petit", "julie", "T00002", new LocalDate(2016, 12, 31), 1600.0, 1);
+        t2.setManager(managerBase);
+        Commercial commercial = new Commercial("d\"artagnan", "éric", "C00001", new LocalDate(2010, 10, 10), 1900.99, 1.0E7);
+
+        //When avec des blocs de deux identifiants
+        try (ChargementNatif chargement = ChargementNatif.pour(jdbcTemplate, transactionTemplate,
+                dossier.getRoot().toPath(), 2)) {
+            chargement.accept(manager);
+            chargement.accept(t1);
+            chargement.accept(t2);
+            chargement.accept(commercial);
+            chargement.terminer();
+        }
+
+        //Then
+        Assertions.assertThat(manager.getId()).isEqualTo(2L);
+        Assertions.assertThat(commercial.getId()).isEqualTo(5L);
+        Assertions.assertThat(jdbcTemplate.queryForObject("SELECT next_val FROM employe_seq", Long.class)).isEqualTo(6L);
+        Assertions.assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM Employe", Long.class)).isEqualTo(5L);
+        Assertions.assertThat(jdbcTemplate.queryForObject("SELECT manager_id FROM Technicien WHERE id = ?", Long.class, t1.getId()))
+                .isEqualTo(manager.getId());
+        Assertions.assertThat(jdbcTemplate.queryForObject("SELECT manager_id FROM Technicien WHERE id = ?", Long.class, t2.getId()))
+                .isEqualTo(1L);
+        Map<String, Object> ligne = jdbcTemplate.queryForMap("SELECT e.nom, e.dateEmbauche, c.caAnnuel, c.performance "
+                + "FROM Employe e JOIN Commercial c ON c.id = e.id");
+        Assertions.assertThat(ligne.get("NOM")).isEqualTo("d\"artagnan");
+        Assertions.assertThat(ligne.get("DATEEMBAUCHE").toString()).isEqualTo("2010-10-10");
+        Assertions.assertThat(ligne.get("CAANNUEL")).isEqualTo(1.0E7);
+        Assertions.assertThat(ligne.get("PERFORMANCE")).isNull();
+        Assertions.assertThat(dossier.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void testAbandonSansTerminer() throws Exception {
+        //Given une lecture interrompue après deux employés
+        List<String> requetes = new ArrayList<>();
+        JdbcTemplate jdbc = new JdbcTemplate() {
+            @Override
+            public <T> T queryForObject(String sql, Class<T> requiredType) {
+                requetes.add(sql);
+                return requiredType.cast(10L);
+            }
+
+            @Override
+            public int update(String sql, Object... args) {
+                requetes.add(sql);
+                return 1;
+            }
+        };
+        TransactionTemplate transaction = new TransactionTemplate(new PlatformTransactionManager() {
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+            public void commit(TransactionStatus status) {
+            }
+            public void rollback(TransactionStatus status) {
+            }
+        });
+        List<String> tablesChargees = new ArrayList<>();
+        Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2013, 6, 4), 2345.67, new HashSet<>());
+        Technicien technicien = new Technicien("martin", "jacques", "T00001", new LocalDate(2015, 1, 9), 1500.25, 3);
+        technicien.setManager(manager);
+
+        //When
+        try (ChargementNatif chargement = new ChargementNatif(jdbc, transaction, dossier.getRoot().toPath(), 50) {
+            @Override
+            protected int charger(String table, String[] colonnes, Path fichier) {
+                tablesChargees.add(table);
+                return 0;
+            }
+
+            @Override
+            protected void creerTableRattachement() {
+                tablesChargees.add("creation " + TABLE_RATTACHEMENT);
+            }
+        }) {
+            chargement.accept(manager);
+            chargement.accept(technicien);
+            Assertions.assertThat(dossier.getRoot().list()).hasSize(1);
+        }
+
+        //Then identifiants réservés, mais rien de chargé et plus aucun fichier intermédiaire
+        Assertions.assertThat(technicien.getId()).isEqualTo(11L);
+        Assertions.assertThat(requetes).hasSize(2);
+        Assertions.assertThat(tablesChargees).isEmpty();
+        Assertions.assertThat(dossier.getRoot().list()).isEmpty();
+    }
+}
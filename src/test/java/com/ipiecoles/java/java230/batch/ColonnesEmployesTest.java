@@ -0,0 +1,109 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import com.ipiecoles.java.java230.repository.EmployeRepository;
+import com.ipiecoles.java.java230.utils.BaseH2;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class ColonnesEmployesTest {
+
+    @Test
+    public void testColonnesFiltresEtRegroupements() throws Exception {
+        //Given
+        Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2010, 1, 1), 3000d, new HashSet<>());
+        Technicien t1 = new Technicien("dupont", "pierre", "T00001", new LocalDate(2012, 5, 3), 1500d, 1);
+        Technicien t2 = new Technicien("durand", "paul", "T00002", new LocalDate(2015, 1, 1), 1700d, 3);
+        t1.setManager(manager);
+        t2.setManager(manager);
+        Technicien seul = new Technicien("martin", "pierre", "T00003", null, 1600d, 1);
+        Commercial commercial = new Commercial("aubert", "michel", "C00001", new LocalDate(2018, 9, 5), 2200d, null);
+        ColonnesEmployes.Constructeur constructeur = new ColonnesEmployes.Constructeur(2);
+
+        //When
+        for (Employe employe : new Employe[]{t1, manager, seul, commercial, t2}) {
+            constructeur.accept(employe);
+        }
+        ColonnesEmployes colonnes = constructeur.construire();
+
+        //Then
+        Assertions.assertThat(colonnes.getTaille()).isEqualTo(5);
+        Assertions.assertThat(colonnes.getMatricule(3)).isEqualTo("C00001");
+        Assertions.assertThat(colonnes.getNom(4)).isEqualTo("durand");
+        Assertions.assertThat(colonnes.getCodeNom(4)).isEqualTo(colonnes.getCodeNom(1));
+        Assertions.assertThat(colonnes.getPrenom(2)).isEqualTo("pierre");
+        Assertions.assertThat(colonnes.getDateEmbauche(0)).isEqualTo(15463);
+        Assertions.assertThat(colonnes.getDateEmbauche(2)).isEqualTo(ColonnesEmployes.SANS_DATE);
+        Assertions.assertThat(colonnes.getCaAnnuel(3)).isNaN();
+        Assertions.assertThat(colonnes.getManager(0)).isEqualTo(1);
+        Assertions.assertThat(colonnes.getManager(2)).isEqualTo(-1);
+        Assertions.assertThat(colonnes.filtrer(colonnes.nom("durand"))).containsExactly(1, 4);
+        Assertions.assertThat(colonnes.compter(colonnes.embaucheAvant(new LocalDate(2015, 1, 1)))).isEqualTo(2);
+        Assertions.assertThat(colonnes.sommeSalaires(colonnes.type(ColonnesEmployes.TECHNICIEN))).isEqualTo(4800d);
+        Assertions.assertThat(colonnes.sommeSalairesParType(i -> true)).containsExactly(0, 3000, 2200, 4800);
+        Assertions.assertThat(colonnes.sommeSalairesParGrade(colonnes.salaireMinimum(1600)))
+                .containsExactly(0, 1600, 0, 1700, 0, 0);
+        Assertions.assertThat(colonnes.sommeSalairesParManager(i -> true)).containsExactly(0, 3200, 0, 0, 0);
+        Assertions.assertThat(colonnes.compterParGroupe(colonnes::getGrade, 6, i -> true))
+                .containsExactly(2, 2, 0, 1, 0, 0);
+    }
+
+    @Test
+    public void testChargementParPagesH2() throws Exception {
+        //Given 5 employés en base, lus par pages de 2
+        EntityManagerFactory entityManagerFactory = BaseH2.entityManagerFactory(BaseH2.dataSource("colonnes"),
+                new HashMap<>());
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            EmployeRepository employeRepository = new JpaRepositoryFactory(entityManager).getRepository(EmployeRepository.class);
+            Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2010, 1, 1), 3000d, new HashSet<>());
+            Technicien t1 = new Technicien("dupont", "pierre", "T00001", new LocalDate(2012, 5, 3), 1500d, 1);
+            Technicien t2 = new Technicien("durand", "paul", "T00002", new LocalDate(2015, 1, 1), 1700d, 3);
+            t1.setManager(manager);
+            t2.setManager(manager);
+            Technicien seul = new Technicien("martin", "pierre", "T00003", null, 1600d, 1);
+            Commercial commercial = new Commercial("aubert", "michel", "C00001", new LocalDate(2018, 9, 5), 2200d, 5000d);
+            transaction.execute(statut -> {
+                for (Employe employe : new Employe[]{manager, t1, seul, commercial, t2}) {
+                    entityManager.persist(employe);
+                }
+                return null;
+            });
+
+            //When
+            ColonnesEmployes colonnes = transaction.execute(statut -> ColonnesEmployes.charger(employeRepository, 2));
+
+            //Then
+            Assertions.assertThat(colonnes.getTaille()).isEqualTo(5);
+            Assertions.assertThat(Arrays.asList(colonnes.getMatricule(0), colonnes.getMatricule(1),
+                    colonnes.getMatricule(2), colonnes.getMatricule(3), colonnes.getMatricule(4)))
+                    .containsExactly("M00001", "T00001", "T00003", "C00001", "T00002");
+            Assertions.assertThat(colonnes.getType(0)).isEqualTo(ColonnesEmployes.MANAGER);
+            Assertions.assertThat(colonnes.getType(3)).isEqualTo(ColonnesEmployes.COMMERCIAL);
+            Assertions.assertThat(colonnes.getCaAnnuel(3)).isEqualTo(5000d);
+            Assertions.assertThat(colonnes.getGrade(4)).isEqualTo((byte) 3);
+            Assertions.assertThat(colonnes.getDateEmbauche(2)).isEqualTo(ColonnesEmployes.SANS_DATE);
+            Assertions.assertThat(colonnes.getManager(1)).isEqualTo(0);
+            Assertions.assertThat(colonnes.getManager(2)).isEqualTo(-1);
+            Assertions.assertThat(colonnes.getManager(4)).isEqualTo(0);
+            Assertions.assertThat(colonnes.sommeSalairesParManager(i -> true)).containsExactly(3200, 0, 0, 0, 0);
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ipiecoles.java.java230.batch;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class EcritureParLotsTest {
+
+    private final List<String> operations = new ArrayList<>();
+
+    private final ListAppender<ILoggingEvent> journal = new ListAppender<>();
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(EcritureParLots.class);
+
+    /**
+     * Entity manager qui note persist (matricule de l'employé), flush et clear
+     */
+    private EntityManager entityManager() {
+        return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EntityManager.class},
+                (proxy, methode, args) -> {
+                    if (methode.getDeclaringClass() == Object.class) {
+                        return methode.getName().equals("toString") ? "EntityManager" : 0;
+                    }
+                    operations.add(methode.getName().equals("persist")
+                            ? "persist " + ((Employe) args[0]).getMatricule() : methode.getName());
+                    return null;
+                });
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new PlatformTransactionManager() {
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                operations.add("begin");
+                return new SimpleTransactionStatus();
+            }
+            public void commit(TransactionStatus status) {
+                operations.add("commit");
+            }
+            public void rollback(TransactionStatus status) {
+                operations.add("rollback");
+            }
+        });
+    }
+
+    private static Commercial commercial(String matricule) {
+        return new Commercial("aubert", "michel", matricule, new LocalDate(2018, 9, 5), 1500d, 150000d, 100);
+    }
+
+    @Before
+    public void setUp() {
+        journal.start();
+        logger.addAppender(journal);
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(journal);
+    }
+
+    @Test
+    public void testLotsEtDernierLotIncomplet() {
+        //Given des lots de 2 employés
+        StatistiquesImport statistiques = new StatistiquesImport(true);
+        List<String> derniersDesLots = new ArrayList<>();
+        EcritureParLots ecriture = new EcritureParLots(entityManager(), transactionTemplate(), 2);
+        ecriture.setStatistiques(statistiques);
+        ecriture.setAvantValidation(employe -> derniersDesLots.add(employe.getMatricule()));
+
+        //When 5 employés, dont le dernier n'est écrit qu'à la fermeture
+        for (int i = 1; i <= 5; i++) {
+            ecriture.accept(commercial("C0000" + i));
+        }
+        long nbLotsAvantFermeture = ecriture.getNbLots();
+        ecriture.close();
+
+        //Then
+        Assertions.assertThat(nbLotsAvantFermeture).isEqualTo(2);
+        Assertions.assertThat(operations).containsExactly(
+                "begin", "persist C00001", "persist C00002", "flush", "clear", "commit",
+                "begin", "persist C00003", "persist C00004", "flush", "clear", "commit",
+                "begin", "persist C00005", "flush", "clear", "commit");
+        Assertions.assertThat(derniersDesLots).containsExactly("C00002", "C00004", "C00005");
+        Assertions.assertThat(ecriture.getNbLots()).isEqualTo(3);
+        Assertions.assertThat(ecriture.getNbEnregistres()).isEqualTo(5);
+        Assertions.assertThat(statistiques.getEmployesEnregistres()).isEqualTo(5);
+        List<String> messages = journal.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+        Assertions.assertThat(messages).hasSize(4);
+        Assertions.assertThat(messages.get(0)).matches("Lot 1 : 2 employés enregistrés, 2 au total \\(\\d+ lignes/s\\)");
+        Assertions.assertThat(messages.get(2)).matches("Lot 3 : 1 employés enregistrés, 5 au total \\(\\d+ lignes/s\\)");
+        Assertions.assertThat(messages.get(3)).matches("5 employés enregistrés en 3 lots \\(\\d+ lignes/s\\)");
+    }
+
+    @Test
+    public void testLotEnEchecNonReecritALaFermeture() {
+        //Given l'écriture du troisième employé échoue
+        EcritureParLots ecriture = new EcritureParLots(entityManager(), transactionTemplate(), 2, (entityManager, employe) -> {
+            if (employe.getMatricule().equals("C00003")) {
+                throw new IllegalStateException("Écriture impossible");
+            }
+            entityManager.persist(employe);
+        });
+        ecriture.accept(commercial("C00001"));
+        ecriture.accept(commercial("C00002"));
+        ecriture.accept(commercial("C00003"));
+
+        //When
+        Throwable erreur = Assertions.catchThrowable(() -> ecriture.accept(commercial("C00004")));
+        ecriture.close();
+
+        //Then le lot en échec est annulé et n'est pas écrit une seconde fois
+        Assertions.assertThat(erreur).hasMessage("Écriture impossible");
+        Assertions.assertThat(operations).containsExactly(
+                "begin", "persist C00001", "persist C00002", "flush", "clear", "commit",
+                "begin", "rollback");
+        Assertions.assertThat(ecriture.getNbLots()).isEqualTo(1);
+        Assertions.assertThat(ecriture.getNbEnregistres()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFermetureSansEmploye() {
+        //Given
+        EcritureParLots ecriture = new EcritureParLots(entityManager(), transactionTemplate(), 2);
+
+        //When
+        ecriture.close();
+
+        //Then aucune transaction ouverte
+        Assertions.assertThat(operations).isEmpty();
+        Assertions.assertThat(ecriture.getNbLots()).isEqualTo(0);
+        Assertions.assertThat(journal.list).extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("0 employés enregistrés en 0 lots (0 lignes/s)");
+    }
+}
@@ -0,0 +1,80 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+public class EcritureRejetsTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    @Test
+    public void testFichierRejetsEtBilan() throws Exception {
+        //Given
+        Path fichier = dossier.getRoot().toPath().resolve("rejets.csv");
+        AnalyseurLigne analyseur = new AnalyseurLigne();
+        String[] lignes = {
+                "M12,durand,jacques,04/06/2013,1200.5",
+                "M12345,durand,jacques,04/06/2013,sdf",
+                "M12345,\"du;rand\",jacques,04/06/2013,abc",
+                "XXXXXX"
+        };
+
+        //When
+        EcritureRejets rejets = new EcritureRejets(fichier, false, 2);
+        for (int i = 0; i < lignes.length; i++) {
+            try {
+                analyseur.analyser(lignes[i]);
+            } catch (BatchException e) {
+                rejets.rejeter(i + 1, lignes[i], e);
+            }
+        }
+        rejets.close();
+
+        //Then
+        Assertions.assertThat(Files.readAllLines(fichier, StandardCharsets.UTF_8)).containsExactly(
+                EcritureRejets.ENTETE,
+                "1;MATRICULE;La chaîne: M12 ne respecte pas l'expression régulière ^[MTC][0-9]{5}$;M12,durand,jacques,04/06/2013,1200.5",
+                "2;SALAIRE;sdf n'est pas un format valide de salaire;M12345,durand,jacques,04/06/2013,sdf",
+                "3;SALAIRE;abc n'est pas un format valide de salaire;\"M12345,\"\"du;rand\"\",jacques,04/06/2013,abc\"",
+                "4;TYPE_INCONNU;Type d'employé inconnu;XXXXXX");
+        Assertions.assertThat(rejets.getNbRejets(CodeErreur.SALAIRE)).isEqualTo(2);
+        Assertions.assertThat(rejets.getNbRejets()).isEqualTo(4);
+    }
+
+    @Test
+    public void testRepriseSansRejetEnDouble() throws Exception {
+        //Given un import interrompu après la ligne 5, le technicien de la ligne 3 encore en attente de son manager et
+        //le rejet de la ligne 9 écrit à moitié
+        Path fichier = dossier.getRoot().toPath().resolve("rejets.csv");
+        Files.write(fichier, (EcritureRejets.ENTETE + "\n"
+                + "1;MATRICULE;message;M12\n"
+                + "3;MANAGER_INCONNU;\"manager;inconnu\";T00001\n"
+                + "7;TYPE_INCONNU;Type d'employé inconnu;XXXXXX\n"
+                + "9;TYPE_INC").getBytes(StandardCharsets.UTF_8));
+        EcritureRejets rejets = new EcritureRejets(fichier, true);
+
+        //When la reprise rejette à nouveau les lignes 3 et 7
+        rejets.reprendre(5, Collections.singleton(3L));
+        rejets.rejeter(7, "XXXXXX", new BatchException(CodeErreur.TYPE_INCONNU, "Type d'employé inconnu"));
+        rejets.rejeter(3, "T00001", new BatchException(CodeErreur.MANAGER_INCONNU, "manager;inconnu"));
+        rejets.close();
+
+        //Then
+        Assertions.assertThat(Files.readAllLines(fichier, StandardCharsets.UTF_8)).containsExactly(
+                EcritureRejets.ENTETE,
+                "1;MATRICULE;message;M12",
+                "7;TYPE_INCONNU;Type d'employé inconnu;XXXXXX",
+                "3;MANAGER_INCONNU;\"manager;inconnu\";T00001");
+        Assertions.assertThat(rejets.getNbRejets()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,295 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Générateur déterministe de fichiers d'import, pour les tests de volume et les benchmarks : une même graine produit
+ * toujours le même fichier.
+ *
+ * Les lignes valides respectent exactement les formats manager, technicien et commercial du fichier employes.csv
+ * (10 % de managers, 50 % de techniciens, 40 % de commerciaux). Chaque technicien référence un manager déjà écrit.
+ * Une proportion configurable de lignes porte une erreur, par classe d'erreur : une ligne erronée contient une seule
+ * erreur, de la classe tirée, et produit donc exactement ce code d'erreur à l'import. Toutes les erreurs des fichiers
+ * de test du README sont représentées ({@link #ERREURS}).
+ *
+ * Usage en ligne de commande, après mvn test-compile, avec les classes de test dans le classpath :
+ * {@code GenerateurCsv <fichier> <nombre de lignes> [taux d'erreur] [graine]}
+ */
+public class GenerateurCsv {
+
+    /**
+     * Classes d'erreur que le générateur sait produire
+     */
+    public static final CodeErreur[] ERREURS = {
+            CodeErreur.TYPE_INCONNU, CodeErreur.MATRICULE, CodeErreur.NB_CHAMPS, CodeErreur.DATE, CodeErreur.SALAIRE,
+            CodeErreur.CHIFFRE_AFFAIRE, CodeErreur.PERFORMANCE, CodeErreur.GRADE_FORMAT, CodeErreur.GRADE_VALEUR,
+            CodeErreur.MATRICULE_MANAGER, CodeErreur.MANAGER_INCONNU
+    };
+
+    /**
+     * Matricule de manager jamais généré, référencé par les techniciens en erreur MANAGER_INCONNU
+     */
+    private static final int MANAGER_INCONNU = 99999;
+
+    private static final String[] NOMS = {"durand", "dupont", "aubert", "martin", "bernard", "thomas", "petit",
+            "robert", "richard", "lefèvre", "moreau", "garnier"};
+
+    private static final String[] PRENOMS = {"jacques", "pierre", "michel", "hélène", "marie", "paul", "julie",
+            "nicolas", "sophie", "louis", "camille", "éric"};
+
+    private final Random random;
+
+    private final CodeErreur[] codes;
+
+    private final double[] tauxCumules;
+
+    private final Map<CodeErreur, Long> nbErreurs = new EnumMap<>(CodeErreur.class);
+
+    private final List<String> managers = new ArrayList<>();
+
+    private final int[] compteurs = new int[3];
+
+    private long nbLignes = 0;
+
+    /**
+     * @param graine la graine du générateur aléatoire
+     * @param tauxErreur la proportion de lignes erronées, répartie également entre toutes les classes d'erreur
+     */
+    public GenerateurCsv(long graine, double tauxErreur) {
+        this(graine, tauxUniformes(tauxErreur));
+    }
+
+    /**
+     * @param graine la graine du générateur aléatoire
+     * @param tauxParErreur la proportion de lignes portant chaque classe d'erreur, parmi {@link #ERREURS}
+     */
+    public GenerateurCsv(long graine, Map<CodeErreur, Double> tauxParErreur) {
+        this.random = new Random(graine);
+        this.codes = new CodeErreur[tauxParErreur.size()];
+        this.tauxCumules = new double[tauxParErreur.size()];
+        double cumul = 0;
+        int i = 0;
+        for (Map.Entry<CodeErreur, Double> taux : tauxParErreur.entrySet()) {
+            cumul += taux.getValue();
+            codes[i] = taux.getKey();
+            tauxCumules[i++] = cumul;
+        }
+        if (cumul > 1) {
+            throw new IllegalArgumentException("La somme des taux d'erreur dépasse 1 : " + cumul);
+        }
+    }
+
+    private static Map<CodeErreur, Double> tauxUniformes(double tauxErreur) {
+        Map<CodeErreur, Double> taux = new EnumMap<>(CodeErreur.class);
+        for (CodeErreur code : ERREURS) {
+            taux.put(code, tauxErreur / ERREURS.length);
+        }
+        return taux;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage : GenerateurCsv <fichier> <nombre de lignes> [taux d'erreur] [graine]");
+        }
+        double tauxErreur = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        long graine = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        new GenerateurCsv(graine, tauxErreur).ecrire(Paths.get(args[0]), Long.parseLong(args[1]));
+    }
+
+    /**
+     * Écrit nbLignes lignes dans le fichier, remplacé s'il existe
+     */
+    public void ecrire(Path fichier, long nbLignes) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8)) {
+            ecrire(writer, nbLignes);
+        }
+    }
+
+    public void ecrire(Writer writer, long nbLignes) throws IOException {
+        StringBuilder ligne = new StringBuilder(96);
+        for (long i = 0; i < nbLignes; i++) {
+            ligne.setLength(0);
+            ligneSuivante(ligne);
+            ligne.append('\n');
+            writer.append(ligne);
+        }
+    }
+
+    /**
+     * @return la ligne suivante, sans fin de ligne
+     */
+    public String ligneSuivante() {
+        StringBuilder ligne = new StringBuilder(96);
+        ligneSuivante(ligne);
+        return ligne.toString();
+    }
+
+    /**
+     * @return le nombre de lignes générées avec ce code d'erreur
+     */
+    public long getNbErreurs(CodeErreur code) {
+        return nbErreurs.getOrDefault(code, 0L);
+    }
+
+    public long getNbLignes() {
+        return nbLignes;
+    }
+
+    private void ligneSuivante(StringBuilder ligne) {
+        nbLignes++;
+        CodeErreur erreur = tirerErreur();
+        if (erreur != null) {
+            nbErreurs.merge(erreur, 1L, Long::sum);
+        }
+        char type = tirerType(erreur);
+        if (erreur == CodeErreur.TYPE_INCONNU) {
+            ligne.append("XXXXXX");
+        } else if (erreur == CodeErreur.MATRICULE) {
+            ligne.append(type).append(random.nextInt(1000));
+        } else {
+            ligne.append(type);
+            chiffres(ligne, prochainMatricule(type), 5);
+        }
+        ligne.append(',').append(NOMS[random.nextInt(NOMS.length)]);
+        ligne.append(',').append(PRENOMS[random.nextInt(PRENOMS.length)]);
+        ligne.append(',');
+        date(ligne, erreur == CodeErreur.DATE);
+        ligne.append(',');
+        if (erreur == CodeErreur.SALAIRE) {
+            ligne.append("sdf");
+        } else {
+            montant(ligne, 120000 + random.nextInt(380000));
+        }
+        switch (type) {
+            case 'C':
+                ligne.append(',');
+                if (erreur == CodeErreur.CHIFFRE_AFFAIRE) {
+                    ligne.append("xxx");
+                } else {
+                    montant(ligne, random.nextInt(50000000));
+                }
+                ligne.append(',');
+                if (erreur == CodeErreur.PERFORMANCE) {
+                    ligne.append("xxx");
+                } else {
+                    ligne.append(random.nextInt(200));
+                }
+                break;
+            case 'T':
+                ligne.append(',');
+                if (erreur == CodeErreur.GRADE_FORMAT) {
+                    ligne.append('X');
+                } else if (erreur == CodeErreur.GRADE_VALEUR) {
+                    ligne.append(6 + random.nextInt(4));
+                } else {
+                    ligne.append(1 + random.nextInt(5));
+                }
+                ligne.append(',');
+                if (erreur == CodeErreur.MATRICULE_MANAGER) {
+                    ligne.append("xxx");
+                } else if (erreur == CodeErreur.MANAGER_INCONNU || managers.isEmpty()) {
+                    //pas encore de manager : seule une ligne déjà en erreur sur son grade peut arriver ici
+                    ligne.append('M').append(MANAGER_INCONNU);
+                } else {
+                    ligne.append(managers.get(random.nextInt(managers.size())));
+                }
+                break;
+            default:
+                if (erreur == null) {
+                    managers.add(ligne.substring(0, 6));
+                }
+        }
+        if (erreur == CodeErreur.NB_CHAMPS) {
+            if (random.nextBoolean()) {
+                ligne.append(",dfgdfg,dfgdfg");
+            } else {
+                ligne.setLength(ligne.lastIndexOf(","));
+            }
+        }
+    }
+
+    private CodeErreur tirerErreur() {
+        double tirage = random.nextDouble();
+        for (int i = 0; i < codes.length; i++) {
+            if (tirage < tauxCumules[i]) {
+                return codes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tire un type d'employé compatible avec l'erreur : il faut un manager valide avant le premier technicien
+     */
+    private char tirerType(CodeErreur erreur) {
+        if (erreur == CodeErreur.CHIFFRE_AFFAIRE || erreur == CodeErreur.PERFORMANCE) {
+            return 'C';
+        }
+        if (erreur == CodeErreur.GRADE_FORMAT || erreur == CodeErreur.GRADE_VALEUR
+                || erreur == CodeErreur.MATRICULE_MANAGER || erreur == CodeErreur.MANAGER_INCONNU) {
+            return 'T';
+        }
+        int tirage = random.nextInt(10);
+        if (tirage == 0 || (erreur == null && managers.isEmpty())) {
+            return 'M';
+        }
+        return tirage <= 5 && !managers.isEmpty() ? 'T' : 'C';
+    }
+
+    private int prochainMatricule(char type) {
+        int indice = type == 'M' ? 0 : type == 'T' ? 1 : 2;
+        //le matricule M99999 est réservé au manager inconnu
+        int matricule = compteurs[indice];
+        compteurs[indice] = (matricule + 1) % MANAGER_INCONNU;
+        return matricule;
+    }
+
+    private void date(StringBuilder ligne, boolean erreur) {
+        chiffres(ligne, 1 + random.nextInt(28), 2);
+        ligne.append('/');
+        if (erreur && random.nextBoolean()) {
+            ligne.append("99/");
+            chiffres(ligne, 1990 + random.nextInt(30), 4);
+        } else {
+            chiffres(ligne, 1 + random.nextInt(12), 2);
+            ligne.append('/');
+            if (erreur) {
+                ligne.append("XX");
+            } else {
+                chiffres(ligne, 1990 + random.nextInt(30), 4);
+            }
+        }
+    }
+
+    /**
+     * Écrit un montant en centimes avec une ou deux décimales, comme 1200.5 ou 150000.25
+     */
+    private static void montant(StringBuilder ligne, int centimes) {
+        ligne.append(centimes / 100).append('.');
+        int decimales = centimes % 100;
+        if (decimales % 10 == 0) {
+            ligne.append(decimales / 10);
+        } else {
+            chiffres(ligne, decimales, 2);
+        }
+    }
+
+    private static void chiffres(StringBuilder ligne, int valeur, int nbChiffres) {
+        for (int diviseur = (int) Math.pow(10, nbChiffres - 1); diviseur > 0; diviseur /= 10) {
+            ligne.append((char) ('0' + valeur / diviseur % 10));
+        }
+    }
+}
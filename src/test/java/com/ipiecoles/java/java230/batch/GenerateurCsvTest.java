@@ -0,0 +1,55 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class GenerateurCsvTest {
+
+    @Test
+    public void testChaqueErreurGenereeEstRejeteeAvecSonCode() {
+        //Given
+        GenerateurCsv generateur = new GenerateurCsv(42, 0.3);
+        AnalyseurLigne analyseur = new AnalyseurLigne();
+        Map<CodeErreur, Long> rejets = new EnumMap<>(CodeErreur.class);
+        long[] nbAcceptes = {0};
+        RegistreManagers registre = new RegistreManagers(Collections.emptyMap(), e -> nbAcceptes[0]++,
+                (numLigne, ligne, e) -> rejets.merge(e.getCode(), 1L, Long::sum));
+
+        //When
+        for (long numLigne = 1; numLigne <= 50000; numLigne++) {
+            String ligne = generateur.ligneSuivante();
+            try {
+                registre.accepter(numLigne, ligne, analyseur.analyser(ligne));
+            } catch (BatchException e) {
+                rejets.merge(e.getCode(), 1L, Long::sum);
+            }
+        }
+        registre.terminer();
+
+        //Then
+        long nbErreurs = 0;
+        for (CodeErreur code : GenerateurCsv.ERREURS) {
+            Assertions.assertThat(generateur.getNbErreurs(code)).as(code.name()).isGreaterThan(0);
+            Assertions.assertThat(rejets.getOrDefault(code, 0L)).as(code.name()).isEqualTo(generateur.getNbErreurs(code));
+            nbErreurs += generateur.getNbErreurs(code);
+        }
+        Assertions.assertThat(rejets).doesNotContainKey(CodeErreur.AUTRE);
+        Assertions.assertThat(nbAcceptes[0] + nbErreurs).isEqualTo(50000);
+        Assertions.assertThat(nbErreurs / 50000d).isBetween(0.28, 0.32);
+    }
+
+    @Test
+    public void testDeterministe() {
+        GenerateurCsv premier = new GenerateurCsv(7, 0.5);
+        GenerateurCsv second = new GenerateurCsv(7, 0.5);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertThat(premier.ligneSuivante()).isEqualTo(second.ligneSuivante());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.ipiecoles.java.java230.batch;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class GzipParalleleTest {
+
+    private Path fichier;
+
+    @After
+    public void tearDown() throws IOException {
+        if (fichier != null) {
+            Files.deleteIfExists(fichier);
+        }
+    }
+
+    private static byte[] contenu(int nbLignes) {
+        GenerateurCsv generateur = new GenerateurCsv(42, 0.1);
+        StringBuilder contenu = new StringBuilder();
+        for (int i = 0; i < nbLignes; i++) {
+            contenu.append(generateur.ligneSuivante()).append('\n');
+        }
+        return contenu.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compresse le contenu en membres gzip successifs de tailleMembre octets non compressés
+     */
+    private static byte[] compresser(byte[] contenu, int tailleMembre, int niveau) throws IOException {
+        ByteArrayOutputStream compresse = new ByteArrayOutputStream();
+        for (int debut = 0; debut < contenu.length; debut += tailleMembre) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(nonFerme(compresse)) {
+                {
+                    def.setLevel(niveau);
+                }
+            }) {
+                gzip.write(contenu, debut, Math.min(tailleMembre, contenu.length - debut));
+            }
+        }
+        return compresse.toByteArray();
+    }
+
+    private static OutputStream nonFerme(OutputStream out) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    private byte[] decompresser(byte[] compresse, int taillePlage) throws IOException {
+        fichier = Files.createTempFile("import", ".csv.gz");
+        Files.write(fichier, compresse);
+        try (InputStream in = new GzipParallele(fichier, 4, taillePlage, 8)) {
+            return lire(in);
+        }
+    }
+
+    private static byte[] lire(InputStream in) throws IOException {
+        ByteArrayOutputStream resultat = new ByteArrayOutputStream();
+        byte[] tampon = new byte[1000];
+        int n;
+        while ((n = in.read(tampon)) >= 0) {
+            resultat.write(tampon, 0, n);
+        }
+        return resultat.toByteArray();
+    }
+
+    @Test
+    public void testPlusieursMembres() throws IOException {
+        //Given
+        byte[] contenu = contenu(20000);
+
+        //When
+        byte[] resultat = decompresser(compresser(contenu, 16 * 1024, Deflater.DEFAULT_COMPRESSION), 4096);
+
+        //Then
+        Assertions.assertThat(Arrays.equals(resultat, contenu)).isTrue();
+    }
+
+    @Test
+    public void testUnSeulMembre() throws IOException {
+        //Given
+        byte[] contenu = contenu(20000);
+
+        //When
+        byte[] resultat = decompresser(compresser(contenu, contenu.length, Deflater.DEFAULT_COMPRESSION), 4096);
+
+        //Then
+        Assertions.assertThat(Arrays.equals(resultat, contenu)).isTrue();
+    }
+
+    @Test
+    public void testGrandFichierUnSeulMembre() throws IOException {
+        //Given un seul membre, incompressible, plus grand que la fenêtre de recherche d'un second membre
+        byte[] contenu = new byte[(GzipParallele.NB_PLAGES_RECHERCHE + 1) * GzipParallele.TAILLE_PLAGE_DEFAUT];
+        new Random(42).nextBytes(contenu);
+        fichier = Files.createTempFile("import", ".csv.gz");
+        Files.write(fichier, compresser(contenu, contenu.length, Deflater.DEFAULT_COMPRESSION));
+
+        //When
+        byte[] resultat;
+        InputStream flux;
+        try (InputStream in = GzipParallele.ouvrir(fichier, 4)) {
+            flux = in;
+            resultat = lire(in);
+        }
+
+        //Then lu directement en flux, sans plages spéculatives
+        Assertions.assertThat(flux).isInstanceOf(GZIPInputStream.class);
+        Assertions.assertThat(Arrays.equals(resultat, contenu)).isTrue();
+    }
+
+    @Test
+    public void testOuvertureParalleleSiPlusieursMembres() throws IOException {
+        //Given
+        byte[] contenu = contenu(2000);
+        fichier = Files.createTempFile("import", ".csv.gz");
+        Files.write(fichier, compresser(contenu, 16 * 1024, Deflater.DEFAULT_COMPRESSION));
+
+        //When
+        byte[] resultat;
+        InputStream flux;
+        try (InputStream in = GzipParallele.ouvrir(fichier, 4)) {
+            flux = in;
+            resultat = lire(in);
+        }
+
+        //Then
+        Assertions.assertThat(flux).isInstanceOf(GzipParallele.class);
+        Assertions.assertThat(Arrays.equals(resultat, contenu)).isTrue();
+    }
+
+    @Test
+    public void testFauxEnteteDansUnMembre() throws IOException {
+        //Given des en-têtes gzip dans les données, recopiés tels quels dans des membres non compressés
+        byte[] lignes = contenu(2000);
+        ByteArrayOutputStream donnees = new ByteArrayOutputStream();
+        byte[] faux = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 3};
+        for (int i = 0; i < lignes.length; i += 1000) {
+            donnees.write(lignes, i, Math.min(1000, lignes.length - i));
+            donnees.write(faux);
+        }
+        byte[] contenu = donnees.toByteArray();
+
+        //When
+        byte[] resultat = decompresser(compresser(contenu, 20000, Deflater.NO_COMPRESSION), 1024);
+
+        //Then
+        Assertions.assertThat(Arrays.equals(resultat, contenu)).isTrue();
+    }
+
+    @Test
+    public void testFichierCorrompu() throws IOException {
+        //Given le CRC du dernier membre est faux
+        byte[] compresse = compresser(contenu(2000), 8 * 1024, Deflater.DEFAULT_COMPRESSION);
+        compresse[compresse.length - 6] ^= 1;
+
+        //When
+        Throwable erreur = Assertions.catchThrowable(() -> decompresser(compresse, 4096));
+
+        //Then
+        Assertions.assertThat(erreur).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testDetectionCompression() throws IOException {
+        //Given
+        fichier = Files.createTempFile("import", ".csv");
+        Files.write(fichier, contenu(10));
+
+        //When
+        boolean brut = FichierImport.estCompresse(fichier);
+        Files.write(fichier, compresser(contenu(10), 1000, Deflater.DEFAULT_COMPRESSION));
+        boolean compresse = FichierImport.estCompresse(fichier);
+
+        //Then
+        Assertions.assertThat(brut).isFalse();
+        Assertions.assertThat(compresse).isTrue();
+    }
+}
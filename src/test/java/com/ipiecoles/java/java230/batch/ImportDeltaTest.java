@@ -0,0 +1,107 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.EmpreinteEmploye;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ImportDeltaTest {
+
+    private final List<String> appels = new ArrayList<>();
+
+    private final Manager absent = new Manager();
+
+    /**
+     * Entity manager qui note les écritures sous la forme "persist C00003", "merge EmpreinteEmploye C00001"...
+     */
+    private EntityManager entityManager() {
+        Query query = (Query) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Query.class},
+                (proxy, methode, args) -> methode.getName().equals("executeUpdate") ? 0 : proxy);
+        return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EntityManager.class},
+                (proxy, methode, args) -> {
+                    switch (methode.getName()) {
+                        case "persist":
+                        case "merge":
+                        case "remove":
+                            appels.add(methode.getName() + " " + description(args[0]));
+                            return args[0];
+                        case "find":
+                            appels.add("find " + args[1]);
+                            return args[1].equals(9L) ? absent : null;
+                        case "createQuery":
+                            return query;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static String description(Object entite) {
+        if (entite instanceof EmpreinteEmploye) {
+            return "EmpreinteEmploye " + ((EmpreinteEmploye) entite).getMatricule();
+        }
+        return String.valueOf(((Employe) entite).getMatricule());
+    }
+
+    private static Commercial commercial(String matricule, double salaire) {
+        return new Commercial("aubert", "michel", matricule, new LocalDate(2018, 9, 5), salaire, 150000d, 100);
+    }
+
+    @Test
+    public void testSeulsLesChangementsSontEcrits() {
+        //Given
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new PlatformTransactionManager() {
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+            public void commit(TransactionStatus status) {
+            }
+            public void rollback(TransactionStatus status) {
+            }
+        });
+        Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2013, 6, 4), 1200.5, null);
+        List<Object[]> employes = Arrays.asList(new Object[]{"M00001", 1L}, new Object[]{"C00001", 2L},
+                new Object[]{"C00002", 3L}, new Object[]{"M00009", 9L}, new Object[]{"C00010", 10L});
+        List<Object[]> empreintes = Arrays.asList(
+                new Object[]{"M00001", 1L, EmpreinteEmploye.calculer(manager)},
+                new Object[]{"C00001", 2L, EmpreinteEmploye.calculer(commercial("C00001", 2000))},
+                new Object[]{"M00009", 9L, 42L});
+
+        //When
+        ImportDelta importDelta = new ImportDelta(entityManager(), transactionTemplate, 2, employes, empreintes);
+        importDelta.accept(manager);
+        importDelta.accept(commercial("C00001", 2100));
+        importDelta.accept(commercial("C00002", 2000));
+        importDelta.accept(commercial("C00003", 2000));
+        importDelta.supprimerAbsents();
+        importDelta.close();
+
+        //Then
+        Assertions.assertThat(manager.getId()).isEqualTo(1L);
+        Assertions.assertThat(importDelta.getNbInchanges()).isEqualTo(1);
+        Assertions.assertThat(importDelta.getNbModifies()).isEqualTo(2);
+        Assertions.assertThat(importDelta.getNbInseres()).isEqualTo(1);
+        Assertions.assertThat(importDelta.getNbSupprimes()).isEqualTo(1);
+        //C00010 n'a jamais été importé de manière différentielle : il n'est pas supprimé
+        Assertions.assertThat(appels).containsExactly(
+                "merge C00001", "merge EmpreinteEmploye C00001",
+                "merge C00002", "persist EmpreinteEmploye C00002",
+                "persist C00003", "persist EmpreinteEmploye C00003",
+                "find 9", "remove null");
+    }
+}
@@ -0,0 +1,55 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ImportParalleleTest {
+
+    @Test
+    public void testOrdreEtNumerosDeLigne() throws Exception {
+        //Given
+        StringBuilder contenu = new StringBuilder();
+        for (int i = 1; i <= 5000; i++) {
+            contenu.append(i % 7 == 0 ? "KO" : "OK").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path fichier = Files.createTempFile("import", ".csv");
+        Files.write(fichier, contenu.toString().getBytes(StandardCharsets.UTF_8));
+        TraitementLigne traitement = ligne -> {
+            if (ligne.startsWith("KO")) {
+                throw new BatchException("rejet " + ligne);
+            }
+            Commercial c = new Commercial();
+            c.setMatricule(ligne);
+            return c;
+        };
+        List<Employe> employes = new ArrayList<>();
+        List<Long> rejets = new ArrayList<>();
+
+        //When
+        ForkJoinPool pool = new ForkJoinPool(4);
+        long nbLignes = new ImportParallele(pool, traitement, 256)
+                .importer(fichier, (numLigne, ligne, employe) -> employes.add(employe), (numLigne, ligne, e) -> {
+                    Assertions.assertThat(ligne).isEqualTo("KO" + numLigne);
+                    rejets.add(numLigne);
+                });
+        pool.shutdown();
+        Files.delete(fichier);
+
+        //Then
+        Assertions.assertThat(nbLignes).isEqualTo(5000);
+        Assertions.assertThat(rejets).hasSize(714).isSorted();
+        Assertions.assertThat(employes).hasSize(5000 - 714);
+        Assertions.assertThat(employes.get(0).getMatricule()).isEqualTo("OK1");
+        Assertions.assertThat(employes.get(employes.size() - 1).getMatricule()).isEqualTo("OK5000");
+    }
+}
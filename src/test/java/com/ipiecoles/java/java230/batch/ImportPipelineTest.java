@@ -0,0 +1,114 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ImportPipelineTest {
+
+    private final ExecutorService validation = Executors.newFixedThreadPool(4);
+
+    private final AtomicLong nbAnalysees = new AtomicLong();
+
+    private final TraitementLigne traitement = ligne -> {
+        nbAnalysees.incrementAndGet();
+        if (ligne.startsWith("KO")) {
+            throw new BatchException("rejet " + ligne);
+        }
+        Commercial c = new Commercial();
+        c.setMatricule(ligne);
+        return c;
+    };
+
+    @After
+    public void tearDown() {
+        validation.shutdownNow();
+    }
+
+    private static BufferedReader fichier(int nbLignes) {
+        StringBuilder contenu = new StringBuilder();
+        for (int i = 1; i <= nbLignes; i++) {
+            contenu.append(i % 7 == 0 ? "KO" : "OK").append(i).append('\n');
+        }
+        return new BufferedReader(new StringReader(contenu.toString()));
+    }
+
+    @Test
+    public void testOrdreEtNumerosDeLigne() throws Exception {
+        //Given
+        List<Employe> employes = new ArrayList<>();
+        List<Long> rejets = new ArrayList<>();
+
+        //When
+        long nbLignes = new ImportPipeline(validation, traitement, 100, 4).importer(fichier(5000),
+                (numLigne, ligne, employe) -> {
+                    Assertions.assertThat(employe.getMatricule()).isEqualTo("OK" + numLigne);
+                    employes.add(employe);
+                }, (numLigne, ligne, e) -> {
+                    Assertions.assertThat(ligne).isEqualTo("KO" + numLigne);
+                    rejets.add(numLigne);
+                });
+
+        //Then
+        Assertions.assertThat(nbLignes).isEqualTo(5000);
+        Assertions.assertThat(rejets).hasSize(714).isSorted();
+        Assertions.assertThat(employes).hasSize(5000 - 714);
+        Assertions.assertThat(employes.get(employes.size() - 1).getMatricule()).isEqualTo("OK5000");
+    }
+
+    @Test
+    public void testEcritureLenteFreineLaLecture() throws Exception {
+        //Given
+        AtomicLong nbRestituees = new AtomicLong();
+        AtomicLong avanceMax = new AtomicLong();
+        RapportErreur rapport = (numLigne, ligne, e) -> nbRestituees.incrementAndGet();
+
+        //When
+        new ImportPipeline(validation, traitement, 50, 2).importer(fichier(3000), (numLigne, ligne, employe) -> {
+            long restituees = nbRestituees.incrementAndGet();
+            avanceMax.accumulateAndGet(nbAnalysees.get() - restituees, Math::max);
+            if (numLigne % 50 == 0) {
+                try {
+                    //base lente
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, rapport);
+
+        //Then au plus capacite + 2 blocs lus sans être écrits
+        Assertions.assertThat(nbRestituees.get()).isEqualTo(3000);
+        Assertions.assertThat(avanceMax.get()).isLessThanOrEqualTo((2 + 2) * 50);
+    }
+
+    @Test
+    public void testErreurDeLEcritureArreteLaLecture() throws Exception {
+        //Given
+        BufferedReader reader = fichier(100000);
+
+        //When
+        Throwable erreur = Assertions.catchThrowable(() -> new ImportPipeline(validation, traitement, 100, 2)
+                .importer(reader, (numLigne, ligne, employe) -> {
+                    if (numLigne == 1000) {
+                        throw new IllegalStateException("base indisponible");
+                    }
+                }, (numLigne, ligne, e) -> {}));
+
+        //Then la lecture s'est arrêtée sans lire tout le fichier
+        Assertions.assertThat(erreur).isInstanceOf(IllegalStateException.class).hasMessage("base indisponible");
+        Assertions.assertThat(reader.readLine()).isNotNull();
+        Assertions.assertThat(nbAnalysees.get()).isLessThan(100000);
+    }
+}
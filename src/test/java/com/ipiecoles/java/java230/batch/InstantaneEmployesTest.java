@@ -0,0 +1,143 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+public class InstantaneEmployesTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    @Test
+    public void testAllerRetour() throws Exception {
+        //Given
+        Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2013, 6, 4), 2345.67, new HashSet<>());
+        Manager managerSansEquipe = new Manager("dupont", null, "M00002", null, 1800.1, new HashSet<>());
+        Technicien t1 = new Technicien("martin", "jacques", "T00001", new LocalDate(1969, 12, 31), 1500.25, 3);
+        Technicien t2 = new Technicien("durand", "paul", "T00002", new LocalDate(2020, 2, 29), 1234.5, 5);
+        Technicien sansManager = new Technicien("petit", "julie", "T00003", new LocalDate(2001, 1, 1), 1600.0, 1);
+        t1.setManager(manager);
+        t2.setManager(manager);
+        Commercial commercial = new Commercial("aubert", "éric", "C00001", new LocalDate(2010, 10, 10), 1900.99, 123456.78, 150);
+        Commercial sansPerformance = new Commercial("thomas", "sophie", "C00002", new LocalDate(2011, 11, 11), null, null);
+        InstantaneEmployes instantane = new InstantaneEmployes();
+        for (Employe employe : new Employe[]{t1, commercial, manager, t2, sansPerformance, managerSansEquipe, sansManager}) {
+            instantane.ajouter(employe);
+        }
+        Path fichier = dossier.getRoot().toPath().resolve("employes.instantane");
+
+        //When
+        instantane.ecrire(fichier);
+        List<Employe> employes = InstantaneEmployes.lire(fichier);
+
+        //Then managers, commerciaux puis techniciens, salaires non transformés
+        Assertions.assertThat(InstantaneEmployes.estInstantane(fichier)).isTrue();
+        Assertions.assertThat(employes).extracting("matricule")
+                .containsExactly("M00001", "M00002", "C00001", "C00002", "T00001", "T00002", "T00003");
+        Assertions.assertThat(employes).usingElementComparatorIgnoringFields("equipe", "equipeParGrade", "manager")
+                .contains(manager, managerSansEquipe, commercial, t1, t2, sansPerformance, sansManager);
+        Assertions.assertThat(employes.get(3).getSalaire()).isNull();
+        Assertions.assertThat(employes.get(3).getDateEmbauche()).isEqualTo(new LocalDate(2011, 11, 11));
+        Assertions.assertThat(employes.get(0).getSalaire()).isEqualTo(2345.67);
+        Assertions.assertThat(employes.get(4).getSalaire()).isEqualTo(1500.25);
+        Assertions.assertThat(((Commercial) employes.get(2)).getPerformance()).isEqualTo(150);
+        Assertions.assertThat(((Commercial) employes.get(3)).getPerformance()).isNull();
+        Assertions.assertThat(((Commercial) employes.get(3)).getCaAnnuel()).isNull();
+        Assertions.assertThat(((Technicien) employes.get(4)).getManager()).isSameAs(employes.get(0));
+        Assertions.assertThat(((Technicien) employes.get(5)).getManager()).isSameAs(employes.get(0));
+        Assertions.assertThat(((Technicien) employes.get(6)).getManager()).isNull();
+        Assertions.assertThat(((Manager) employes.get(0)).getEquipe()).containsOnly(t1, t2);
+        Assertions.assertThat(((Manager) employes.get(1)).getEquipe()).isEmpty();
+    }
+
+    @Test
+    public void testTechnicienSansGrade() throws Exception {
+        //Given un technicien sans grade, comme la base peut en contenir
+        Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2013, 6, 4), 2345.67, new HashSet<>());
+        Technicien sansGrade = new Technicien("martin", "jacques", "T00001", new LocalDate(2015, 1, 9), 1500.25);
+        sansGrade.setManager(manager);
+        InstantaneEmployes instantane = new InstantaneEmployes();
+        instantane.ajouter(manager);
+        instantane.ajouter(sansGrade);
+        Path fichier = dossier.getRoot().toPath().resolve("sans-grade.instantane");
+
+        //When
+        instantane.ecrire(fichier);
+        List<Employe> employes = InstantaneEmployes.lire(fichier);
+
+        //Then
+        Technicien relu = (Technicien) employes.get(1);
+        Assertions.assertThat(relu.getMatricule()).isEqualTo("T00001");
+        Assertions.assertThat(relu.getGrade()).isNull();
+        Assertions.assertThat(relu.getSalaire()).isEqualTo(1500.25);
+        Assertions.assertThat(relu.getManager()).isSameAs(employes.get(0));
+    }
+
+    @Test
+    public void testFichierGenere() throws Exception {
+        //Given les employés valides d'un fichier généré
+        List<Employe> employes = new ArrayList<>();
+        GenerateurCsv generateur = new GenerateurCsv(7, 0.1);
+        AnalyseurLigne analyseur = new AnalyseurLigne();
+        RegistreManagers registre = new RegistreManagers(new java.util.HashMap<>(), employes::add, (n, l, e) -> {});
+        for (int i = 1; i <= 5000; i++) {
+            String ligne = generateur.ligneSuivante();
+            try {
+                registre.accepter(i, ligne, analyseur.analyser(ligne));
+            } catch (com.ipiecoles.java.java230.exceptions.BatchException e) {
+                //ligne en erreur
+            }
+        }
+        registre.terminer();
+        InstantaneEmployes instantane = new InstantaneEmployes();
+        employes.forEach(instantane::ajouter);
+        Path fichier = dossier.getRoot().toPath().resolve("genere.instantane");
+        instantane.ecrire(fichier);
+
+        //When
+        List<Employe> relus = new ArrayList<>();
+        long nbEmployes = InstantaneEmployes.lire(fichier, relus::add);
+
+        //Then
+        Assertions.assertThat(nbEmployes).isEqualTo(employes.size());
+        Assertions.assertThat(relus).containsOnlyElementsOf(employes).hasSameSizeAs(employes);
+        for (Employe employe : relus) {
+            if (employe instanceof Technicien) {
+                Technicien original = (Technicien) employes.stream()
+                        .filter(e -> e.getMatricule().equals(employe.getMatricule())).findFirst().get();
+                Assertions.assertThat(((Technicien) employe).getManager().getMatricule())
+                        .isEqualTo(original.getManager().getMatricule());
+            }
+        }
+    }
+
+    @Test
+    public void testPasUnInstantane() throws Exception {
+        //Given
+        Path fichier = dossier.getRoot().toPath().resolve("employes.csv");
+        Files.write(fichier, "M12345,durand,jacques,04/06/2013,1200.5\n".getBytes());
+
+        //When
+        Throwable erreur = Assertions.catchThrowable(() -> InstantaneEmployes.lire(
+                new ByteArrayInputStream(Files.readAllBytes(fichier)), e -> {}, false));
+
+        //Then
+        Assertions.assertThat(InstantaneEmployes.estInstantane(fichier)).isFalse();
+        Assertions.assertThat(erreur).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,46 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Employe;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LecteurMappeTest {
+
+    @Test
+    public void testLectureParRegions() throws Exception {
+        //Given
+        StringBuilder contenu = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            contenu.append(String.format("M%05d,Lefèvre,Hélène,04/06/2013,1200.5\r\n", i));
+            contenu.append(String.format("C%05d,aubert,michel,05/09/XX,2200.5,150000.0,100\n", i));
+        }
+        contenu.append("T00001,dupont,pierre,12/03/2003,1700.5,5,M00001");
+        Path fichier = Files.createTempFile("import", ".csv");
+        Files.write(fichier, contenu.toString().getBytes(StandardCharsets.UTF_8));
+        List<Employe> employes = new ArrayList<>();
+        List<String> rejets = new ArrayList<>();
+
+        //When
+        long nbLignes = new LecteurMappe(new AnalyseurLigne(), 100).lire(fichier,
+                (numLigne, ligne, employe) -> employes.add(employe),
+                (numLigne, ligne, e) -> rejets.add(numLigne + " : " + e.getMessage() + " => " + ligne));
+        Files.delete(fichier);
+
+        //Then
+        Assertions.assertThat(nbLignes).isEqualTo(401);
+        Assertions.assertThat(employes).hasSize(201);
+        Assertions.assertThat(employes.get(0).getNom()).isEqualTo("Lefèvre");
+        Assertions.assertThat(employes.get(0).getPrenom()).isEqualTo("Hélène");
+        Assertions.assertThat(employes.get(199).getMatricule()).isEqualTo("M00199");
+        Assertions.assertThat(employes.get(200).getMatricule()).isEqualTo("T00001");
+        Assertions.assertThat(rejets).hasSize(200);
+        Assertions.assertThat(rejets.get(0)).isEqualTo("2 : 05/09/XX ne respecte pas le format de date dd/MM/yyyy"
+                + " => C00000,aubert,michel,05/09/XX,2200.5,150000.0,100");
+    }
+}
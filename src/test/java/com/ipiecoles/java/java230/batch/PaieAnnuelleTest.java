@@ -0,0 +1,84 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class PaieAnnuelleTest {
+
+    @Test
+    public void testMemesResultatsQueLesEntites() throws Exception {
+        //Given
+        Random random = new Random(42);
+        List<Employe> employes = new ArrayList<>();
+        List<Manager> managers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Manager manager = new Manager("nom", "prenom", "M" + (10000 + i), date(random), 2500d, new HashSet<>());
+            managers.add(manager);
+            employes.add(manager);
+        }
+        for (int i = 0; i < 500; i++) {
+            Technicien technicien = new Technicien("nom", "prenom", "T" + (10000 + i), date(random), 1500d,
+                    1 + random.nextInt(5));
+            if (random.nextInt(10) > 0) {
+                Manager manager = managers.get(random.nextInt(managers.size()));
+                technicien.setManager(manager);
+                manager.ajoutTechnicienEquipe(technicien);
+            }
+            employes.add(technicien);
+        }
+        for (int i = 0; i < 100; i++) {
+            employes.add(new Commercial("nom", "prenom", "C" + (10000 + i), date(random), 2000d,
+                    random.nextInt(100000) + random.nextDouble()));
+        }
+        //les techniciens peuvent précéder leur manager
+        employes.add(employes.remove(0));
+        PaieAnnuelle paie = new PaieAnnuelle(LocalDate.now(), 4);
+
+        //When
+        employes.forEach(paie);
+        paie.calculer();
+
+        //Then
+        Assertions.assertThat(paie.getTaille()).isEqualTo(employes.size());
+        double total = 0;
+        for (int i = 0; i < employes.size(); i++) {
+            Employe employe = employes.get(i);
+            Assertions.assertThat(paie.getMatricule(i)).isEqualTo(employe.getMatricule());
+            Assertions.assertThat(paie.getPrimeAnnuelle(i)).isEqualTo(employe.getPrimeAnnuelle());
+            Assertions.assertThat(paie.getNombreAnneeAnciennete(i)).isEqualTo(employe.getNombreAnneeAnciennete());
+            Assertions.assertThat(paie.getNbConges(i)).isEqualTo(employe.getNbConges());
+            total += employe.getPrimeAnnuelle();
+        }
+        Assertions.assertThat(paie.getTotalPrimes()).isEqualTo(total);
+    }
+
+    @Test
+    public void testDateDeReference() throws Exception {
+        //Given
+        Technicien technicien = new Technicien("nom", "prenom", "T00001", new LocalDate(2010, 6, 1), 1500d, 2);
+        PaieAnnuelle paie = new PaieAnnuelle(new LocalDate(2017, 12, 31));
+
+        //When
+        paie.accept(technicien);
+        paie.calculer();
+
+        //Then
+        Assertions.assertThat(paie.getNombreAnneeAnciennete(0)).isEqualTo(7);
+        Assertions.assertThat(paie.getNbConges(0)).isEqualTo(32);
+        Assertions.assertThat(paie.getPrimeAnnuelle(0)).isEqualTo(1008.5 + 1008.5 * 1.2 + 700);
+    }
+
+    private static LocalDate date(Random random) {
+        return new LocalDate(1990 + random.nextInt(28), 1 + random.nextInt(12), 1 + random.nextInt(28));
+    }
+}
@@ -0,0 +1,138 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PointDeRepriseTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private final AnalyseurLigne analyseur = new AnalyseurLigne();
+
+    private final List<Employe> enregistres = new ArrayList<>();
+
+    private final Map<String, Long> managersEnregistres = new HashMap<>();
+
+    /**
+     * Import simulé qui enregistre les employés par lots de 2 avec un point de reprise par lot, et s'interrompt
+     * brutalement après le lot arretApresLot
+     */
+    private void importer(Path fichier, int arretApresLot) throws Exception {
+        long taille = Files.size(fichier);
+        long empreinte = PointDeReprise.empreinte(fichier);
+        PointDeReprise reprise = PointDeReprise.charger(fichier, taille, empreinte,
+                id -> id <= enregistres.size());
+        LecteurMappe lecteur = new LecteurMappe(analyseur);
+        List<Employe> lot = new ArrayList<>();
+        long[] numLot = {reprise == null ? 0 : reprise.getNumLot()};
+        RegistreManagers[] registre = new RegistreManagers[1];
+        registre[0] = new RegistreManagers(new HashMap<>(managersEnregistres), employe -> {
+            lot.add(employe);
+            if (lot.size() == 2) {
+                for (Employe e : lot) {
+                    e.setId(enregistres.size() + 1L);
+                    enregistres.add(e);
+                    if (e instanceof Manager) {
+                        managersEnregistres.put(e.getMatricule(), e.getId());
+                    }
+                }
+                try {
+                    new PointDeReprise(taille, empreinte, lecteur.getPosition(), lecteur.getNumLigne(), ++numLot[0],
+                            lot.get(1).getId(), registre[0].getLignesEnAttente()).enregistrer(fichier);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                lot.clear();
+                if (numLot[0] == arretApresLot) {
+                    throw new IllegalStateException("arrêt");
+                }
+            }
+        }, (numLigne, ligne, e) -> {});
+
+        if (reprise != null) {
+            lecteur.positionner(reprise.getPosition(), reprise.getNumLigne());
+            for (Map.Entry<Long, String> ligne : reprise.getLignesEnAttente().entrySet()) {
+                try {
+                    registre[0].accepter(ligne.getKey(), ligne.getValue(), analyseur.analyser(ligne.getValue()));
+                } catch (BatchException e) {
+                    Assertions.fail(e.getMessage());
+                }
+            }
+        }
+        lecteur.lire(fichier, registre[0], (numLigne, ligne, e) -> {});
+        registre[0].terminer();
+        Assertions.assertThat(lot).isEmpty();
+    }
+
+    @Test
+    public void testRepriseSansDoublon() throws Exception {
+        //Given
+        Path fichier = dossier.getRoot().toPath().resolve("employes.csv");
+        Files.write(fichier, String.join("\n",
+                "T00001,dupont,pierre,12/03/2003,1700.5,5,M00002",
+                "M00001,durand,jacques,04/06/2013,1200.5",
+                "M00002,martin,paul,04/06/2013,1200.5",
+                "C00001,aubert,michel,05/09/2018,2200.5,150000,100",
+                "C00002,aubert,michel,05/09/XX,2200.5,150000,100",
+                "T00002,dupont,pierre,12/03/2003,1700.5,5,M00001",
+                "C00003,aubert,michel,05/09/2018,2200.5,150000,100").getBytes(StandardCharsets.UTF_8));
+
+        //When
+        try {
+            importer(fichier, 2);
+            Assertions.fail("import non interrompu");
+        } catch (IllegalStateException e) {
+            Assertions.assertThat(e.getMessage()).isEqualTo("arrêt");
+        }
+        importer(fichier, -1);
+
+        //Then
+        List<String> matricules = new ArrayList<>();
+        for (Employe e : enregistres) {
+            matricules.add(e.getMatricule());
+        }
+        Assertions.assertThat(matricules).containsExactly("M00001", "M00002", "C00001", "T00002", "T00001", "C00003");
+        Assertions.assertThat(((Technicien) enregistres.get(4)).getManager().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testLotNonValideEtFichierModifie() throws Exception {
+        //Given
+        Path fichier = dossier.getRoot().toPath().resolve("employes.csv");
+        Files.write(fichier, "M00001,durand,jacques,04/06/2013,1200.5\n".getBytes(StandardCharsets.UTF_8));
+        long taille = Files.size(fichier);
+        long empreinte = PointDeReprise.empreinte(fichier);
+        new PointDeReprise(taille, empreinte, 10, 1, 1, 5L, Collections.emptyMap()).enregistrer(fichier);
+        new PointDeReprise(taille, empreinte, 20, 2, 2, 8L, Collections.singletonMap(2L, "T")).enregistrer(fichier);
+
+        //When
+        PointDeReprise valide = PointDeReprise.charger(fichier, taille, empreinte, id -> id == 8L);
+        PointDeReprise nonValide = PointDeReprise.charger(fichier, taille, empreinte, id -> id == 5L);
+        PointDeReprise autreFichier = PointDeReprise.charger(fichier, taille, empreinte + 1, id -> true);
+
+        //Then
+        Assertions.assertThat(valide.getNumLot()).isEqualTo(2);
+        Assertions.assertThat(valide.getLignesEnAttente()).containsEntry(2L, "T");
+        Assertions.assertThat(nonValide.getNumLot()).isEqualTo(1);
+        Assertions.assertThat(nonValide.getPosition()).isEqualTo(10);
+        Assertions.assertThat(autreFichier).isNull();
+        PointDeReprise.supprimer(fichier);
+        Assertions.assertThat(PointDeReprise.existe(fichier)).isFalse();
+    }
+}
@@ -0,0 +1,60 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.model.Employe;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RegistreManagersTest {
+
+    private static Manager manager(String matricule) {
+        Manager m = new Manager();
+        m.setMatricule(matricule);
+        return m;
+    }
+
+    private static Technicien technicien(String matricule, String matriculeManager) {
+        Technicien t = new Technicien();
+        t.setMatricule(matricule);
+        t.setManager(manager(matriculeManager));
+        return t;
+    }
+
+    @Test
+    public void testRattachementBaseFichierEtReferenceEnAvant() {
+        //Given
+        List<Employe> acceptes = new ArrayList<>();
+        List<String> rejets = new ArrayList<>();
+        RegistreManagers registre = new RegistreManagers(Collections.singletonMap("M00001", 12L), acceptes::add,
+                (numLigne, ligne, e) -> rejets.add(numLigne + " " + e.getMessage() + " " + ligne));
+        Manager m2 = manager("M00002");
+        Technicien base = technicien("T00001", "M00001");
+        Technicien fichier = technicien("T00002", "M00002");
+        Technicien enAvant = technicien("T00003", "M00003");
+        Technicien inconnu = technicien("T00004", "M99999");
+        Manager m3 = manager("M00003");
+
+        //When
+        registre.accepter(1, "m2", m2);
+        registre.accepter(2, "t1", base);
+        registre.accepter(3, "t2", fichier);
+        registre.accepter(4, "t3", enAvant);
+        registre.accepter(5, "t4", inconnu);
+        registre.accepter(6, "m3", m3);
+        registre.terminer();
+
+        //Then
+        Assertions.assertThat(acceptes).containsExactly(m2, base, fichier, m3, enAvant);
+        Assertions.assertThat(base.getManager().getId()).isEqualTo(12L);
+        Assertions.assertThat(fichier.getManager()).isSameAs(m2);
+        Assertions.assertThat(enAvant.getManager()).isSameAs(m3);
+        Assertions.assertThat(rejets).containsExactly(
+                "5 Le manager de matricule M99999 n'a pas été trouvé dans le fichier ou en base de données t4");
+        Assertions.assertThat(registre.getNbAcceptes()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.BatchException;
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class StatistiquesImportTest {
+
+    @Test
+    public void testMesuresEtRejetsParType() throws Exception {
+        //Given
+        StatistiquesImport statistiques = new StatistiquesImport(true);
+        AnalyseurLigne analyseur = new AnalyseurLigne();
+        analyseur.setStatistiques(statistiques);
+        String[] lignes = {"M87654,durand,jacques,04/06/2013,1200.5", "T12345,dupont,pierre,12/03/2003,xxx,5,M00001",
+                "C12345,aubert,michel,05/09/2018,sdf,150000.0,100", "XXXXXX"};
+
+        //When
+        statistiques.demarrer();
+        for (String ligne : lignes) {
+            try {
+                analyseur.analyser(ligne);
+            } catch (BatchException e) {
+                statistiques.rejet(e.getCode(), ligne);
+            }
+        }
+        statistiques.enregistres(1);
+        statistiques.terminer();
+
+        //Then
+        Assertions.assertThat(statistiques.getLignesAnalysees()).isEqualTo(4);
+        Assertions.assertThat(statistiques.getNombre(StatistiquesImport.Etape.ANALYSE)).isEqualTo(4);
+        Assertions.assertThat(statistiques.getDuree(StatistiquesImport.Etape.ANALYSE, 99)).isPositive();
+        Assertions.assertThat(statistiques.getRejets(CodeErreur.SALAIRE, 'T')).isEqualTo(1);
+        Assertions.assertThat(statistiques.getRejets(CodeErreur.SALAIRE, 'C')).isEqualTo(1);
+        Assertions.assertThat(statistiques.getRejets()).containsExactly("TYPE_INCONNU/?=1", "SALAIRE/T=1", "SALAIRE/C=1");
+        Assertions.assertThat(statistiques.resume()).startsWith("Statistiques import : 4 lignes analysées (")
+                .contains("1 enregistrés, 3 rejetés").contains("analyse n=4");
+    }
+
+    @Test
+    public void testInactivesNeMesurentRien() {
+        StatistiquesImport statistiques = new StatistiquesImport(false);
+        long debut = statistiques.debut();
+        statistiques.mesurer(StatistiquesImport.Etape.LECTURE, debut);
+        statistiques.rejet(CodeErreur.DATE, "M1");
+        Assertions.assertThat(debut).isZero();
+        Assertions.assertThat(statistiques.getNombre(StatistiquesImport.Etape.LECTURE)).isZero();
+        Assertions.assertThat(statistiques.getLignesRejetees()).isZero();
+    }
+
+    @Test
+    public void testCentilesHistogramme() {
+        Histogramme histogramme = new Histogramme();
+        for (int i = 1; i <= 100; i++) {
+            histogramme.enregistrer(i * 10);
+        }
+        Assertions.assertThat(histogramme.getNombre()).isEqualTo(100);
+        Assertions.assertThat(histogramme.getMoyenne()).isEqualTo(505);
+        //p50 = 500 compte dans la classe [256, 512[
+        Assertions.assertThat(histogramme.getCentile(50)).isEqualTo(511);
+        Assertions.assertThat(histogramme.getCentile(100)).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ipiecoles.java.java230.batch;
+
+import com.ipiecoles.java.java230.exceptions.CodeErreur;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ValidationFichierTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    private Path fichier(String... lignes) throws Exception {
+        Path fichier = dossier.newFile("employes.csv").toPath();
+        Files.write(fichier, Arrays.asList(lignes), StandardCharsets.UTF_8);
+        return fichier;
+    }
+
+    @Test
+    public void testValiderRattacheLesManagersDuFichier() throws Exception {
+        //Given
+        Path fichier = fichier(
+                "T98765,dupont,pierre,12/03/2003,1700.5,5,M87654",
+                "M87654,durand,jacques,04/06/2013,1200.5",
+                "M12,durand,jacques,04/06/2013,1200.5",
+                "T12345,martin,paul,12/03/2003,1700.5,2,M99999",
+                "C32154,aubert,michel,05/09/2018,2200.5,150000,100");
+        List<String> rejets = new ArrayList<>();
+        ValidationFichier validation = new ValidationFichier();
+
+        //When
+        long nbValides = validation.valider(fichier, (numLigne, ligne, e) -> rejets.add(numLigne + " " + e.getCode()));
+
+        //Then
+        Assertions.assertThat(nbValides).isEqualTo(3);
+        Assertions.assertThat(validation.getNbLignes()).isEqualTo(5);
+        Assertions.assertThat(rejets).containsExactly("3 MATRICULE", "4 MANAGER_INCONNU");
+        Assertions.assertThat(validation.getNbErreurs(CodeErreur.MANAGER_INCONNU)).isEqualTo(1);
+        Assertions.assertThat(validation.getNbErreurs()).isEqualTo(2);
+    }
+
+    @Test
+    public void testExecuterCodeRetour() throws Exception {
+        //Given
+        Path fichier = fichier("M87654,durand,jacques,04/06/2013,1200.5",
+                "T98765,dupont,pierre,12/03/2003,1700.5,5,M87654");
+        Path rejets = dossier.getRoot().toPath().resolve("rejets.csv");
+
+        //When
+        int valide = ValidationFichier.executer(new String[]{fichier.toString()});
+        Files.write(fichier, Arrays.asList("M12,durand,jacques,04/06/2013,1200.5"), StandardCharsets.UTF_8);
+        int invalide = ValidationFichier.executer(new String[]{fichier.toString(), rejets.toString()});
+        int absent = ValidationFichier.executer(new String[]{fichier.resolveSibling("absent.csv").toString()});
+        int usage = ValidationFichier.executer(new String[0]);
+
+        //Then
+        Assertions.assertThat(valide).isEqualTo(0);
+        Assertions.assertThat(invalide).isEqualTo(1);
+        Assertions.assertThat(Files.readAllLines(rejets, StandardCharsets.UTF_8)).hasSize(2)
+                .startsWith(EcritureRejets.ENTETE);
+        Assertions.assertThat(absent).isEqualTo(2);
+        Assertions.assertThat(usage).isEqualTo(2);
+    }
+}
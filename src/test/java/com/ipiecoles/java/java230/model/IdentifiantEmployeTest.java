@@ -0,0 +1,132 @@
+package com.ipiecoles.java.java230.model;
+
+import com.ipiecoles.java.java230.utils.BaseH2;
+import org.assertj.core.api.Assertions;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Générateur pooled-lo de Employe.id : optimiseur seul, puis sur une base H2 en mémoire (profil Maven h2) avec une
+ * table de séquence comme sous MySQL
+ */
+public class IdentifiantEmployeTest {
+
+    /**
+     * H2 sans séquences : Hibernate utilise alors la table employe_seq, comme avec MySQL
+     */
+    public static class H2SansSequences extends H2Dialect {
+        @Override
+        public boolean supportsSequences() {
+            return false;
+        }
+
+        @Override
+        public boolean supportsPooledSequences() {
+            return false;
+        }
+    }
+
+    @Test
+    public void testUnAllerRetourParBlocDe50() throws Exception {
+        //Given l'optimiseur configuré sur Employe.id, une table de séquence dont next_val vaut 71
+        GenericGenerator generateur = Employe.class.getDeclaredField("id").getAnnotation(GenericGenerator.class);
+        Map<String, String> parametres = Arrays.stream(generateur.parameters())
+                .collect(Collectors.toMap(Parameter::name, Parameter::value));
+        int increment = Integer.parseInt(parametres.get("increment_size"));
+        Optimizer optimiseur = OptimizerFactory.buildOptimizer(parametres.get("optimizer"), Long.class, increment, 1);
+        AtomicLong nextVal = new AtomicLong(71);
+        AtomicInteger allersRetours = new AtomicInteger();
+        AccessCallback table = new AccessCallback() {
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                allersRetours.incrementAndGet();
+                IntegralDataTypeHolder valeur = IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class);
+                valeur.initialize(nextVal.getAndAdd(increment));
+                return valeur;
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return null;
+            }
+        };
+
+        //When
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            ids.add(((Number) optimiseur.generate(table)).longValue());
+        }
+
+        //Then
+        Assertions.assertThat(increment).isEqualTo(50);
+        Assertions.assertThat(ids).isEqualTo(LongStream.rangeClosed(71, 190).boxed().collect(Collectors.toList()));
+        Assertions.assertThat(allersRetours.get()).isEqualTo(3);
+        Assertions.assertThat(nextVal.get()).isEqualTo(221L);
+    }
+
+    @Test
+    public void testIdentifiantsParBlocsApresLesExistants() {
+        //Given un employé d'identifiant 70 déjà en base, employe_seq initialisée par sql/employe_seq.sql
+        DataSource dataSource = BaseH2.dataSource("identifiants");
+        EntityManagerFactory entityManagerFactory = BaseH2.entityManagerFactory(dataSource,
+                Collections.singletonMap("hibernate.dialect", H2SansSequences.class.getName()));
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.update("INSERT INTO Employe (id, nom, prenom, matricule, salaire) VALUES (70, 'ancien', 'manager', 'M00000', 2000)");
+            jdbcTemplate.update("INSERT INTO Manager (id) VALUES (70)");
+            jdbcTemplate.update("DELETE FROM employe_seq");
+            new ResourceDatabasePopulator(new ClassPathResource("sql/employe_seq.sql")).execute(dataSource);
+            TransactionTemplate transaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+
+            //When 120 employés enregistrés
+            List<Long> ids = transaction.execute(statut -> {
+                List<Long> generes = new ArrayList<>();
+                for (int i = 1; i <= 120; i++) {
+                    Manager manager = new Manager("nom", "prenom", String.format("M%05d", i), new LocalDate(2012, 1, 1),
+                            2000d, new HashSet<>());
+                    entityManager.persist(manager);
+                    generes.add(manager.getId());
+                }
+                return generes;
+            });
+
+            //Then des identifiants consécutifs après 70, réservés en 3 blocs de 50 : next_val = 71 + 3 * 50
+            Assertions.assertThat(ids).isEqualTo(LongStream.rangeClosed(71, 190).boxed().collect(Collectors.toList()));
+            Assertions.assertThat(jdbcTemplate.queryForObject("SELECT next_val FROM employe_seq", Long.class))
+                    .isEqualTo(221L);
+            Assertions.assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM Employe", Long.class))
+                    .isEqualTo(121L);
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ipiecoles.java.java230.model;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.collection.internal.PersistentSet;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+
+public class ManagerTest {
+
+    @Test
+    public void testAgregatsEquipeEnMemoire() throws Exception {
+        //Given
+        Manager manager = new Manager("nom", "prenom", "M00001", new LocalDate(2010, 1, 1), 2000d, new HashSet<>());
+        manager.ajoutTechnicienEquipe("nom", "prenom", "T00001", new LocalDate(2012, 1, 1), 1500d, 1);
+        manager.ajoutTechnicienEquipe("nom", "prenom", "T00002", new LocalDate(2012, 1, 1), 1700d, 2);
+
+        //When
+        manager.setSalaire(2000d);
+
+        //Then
+        Assertions.assertThat(manager.getTailleEquipe()).isEqualTo(2);
+        Assertions.assertThat(manager.getSalaireEquipe()).isEqualTo(3200d);
+        Assertions.assertThat(manager.salaireEquipeGrade1()).isEqualTo(1500d);
+        Assertions.assertThat(manager.getSalaire()).isEqualTo(2000d * 1.3 + 2000d * 2 / 10);
+    }
+
+    @Test
+    public void testAgregatsEquipeNonChargee() throws Exception {
+        //Given
+        Manager manager = new Manager();
+        PersistentSet equipeNonChargee = new PersistentSet();
+        champ(manager, "equipe", equipeNonChargee);
+        manager.setAgregatsEquipe(3, 5000d, 1500d);
+
+        //When
+        manager.setSalaire(2000d);
+        Double prime = manager.getPrimeAnnuelle();
+
+        //Then
+        Assertions.assertThat(manager.getTailleEquipe()).isEqualTo(3);
+        Assertions.assertThat(manager.getSalaireEquipe()).isEqualTo(5000d);
+        Assertions.assertThat(manager.salaireEquipeGrade1()).isEqualTo(1500d);
+        Assertions.assertThat(manager.getSalaire()).isEqualTo(2000d * 1.3 + 2000d * 3 / 10);
+        Assertions.assertThat(prime).isEqualTo(Entreprise.primeAnnuelleBase() + 3 * 250d);
+        Assertions.assertThat(equipeNonChargee.wasInitialized()).isFalse();
+    }
+
+    @Test
+    public void testEquipeParGradeApresAugmentations() throws Exception {
+        //Given
+        Manager manager = new Manager("nom", "prenom", "M00001", new LocalDate(2010, 1, 1), 2000d, new HashSet<>());
+        Technicien t1 = new Technicien("nom", "prenom", "T00001", new LocalDate(2012, 1, 1), 1500d, 1);
+        Technicien t2 = new Technicien("nom", "prenom", "T00002", new LocalDate(2012, 1, 1), 1700d, 3);
+        Technicien t3 = new Technicien("nom", "prenom", "T00003", new LocalDate(2012, 1, 1), 1600d, 1);
+        for (Technicien technicien : new Technicien[]{t1, t2, t3}) {
+            technicien.setManager(manager);
+            manager.ajoutTechnicienEquipe(technicien);
+        }
+        Assertions.assertThat(manager.salaireEquipeGrade1()).isEqualTo(3100d);
+
+        //When
+        manager.augmenterSalaire(0.1);
+        t3.setGrade(5);
+        t1.augmenterSalaire(0.5);
+
+        //Then
+        Assertions.assertThat(manager.getEquipe()).contains(t1, t2, t3);
+        Assertions.assertThat(manager.equipeParGrade()).containsExactly(t3, t2, t1);
+        Assertions.assertThat(manager.salaireEquipeGrade1()).isCloseTo(1500d * 1.1 * 1.5, Assertions.offset(1e-9));
+        Assertions.assertThat(manager.getEquipeParGrade().getSalaire(5)).isCloseTo(1600d * 1.1, Assertions.offset(1e-9));
+        Assertions.assertThat(manager.getSalaireEquipe()).isCloseTo(1500d * 1.1 * 1.5 + 1700d * 1.1 + 1600d * 1.1,
+                Assertions.offset(1e-9));
+    }
+
+    @Test
+    public void testEquipeParGradeApresRetraitEtAjout() throws Exception {
+        //Given
+        Manager manager = new Manager("nom", "prenom", "M00001", new LocalDate(2010, 1, 1), 2000d, new HashSet<>());
+        Technicien t1 = new Technicien("nom", "prenom", "T00001", new LocalDate(2012, 1, 1), 1500d, 1);
+        Technicien t2 = new Technicien("nom", "prenom", "T00002", new LocalDate(2012, 1, 1), 1700d, 3);
+        Technicien t3 = new Technicien("nom", "prenom", "T00003", new LocalDate(2012, 1, 1), 1600d, 1);
+        manager.ajoutTechnicienEquipe(t1);
+        manager.ajoutTechnicienEquipe(t2);
+        Assertions.assertThat(manager.salaireEquipeGrade1()).isEqualTo(1500d);
+
+        //When la taille de l'équipe ne change pas
+        manager.retirerTechnicienEquipe(t1);
+        manager.ajoutTechnicienEquipe(t3);
+        Throwable modificationDirecte = Assertions.catchThrowable(() -> manager.getEquipe().remove(t2));
+
+        //Then
+        Assertions.assertThat(modificationDirecte).isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThat(manager.getEquipe()).containsOnly(t2, t3);
+        Assertions.assertThat(manager.equipeParGrade()).containsExactly(t2, t3);
+        Assertions.assertThat(manager.salaireEquipeGrade1()).isEqualTo(1600d);
+        Assertions.assertThat(manager.getSalaireEquipe()).isEqualTo(3300d);
+    }
+
+    @Test
+    public void testRetraitTechnicienModifieOuRelu() throws Exception {
+        //Given
+        Manager manager = new Manager("nom", "prenom", "M00001", new LocalDate(2010, 1, 1), 2000d, new HashSet<>());
+        Technicien t1 = new Technicien("nom", "prenom", "T00001", new LocalDate(2012, 1, 1), 1500d, 1);
+        Technicien t2 = new Technicien("nom", "prenom", "T00002", new LocalDate(2012, 1, 1), 1700d, 3);
+        manager.ajoutTechnicienEquipe(t1);
+        manager.ajoutTechnicienEquipe(t2);
+        t1.setGrade(4);
+        t1.augmenterSalaire(0.2);
+        Technicien copieT2 = new Technicien("autre", "nom", "T00002", null, 1800d, 5);
+
+        //When
+        manager.retirerTechnicienEquipe(t1);
+        manager.retirerTechnicienEquipe(copieT2);
+
+        //Then seul le matricule compte pour equals comme pour hashCode
+        Assertions.assertThat(copieT2).isEqualTo(t2);
+        Assertions.assertThat(copieT2.hashCode()).isEqualTo(t2.hashCode());
+        Assertions.assertThat(manager.getEquipe()).isEmpty();
+        Assertions.assertThat(manager.getTailleEquipe()).isEqualTo(0);
+    }
+
+    private static void champ(Manager manager, String nom, Object valeur) throws Exception {
+        Field champ = Manager.class.getDeclaredField(nom);
+        champ.setAccessible(true);
+        champ.set(manager, valeur);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ipiecoles.java.java230.service;
+
+import com.ipiecoles.java.java230.model.Entreprise;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import com.ipiecoles.java.java230.repository.TechnicienRepository;
+import com.ipiecoles.java.java230.utils.BaseH2;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Agrégats d'équipe lus à la demande par EmployeService, sur une base H2 en mémoire (profil Maven h2)
+ */
+public class AgregatsEquipeTest {
+
+    @Test
+    public void testAgregatsSansChargerLesEquipes() throws Exception {
+        //Given un manager avec 3 techniciens dont 2 de grade 1, un avec un technicien de grade 2, un sans équipe
+        EntityManagerFactory entityManagerFactory = BaseH2.entityManagerFactory(BaseH2.dataSource("agregats"),
+                new HashMap<>());
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            EmployeService employeService = new EmployeService();
+            ReflectionTestUtils.setField(employeService, "technicienRepository",
+                    new JpaRepositoryFactory(entityManager).getRepository(TechnicienRepository.class));
+            Manager premier = manager("M00001");
+            Manager second = manager("M00002");
+            Manager sansEquipe = manager("M00003");
+            Technicien[] techniciens = {
+                    technicien("T00001", 1500d, 1, premier), technicien("T00002", 1600d, 1, premier),
+                    technicien("T00003", 1700d, 3, premier), technicien("T00004", 1800d, 2, second)};
+            transaction.execute(statut -> {
+                Arrays.asList(premier, second, sansEquipe).forEach(entityManager::persist);
+                Arrays.asList(techniciens).forEach(entityManager::persist);
+                return null;
+            });
+
+            //When
+            Manager[] managers = transaction.execute(statut -> {
+                Manager[] lus = {entityManager.find(Manager.class, premier.getId()),
+                        entityManager.find(Manager.class, second.getId()),
+                        entityManager.find(Manager.class, sansEquipe.getId())};
+                employeService.chargerAgregatsEquipes(Arrays.asList(lus));
+                return lus;
+            });
+            Manager seul = transaction.execute(statut -> {
+                Manager lu = entityManager.find(Manager.class, premier.getId());
+                employeService.chargerAgregatsEquipe(lu);
+                return lu;
+            });
+
+            //Then les agrégats sont lus sans initialiser les équipes
+            for (Manager manager : new Manager[]{managers[0], seul}) {
+                Assertions.assertThat(manager.getTailleEquipe()).isEqualTo(3);
+                Assertions.assertThat(manager.getSalaireEquipe()).isEqualTo(4800d);
+                Assertions.assertThat(manager.salaireEquipeGrade1()).isEqualTo(3100d);
+                Assertions.assertThat(manager.getPrimeAnnuelle()).isEqualTo(Entreprise.primeAnnuelleBase() + 3 * Entreprise.PRIME_MANAGER_PAR_TECHNICIEN);
+            }
+            Assertions.assertThat(managers[1].getTailleEquipe()).isEqualTo(1);
+            Assertions.assertThat(managers[1].getSalaireEquipe()).isEqualTo(1800d);
+            Assertions.assertThat(managers[1].salaireEquipeGrade1()).isEqualTo(0d);
+            Assertions.assertThat(managers[2].getTailleEquipe()).isEqualTo(0);
+            Assertions.assertThat(managers[2].getSalaireEquipe()).isEqualTo(0d);
+            for (Manager manager : new Manager[]{managers[0], managers[1], managers[2], seul}) {
+                Assertions.assertThat(Hibernate.isInitialized(ReflectionTestUtils.getField(manager, "equipe"))).isFalse();
+            }
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    private static Manager manager(String matricule) {
+        return new Manager("durand", "jacques", matricule, new LocalDate(2013, 6, 4), 2000d, new HashSet<>());
+    }
+
+    private static Technicien technicien(String matricule, Double salaire, Integer grade, Manager manager)
+            throws Exception {
+        Technicien technicien = new Technicien("martin", "jacques", matricule, new LocalDate(2015, 1, 9), salaire, grade);
+        technicien.setManager(manager);
+        return technicien;
+    }
+}
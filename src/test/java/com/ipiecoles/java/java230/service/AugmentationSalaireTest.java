@@ -0,0 +1,79 @@
+package com.ipiecoles.java.java230.service;
+
+import com.ipiecoles.java.java230.model.Commercial;
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import com.ipiecoles.java.java230.repository.CommercialRepository;
+import com.ipiecoles.java.java230.repository.ManagerRepository;
+import com.ipiecoles.java.java230.repository.TechnicienRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AugmentationSalaireTest {
+
+    private final List<String> requetes = new ArrayList<>();
+
+    private final EmployeService employeService = new EmployeService();
+
+    /**
+     * Repository qui note chaque requête sous la forme "multiplierSalaireEquipe [4, 1.05]" et renvoie 2 lignes
+     * modifiées, 0 pour le manager d'identifiant 404
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T repository(Class<T> type) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{type}, (proxy, methode, args) -> {
+            if (methode.getDeclaringClass() == Object.class) {
+                return methode.getName().equals("toString") ? type.getSimpleName() : 0;
+            }
+            requetes.add(methode.getName() + " " + Arrays.toString(args));
+            return args[0].equals(404L) ? 0 : 2;
+        });
+    }
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(employeService, "managerRepository", repository(ManagerRepository.class));
+        ReflectionTestUtils.setField(employeService, "technicienRepository", repository(TechnicienRepository.class));
+        ReflectionTestUtils.setField(employeService, "commercialRepository", repository(CommercialRepository.class));
+    }
+
+    @Test
+    public void testAugmenterManagerEtEquipe() {
+        //Given
+
+        //When
+        int nbAugmentes = employeService.augmenterSalaireManager(4L, 0.05);
+        int nbInconnu = employeService.augmenterSalaireManager(404L, 0.05);
+
+        //Then
+        Assertions.assertThat(nbAugmentes).isEqualTo(4);
+        Assertions.assertThat(nbInconnu).isEqualTo(0);
+        Assertions.assertThat(requetes).containsExactly("multiplierSalaire [4, 1.05]",
+                "multiplierSalaireEquipe [4, 1.05]", "multiplierSalaire [404, 1.05]");
+    }
+
+    @Test
+    public void testAugmenterParTypeEtGrade() {
+        //Given
+
+        //When
+        int nbManagers = employeService.augmenterSalaireType(Manager.class, 0.1);
+        int nbTechniciens = employeService.augmenterSalaireType(Technicien.class, 0.1);
+        int nbCommerciaux = employeService.augmenterSalaireType(Commercial.class, 0.1);
+        int nbGrade = employeService.augmenterSalaireGrade(3, 0.1);
+
+        //Then
+        Assertions.assertThat(Arrays.asList(nbManagers, nbTechniciens, nbCommerciaux, nbGrade))
+                .containsExactly(4, 2, 2, 2);
+        Assertions.assertThat(requetes).containsExactly("multiplierSalaireTous [1.1]",
+                "multiplierSalaireAvecManager [1.1]", "multiplierSalaireTous [1.1]", "multiplierSalaireTous [1.1]",
+                "multiplierSalaireGrade [3, 1.1]");
+    }
+}
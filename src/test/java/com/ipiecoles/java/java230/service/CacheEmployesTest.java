@@ -0,0 +1,93 @@
+package com.ipiecoles.java.java230.service;
+
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.Technicien;
+import com.ipiecoles.java.java230.repository.EmployeRepository;
+import com.ipiecoles.java.java230.repository.TechnicienRepository;
+import com.ipiecoles.java.java230.utils.BaseH2;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.joda.time.LocalDate;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class CacheEmployesTest {
+
+    @Test
+    public void testTailleEquipeManagerEnCache() throws Exception {
+        //Given un manager en cache avec un technicien : son équipe est relue en base, pas le manager
+        try {
+            Class.forName("org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+        } catch (ClassNotFoundException e) {
+            Assume.assumeNoException("hibernate-ehcache absent, lancer les tests avec -Pcache,h2", e);
+        }
+        Map<String, Object> proprietes = new HashMap<>();
+        proprietes.put("javax.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+        proprietes.put("hibernate.cache.use_second_level_cache", "true");
+        proprietes.put("hibernate.cache.region.factory_class", "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+        proprietes.put("net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+        EntityManagerFactory entityManagerFactory = BaseH2.entityManagerFactory(BaseH2.dataSource("cache"), proprietes);
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            CacheEmployes cacheEmployes = new CacheEmployes();
+            ReflectionTestUtils.setField(cacheEmployes, "entityManagerFactory", entityManagerFactory);
+            EmployeService employeService = new EmployeService();
+            JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+            ReflectionTestUtils.setField(employeService, "employeRepository", repositories.getRepository(EmployeRepository.class));
+            ReflectionTestUtils.setField(employeService, "technicienRepository",
+                    repositories.getRepository(TechnicienRepository.class));
+            Manager manager = new Manager("durand", "jacques", "M00001", new LocalDate(2013, 6, 4), 2000.0, new HashSet<>());
+            Technicien premier = new Technicien("martin", "jacques", "T00001", new LocalDate(2015, 1, 9), 1500.0, 3);
+            Technicien second = new Technicien("petit", "julie", "T00002", new LocalDate(2016, 12, 31), 1600.0, 1);
+            transaction.execute(statut -> {
+                entityManager.persist(manager);
+                premier.setManager(manager);
+                entityManager.persist(premier);
+                return null;
+            });
+            cacheEmployes.vider();
+            Assertions.assertThat(tailleEquipe(transaction, entityManager, employeService, manager.getId())).isEqualTo("1 / 1");
+            Assertions.assertThat(entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                    .containsEntity(Manager.class, manager.getId())).isTrue();
+
+            //When
+            transaction.execute(statut -> {
+                second.setManager(entityManager.find(Manager.class, manager.getId()));
+                return employeService.creerEmploye(second);
+            });
+            String apresCreation = tailleEquipe(transaction, entityManager, employeService, manager.getId());
+            transaction.execute(statut -> {
+                employeService.deleteEmploye(premier.getId());
+                return null;
+            });
+            String apresSuppression = tailleEquipe(transaction, entityManager, employeService, manager.getId());
+
+            //Then agrégats lus en base et équipe chargée
+            Assertions.assertThat(apresCreation).isEqualTo("2 / 2");
+            Assertions.assertThat(apresSuppression).isEqualTo("1 / 1");
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    private static String tailleEquipe(TransactionTemplate transaction, EntityManager entityManager,
+                                       EmployeService employeService, Long id) {
+        return transaction.execute(statut -> {
+            Manager manager = entityManager.find(Manager.class, id);
+            employeService.chargerAgregatsEquipe(manager);
+            return manager.getTailleEquipe() + " / " + manager.getEquipe().size();
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package com.ipiecoles.java.java230.service;
+
+import com.ipiecoles.java.java230.model.Manager;
+import com.ipiecoles.java.java230.model.UniteOrganisation;
+import com.ipiecoles.java.java230.repository.MembreUniteRepository;
+import com.ipiecoles.java.java230.repository.UniteOrganisationRepository;
+import com.ipiecoles.java.java230.utils.BaseH2;
+import org.assertj.core.api.Assertions;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Service sur des repositories simulés, puis table de fermeture sur une base H2 en mémoire (profil Maven h2)
+ */
+public class OrganisationServiceTest {
+
+    private final List<String> requetes = new ArrayList<>();
+
+    private final OrganisationService organisationService = new OrganisationService();
+
+    /**
+     * Repository des unités : les unités 1 à 9 existent, l'unité 3 est dans le sous-arbre de l'unité 2, save attribue
+     * l'identifiant 10. Les requêtes de maintenance de la table de fermeture sont notées avec leurs paramètres.
+     */
+    private UniteOrganisationRepository uniteRepository() {
+        return (UniteOrganisationRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{UniteOrganisationRepository.class}, (proxy, methode, args) -> {
+                    if (methode.getDeclaringClass() == Object.class) {
+                        return methode.getName().equals("toString") ? "UniteOrganisationRepository" : 0;
+                    }
+                    switch (methode.getName()) {
+                        case "findOne":
+                            UniteOrganisation unite = new UniteOrganisation("unite", null, null);
+                            unite.setId((Long) args[0]);
+                            return (Long) args[0] < 10 ? unite : null;
+                        case "save":
+                            ((UniteOrganisation) args[0]).setId(10L);
+                            return args[0];
+                        case "countLiens":
+                            return args[0].equals(2L) && args[1].equals(3L) ? 1L : 0L;
+                        case "findByParentId":
+                            return Collections.emptyList();
+                        default:
+                            requetes.add(methode.getName() + " " + Arrays.toString(args));
+                            return 1;
+                    }
+                });
+    }
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(organisationService, "uniteRepository", uniteRepository());
+        ReflectionTestUtils.setField(organisationService, "membreRepository", Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{MembreUniteRepository.class},
+                (proxy, methode, args) -> methode.getName().equals("toString") ? "MembreUniteRepository" : 0L));
+    }
+
+    @Test
+    public void testCreerEtDeplacerUnite() {
+        //Given
+
+        //When
+        UniteOrganisation unite = organisationService.creerUnite("service", 4L, null);
+        organisationService.deplacerUnite(2L, 5L);
+        organisationService.deplacerUnite(3L, null);
+
+        //Then
+        Assertions.assertThat(unite.getParent().getId()).isEqualTo(4L);
+        Assertions.assertThat(requetes).containsExactly("insererLienUnite [10]", "insererLiensAncetres [10, 4]",
+                "detacherSousArbre [2]", "rattacherSousArbre [2, 5]", "detacherSousArbre [3]");
+    }
+
+    @Test
+    public void testDeplacerSousSonSousArbre() {
+        //Given
+
+        //When
+        Throwable erreur = Assertions.catchThrowable(() -> organisationService.deplacerUnite(2L, 3L));
+
+        //Then
+        Assertions.assertThat(erreur).isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(requetes).isEmpty();
+    }
+
+    @Test
+    public void testTableDeFermetureH2() {
+        //Given racine > (a > b, c), un membre dans b, a et c
+        EntityManagerFactory entityManagerFactory = BaseH2.entityManagerFactory(BaseH2.dataSource("organisation"),
+                new HashMap<>());
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+            UniteOrganisationRepository uniteRepository = repositories.getRepository(UniteOrganisationRepository.class);
+            OrganisationService service = new OrganisationService();
+            ReflectionTestUtils.setField(service, "uniteRepository", uniteRepository);
+            ReflectionTestUtils.setField(service, "membreRepository", repositories.getRepository(MembreUniteRepository.class));
+            Map<String, Long> unites = dansTransaction(transaction, () -> {
+                Map<String, Long> ids = new HashMap<>();
+                ids.put("racine", service.creerUnite("racine", null, null).getId());
+                ids.put("a", service.creerUnite("a", ids.get("racine"), null).getId());
+                ids.put("b", service.creerUnite("b", ids.get("a"), null).getId());
+                ids.put("c", service.creerUnite("c", ids.get("racine"), null).getId());
+                ids.put("membreB", membre(entityManager, "M00001", 1000.0));
+                ids.put("membreA", membre(entityManager, "M00002", 2000.0));
+                ids.put("membreC", membre(entityManager, "M00003", 4000.0));
+                service.affecter(ids.get("membreB"), ids.get("b"));
+                service.affecter(ids.get("membreA"), ids.get("a"));
+                service.affecter(ids.get("membreC"), ids.get("c"));
+                return ids;
+            });
+            Long racine = unites.get("racine");
+            Long a = unites.get("a");
+            Long c = unites.get("c");
+
+            //When
+            List<String> chaineAvant = dansTransaction(transaction, () -> noms(service.findChaineUnitesEmploye(unites.get("membreB"))));
+            List<Object[]> cumulsAvant = dansTransaction(transaction, uniteRepository::findEffectifsEtSalairesParUnite);
+            dansTransaction(transaction, () -> {
+                service.deplacerUnite(a, c);
+                return null;
+            });
+            List<String> chaineDeplacee = dansTransaction(transaction, () -> noms(service.findChaineUnitesEmploye(unites.get("membreB"))));
+            List<String> sousUnitesC = dansTransaction(transaction, () -> noms(uniteRepository.findSousUnites(c)));
+            double salairesC = dansTransaction(transaction, () -> service.salairesSousUnite(c));
+            dansTransaction(transaction, () -> {
+                service.deplacerUnite(a, null);
+                return null;
+            });
+            List<String> chaineRacine = dansTransaction(transaction, () -> noms(service.findChaineUnitesEmploye(unites.get("membreB"))));
+            long effectifRacine = dansTransaction(transaction, () -> service.effectifSousUnite(racine));
+
+            //Then
+            Assertions.assertThat(chaineAvant).containsExactly("b", "a", "racine");
+            Assertions.assertThat(cumulsAvant).extracting(ligne -> ((Number) ligne[0]).longValue() + " "
+                    + ligne[1] + " " + ligne[2]).containsOnly(racine + " 3 7000.0", a + " 2 3000.0",
+                    unites.get("b") + " 1 1000.0", c + " 1 4000.0");
+            Assertions.assertThat(chaineDeplacee).containsExactly("b", "a", "c", "racine");
+            Assertions.assertThat(sousUnitesC).containsExactly("c", "a", "b");
+            Assertions.assertThat(salairesC).isEqualTo(7000.0);
+            Assertions.assertThat(chaineRacine).containsExactly("b", "a");
+            Assertions.assertThat(effectifRacine).isEqualTo(1L);
+            Assertions.assertThat(dansTransaction(transaction, () -> uniteRepository.countLiens(racine, unites.get("b"))))
+                    .isEqualTo(0L);
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    private static <T> T dansTransaction(TransactionTemplate transaction, Supplier<T> requete) {
+        return transaction.execute(statut -> requete.get());
+    }
+
+    private static Long membre(EntityManager entityManager, String matricule, double salaire) {
+        Manager employe = new Manager("dupont", "jean", matricule, new LocalDate(2012, 3, 1), salaire, new HashSet<>());
+        entityManager.persist(employe);
+        return employe.getId();
+    }
+
+    private static List<String> noms(List<UniteOrganisation> unites) {
+        return unites.stream().map(UniteOrganisation::getNom).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,56 @@
+package com.ipiecoles.java.java230.utils;
+
+import org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl;
+import org.junit.Assume;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entités du modèle sur une base H2 en mémoire, schéma créé par Hibernate, disponible avec le profil Maven h2.
+ * Les tests qui l'utilisent sont ignorés sans H2.
+ */
+public class BaseH2 {
+
+    private BaseH2() {
+    }
+
+    /**
+     * @param nom le nom de la base en mémoire, propre à chaque classe de test
+     */
+    public static DataSource dataSource(String nom) {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            Assume.assumeNoException("H2 absent, lancer les tests avec -Ph2", e);
+        }
+        return new DriverManagerDataSource("jdbc:h2:mem:" + nom + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    /**
+     * @param dataSource la base, voir {@link #dataSource(String)}
+     * @param proprietes propriétés Hibernate ajoutées à celles de application.properties (dialecte H2, sans cache de
+     *                   second niveau comme hors profil "cache")
+     */
+    public static EntityManagerFactory entityManagerFactory(DataSource dataSource, Map<String, Object> proprietes) {
+        Map<String, Object> jpa = new HashMap<>();
+        jpa.put("hibernate.hbm2ddl.auto", "create-drop");
+        jpa.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        jpa.put("hibernate.physical_naming_strategy", PhysicalNamingStrategyStandardImpl.class.getName());
+        jpa.put("hibernate.cache.use_second_level_cache", "false");
+        jpa.put("hibernate.cache.use_query_cache", "false");
+        jpa.putAll(proprietes);
+        LocalContainerEntityManagerFactoryBean fabrique = new LocalContainerEntityManagerFactoryBean();
+        fabrique.setDataSource(dataSource);
+        fabrique.setPackagesToScan(TestUtils.PACKAGE.substring(0, TestUtils.PACKAGE.length() - 1));
+        fabrique.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        fabrique.setJpaPropertyMap(jpa);
+        fabrique.afterPropertiesSet();
+        return fabrique.getObject();
+    }
+}